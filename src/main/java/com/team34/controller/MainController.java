@@ -1,29 +1,36 @@
 package com.team34.controller;
 
+import com.team34.model.BinaryCodec;
+import com.team34.model.CascadeDelete;
+import com.team34.model.CompressedCodec;
 import com.team34.model.Project;
-import com.team34.model.chapter.Chapter;
 import com.team34.model.Project;
 import com.team34.model.Project;
-import com.team34.model.chapter.ChapterListObject;
 import com.team34.model.event.EventListObject;
 import com.team34.view.MainView;
 import com.team34.view.dialogs.*;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.MenuItem;
 import javafx.scene.input.DragEvent;
+import javafx.scene.input.InputEvent;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.shape.Rectangle;
 import javafx.stage.FileChooser;
 import javafx.stage.WindowEvent;
+import javafx.util.Duration;
 
 import javax.xml.stream.XMLStreamException;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import com.team34.view.MainView;
@@ -40,6 +47,9 @@ import com.team34.view.MainView;
  */
 public class MainController {
 
+    private static final long AUTOSAVE_INTERVAL_NANOS = 60_000_000_000L;
+    private static final long AUTOSAVE_IDLE_NANOS = 2_000_000_000L;
+
     private final MainView view;
     private final Project model;
     private final EventHandler<ActionEvent> evtButtonAction;
@@ -51,6 +61,9 @@ public class MainController {
 
     private final EventHandler<MouseEvent> evtMouseCharacterList, mouseEventEventHandler, mouseEventChapterHandler;
     private EventListObject eventListObject;
+    private double saveProgress;
+    private long lastInteraction;
+    private long lastAutosave;
 
     /**
      * Constructs the controller. Initializes member variables
@@ -62,6 +75,7 @@ public class MainController {
     public MainController(MainView view, Project model) {
         this.view = view;
         this.model = model;
+        this.saveProgress = -1.0;
 
         this.evtButtonAction = new EventButtonAction();
         this.evtContextMenuAction = new EventContextMenuAction();
@@ -74,6 +88,64 @@ public class MainController {
         this.mouseEventChapterHandler = new ChapterListMouseEvent();
 
         registerEventsOnView();
+        startAutosave();
+        Platform.runLater(this::offerRecovery);
+    }
+
+    /**
+     * Starts a timer that lets the model write a recovery copy of the project, see {@link Project#autosave()}.
+     * To not compete with interactive edits, a copy is only written once the user has been idle for
+     * {@link MainController#AUTOSAVE_IDLE_NANOS}, and at most once every {@link MainController#AUTOSAVE_INTERVAL_NANOS}.
+     */
+    private void startAutosave() {
+        lastInteraction = System.nanoTime();
+        lastAutosave = lastInteraction;
+        view.getMainStage().addEventFilter(InputEvent.ANY, e -> lastInteraction = System.nanoTime());
+
+        Timeline autosaveTimer = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            long now = System.nanoTime();
+            if (now - lastInteraction < AUTOSAVE_IDLE_NANOS || now - lastAutosave < AUTOSAVE_INTERVAL_NANOS)
+                return;
+
+            if (model.autosave())
+                lastAutosave = now;
+        }));
+        autosaveTimer.setCycleCount(Timeline.INDEFINITE);
+        autosaveTimer.play();
+    }
+
+    /**
+     * Offers to restore a recovery copy left behind by a previous session, see {@link Project#findRecovery()}.
+     */
+    private void offerRecovery() {
+        File recoveryFile = model.findRecovery();
+        if (recoveryFile != null)
+            offerRecovery(recoveryFile);
+    }
+
+    /**
+     * Asks the user whether the given recovery copy should be restored. If not, it is deleted.
+     *
+     * @param recoveryFile the recovery file
+     */
+    private void offerRecovery(File recoveryFile) {
+        boolean restore = view.warningDialogOptions(
+                "Unsaved changes from a previous session were recovered (" + recoveryFile.getName() + ").\n"
+                        + "Would you like to restore them?", "Restore unsaved changes");
+
+        try {
+            if (restore) {
+                model.restoreRecovery(recoveryFile);
+                refreshViewEvents();
+                refreshCharacterList();
+                refreshViewChapters();
+            } else {
+                Files.deleteIfExists(recoveryFile.toPath());
+            }
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+        }
+        refreshTitleBar();
     }
 
     /**
@@ -226,57 +298,16 @@ public class MainController {
                 view.showDialog("A chapter with that name already exists, chapter was not created!");
                 return;
             }
-            String chapterNew = view.getEditChapterDialog().getChapterName();
             boolean success = model.chapterManager.editChapter(uid,
                     view.getEditChapterDialog().getChapterName(),
                     view.getEditChapterDialog().getChapterDescription()
             );
-            changeEventChapter(chapterNew, chapterData[0].toString());
-            //model.eventManager.
+            if (success)
+                refreshViewEvents();
         }
         refreshTitleBar();
     }
 
-    /**
-     *
-     * @param newChapter
-     * @param oldChapter
-     *
-     * @Author
-     * Alexander Olsson
-     */
-
-    private void changeEventChapter(String newChapter, String oldChapter) {
-        if(model.eventManager.getEvents() != null) {
-
-
-            System.out.println(oldChapter + ", " + newChapter);
-            Object[][] data = model.eventManager.getEvents();
-            Object[][] dataChapter = model.chapterManager.getChapters();
-            long chapterUID = 0;
-            String color = null;
-
-            for (int i = 0; i < model.eventManager.getEvents().length; i++) {
-                if (dataChapter[i][1].toString().equals(newChapter)) {
-                    System.out.println("Hello");
-                    chapterUID = (long) dataChapter[i][0];
-                    color = dataChapter[i][2].toString();
-                }
-
-            }
-            for (int i = 0; i < model.eventManager.getEvents().length; i++) {
-                System.out.println(data[i][4].toString());
-                if (data[i][4].toString().equals(oldChapter)) {
-                    System.out.println("Hello2");
-                    model.eventManager.editEvent((long) data[i][0], data[i][1].toString(), data[i][2].toString(), new ChapterListObject(newChapter, chapterUID, color));
-                    //model.chapterManager.getChapter();
-                    //model.eventManager.getEvent().getChapterListObject().getUid(chapter)
-                    refreshViewChapters();
-                }
-            }
-        }
-    }
-
     /**
      * Instructs the view to update the view of events with the current state of the model.
      */
@@ -298,12 +329,7 @@ public class MainController {
     }
 
     private void refreshViewCharChart() {
-
-        view.updateCharacterList(
-                model.characterManager.getCharacterList(),
-                model.characterManager.getAssociationData(),
-                view.returns()
-        );
+        refreshCharacterList();
     }
 
     private void selectchar() {
@@ -347,7 +373,7 @@ public class MainController {
     /**
      * Updates the title of the application window.
      * Displays the name of the project, followed by an asterisk, if
-     * there are any unsaved changes.
+     * there are any unsaved changes, and the progress of a save in progress.
      */
     private void refreshTitleBar() {
         String title = "Writer's Studio - ";
@@ -360,6 +386,9 @@ public class MainController {
         if (model.hasUnsavedChanges())
             title += "*";
 
+        if (saveProgress >= 0.0)
+            title += " (saving " + (int) (saveProgress * 100) + "%)";
+
         view.getMainStage().setTitle(title);
     }
 
@@ -380,6 +409,7 @@ public class MainController {
                 return false;
             }
         }
+        model.discardRecovery();
         return true;
     }
 
@@ -391,8 +421,10 @@ public class MainController {
 
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open Project File");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Writer's Studio Project File", "*.wsp")
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Writer's Studio Project File", "*.wsp", "*" + BinaryCodec.EXTENSION, "*" + CompressedCodec.EXTENSION),
+                new FileChooser.ExtensionFilter("Writer's Studio Binary Project File", "*" + BinaryCodec.EXTENSION),
+                new FileChooser.ExtensionFilter("Writer's Studio Compressed Project File", "*" + CompressedCodec.EXTENSION)
         );
 
         File directory = Paths.get(userPrefs.projectDir).toFile();
@@ -417,6 +449,9 @@ public class MainController {
             refreshCharacterList();
             refreshViewChapters();
             refreshTitleBar();
+
+            if (model.hasRecovery(file))
+                offerRecovery(Project.recoveryFileOf(file));
         } catch (Exception e) {
             e.printStackTrace();
             // TODO popup error dialog, error reading file.
@@ -425,6 +460,7 @@ public class MainController {
 
     /**
      * Opens the file chooser if no project file is in use, then saves the current project to that file.
+     * The file is written in the background, and its progress is shown in the title bar.
      */
     private void saveProject() {
         if (model.getProjectFile() == null) {
@@ -433,8 +469,10 @@ public class MainController {
 
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Save Project File");
-            fileChooser.getExtensionFilters().add(
-                    new FileChooser.ExtensionFilter("Writer's Studio Project File", "*.wsp")
+            fileChooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("Writer's Studio Project File", "*.wsp"),
+                    new FileChooser.ExtensionFilter("Writer's Studio Binary Project File", "*" + BinaryCodec.EXTENSION),
+                    new FileChooser.ExtensionFilter("Writer's Studio Compressed Project File", "*" + CompressedCodec.EXTENSION)
             );
 
             File directory = Paths.get(userPrefs.projectDir).toFile();
@@ -450,10 +488,24 @@ public class MainController {
             }
         }
         try {
-            model.saveProject();
+            saveProgress = 0.0;
             refreshTitleBar();
+
+            model.saveProjectAsync(progress -> Platform.runLater(() -> {
+                if (saveProgress >= 0.0) {
+                    saveProgress = progress;
+                    refreshTitleBar();
+                }
+            })).whenComplete((result, ex) -> Platform.runLater(() -> {
+                if (ex != null)
+                    ex.printStackTrace();
+                saveProgress = -1.0;
+                refreshTitleBar();
+            }));
         } catch (IOException | XMLStreamException e) {
             e.printStackTrace();
+            saveProgress = -1.0;
+            refreshTitleBar();
         }
     }
 
@@ -491,11 +543,7 @@ public class MainController {
                         view.getEditCharacterPanel().getCharacterEvent(),
                         x, y
                 );
-                view.updateCharacterList(
-                        model.characterManager.getCharacterList(),
-                        model.characterManager.getAssociationData(),
-                        view.returns()
-                );
+                refreshCharacterList();
 
                 if (newCharacterUID == -1L) {
                     // TODO Popup warning dialog, stating that either name or description has unsupported format
@@ -622,13 +670,7 @@ public class MainController {
      * @author Jim Andersson
      */
     private void deleteCharacter(long uid) {
-        Long[] associations = view.characterChart.getAssociationsByCharacter(uid);
-        if (associations != null) {
-            for (int i = 0; i < associations.length; i++)
-                model.characterManager.deleteAssociation(associations[i]);
-        }
-
-        model.characterManager.deleteCharacter(uid);
+        model.cascade.deleteCharacter(uid);
         refreshTitleBar();
     }
 
@@ -655,7 +697,7 @@ public class MainController {
                     view.getEditAssociationDialog().getAssociationLabel(), startX, startY
             );
 
-            view.updateCharacterList(model.characterManager.getCharacterList(), model.characterManager.getAssociationData(), view.returns());
+            refreshCharacterList();
             view.startCharacterAssociationDrag(assocUID, false);
             refreshTitleBar();
         }
@@ -692,12 +734,22 @@ public class MainController {
      * @author Jim Andersson
      */
     private void refreshCharacterList() {
+        EventListObject event = view.returns();
+        refreshCharacterList(event == null ? new long[0] : model.characterManager.getCharactersInEvent(event.getUid()));
+    }
+
+    /**
+     * Updates the character list view, and shows the given characters in the character chart.
+     * The characters are looked up by UID, so only they and their associations are read from the model.
+     *
+     * @param chartCharacterUIDs the UIDs of the characters to show in the chart
+     */
+    private void refreshCharacterList(long[] chartCharacterUIDs) {
         view.updateCharacterList(
                 model.characterManager.getCharacterList(),
-                model.characterManager.getAssociationData(),
-                view.returns()
+                model.characterManager.getCharacterList(chartCharacterUIDs),
+                model.characterManager.getAssociationDataOfCharacters(chartCharacterUIDs)
         );
-
     }
 
     private void updateModelAssociationWithView(long assocUID) {
@@ -730,7 +782,8 @@ public class MainController {
 
                 case MainView.ID_BTN_EVENT_DELETE:
                     if (eventUID == -1) return;
-                    model.eventManager.removeEvent(eventUID);
+                    model.cascade.deleteEvent(eventUID, CascadeDelete.Policy.DETACH);
+                    refreshCharacterList();
                     refreshViewEvents();
                     refreshTitleBar();
                     break;
@@ -751,7 +804,8 @@ public class MainController {
 
                 case MainView.ID_BTN_CHAPTER_DELETE:
                     if (chapterUID == -1) return;
-                    model.chapterManager.removeChapter(chapterUID);
+                    model.cascade.deleteChapter(chapterUID, CascadeDelete.Policy.DETACH);
+                    refreshViewEvents();
                     refreshViewChapters();
                     refreshTitleBar();
                     break;
@@ -815,7 +869,8 @@ public class MainController {
                 case MainView.ID_TIMELINE_REMOVE_EVENT:
                     if (view.getTimelineContextMenu().getUserData() instanceof Long)
                         sourceUID = (Long) view.getTimelineContextMenu().getUserData();
-                    model.eventManager.removeEvent(sourceUID);
+                    model.cascade.deleteEvent(sourceUID, CascadeDelete.Policy.DETACH);
+                    refreshCharacterList();
                     refreshViewEvents();
                     refreshTitleBar();
                     break;
@@ -989,9 +1044,8 @@ public class MainController {
 
             model.chapterManager.getChapter(view.getSelectedChapterUID());
 
-                Chapter c = model.chapterManager.getChapter(view.getLeftChapterPane().getList().getSelectionModel().getSelectedItem().getUid());
-                System.out.println(c);
-                view.updateCharacterList(model.characterManager.getCharacterList(), model.characterManager.getAssociationData(), c);
+                long selectedChapterUID = view.getLeftChapterPane().getList().getSelectionModel().getSelectedItem().getUid();
+                refreshCharacterList(model.getCharactersInChapter(selectedChapterUID));
 
 
         }
@@ -1120,7 +1174,7 @@ public class MainController {
                 showEvents(view.getSelectedEventUID());
             }
 
-            view.updateCharacterList(model.characterManager.getCharacterList(), model.characterManager.getAssociationData(), view.returns());
+            refreshCharacterList();
         }
     }
 
@@ -1133,7 +1187,7 @@ public class MainController {
                 showChapters(view.getSelectedChapterUID());
             }
 
-            //view.updateCharacterList(model.characterManager.getCharacterList(), model.characterManager.getAssociationData(), view.returns());
+            //refreshCharacterList();
         }
 
     }
@@ -0,0 +1,563 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reads and writes the binary project format (wspb-files).
+ * <p>
+ * The file starts with a header, followed by a table of sections. Each entry in the table
+ * holds the ID, offset and length of a section, which allows each section to be located without
+ * reading the ones before it. All numbers are stored in binary (big-endian), so loading does not
+ * need to parse any text. Strings are stored as a byte length followed by UTF-8 bytes, where a
+ * length of -1 denotes null.
+ * <p>
+ * Layout:
+ * <pre>
+ * int    magic ("WSPB")
+ * short  version
+ * short  section count
+ * {int id, long offset, long length} * section count
+ * sections...
+ * </pre>
+ * When reading from a file, {@link BinaryCodec#read(File, Project)} maps the file into memory
+ * using {@link FileChannel#map(FileChannel.MapMode, long, long)}. Unless disabled through
+ * {@link BinaryCodec#setLazyDescriptions(boolean)}, the descriptions of events and characters are then
+ * left in the mapped file as {@link LazyText}, and only decoded once they are accessed.
+ * <p>
+ * While descriptions are left in the mapped file, the file must not be written in place, or they would change
+ * under the project. {@link Project} replaces such a file with a new one instead. Windows does not allow a mapped
+ * file to be replaced, so descriptions are never loaded lazily there.
+ *
+ * @author Hazem Elkhalil
+ */
+public class BinaryCodec implements SectionedCodec {
+
+    public static final String EXTENSION = ".wspb";
+    public static final int PARALLEL_WRITE_THRESHOLD = 2000;
+
+    private static final int MAGIC = 0x57535042; // "WSPB"
+    private static final short VERSION = 1;
+
+    private static final int SECTION_PROJECT = 0;
+    private static final int SECTION_UIDS = 1;
+    private static final int SECTION_CHAPTERS = 2;
+    private static final int SECTION_CHAPTER_ORDER = 3;
+    private static final int SECTION_EVENTS = 4;
+    private static final int SECTION_EVENT_ORDER = 5;
+    private static final int SECTION_CHARACTERS = 6;
+    private static final int SECTION_ASSOCIATIONS = 7;
+    private static final int SECTION_COUNT = 8;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int TABLE_ENTRY_SIZE = 20;
+
+    private static final boolean CAN_REPLACE_MAPPED_FILES =
+            !System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    private boolean lazyDescriptions = CAN_REPLACE_MAPPED_FILES;
+
+    /**
+     * Sets whether descriptions are loaded lazily when reading from a file. See {@link LazyText}.
+     * Ignored on Windows, where a file cannot be replaced while it is mapped.
+     *
+     * @param lazy true to load descriptions on first access
+     */
+    public void setLazyDescriptions(boolean lazy) {
+        lazyDescriptions = lazy && CAN_REPLACE_MAPPED_FILES;
+    }
+
+    /**
+     * Returns whether descriptions are loaded lazily, ie. left in the mapped file.
+     *
+     * @return true if descriptions are loaded on first access
+     */
+    public boolean isLazyDescriptions() {
+        return lazyDescriptions;
+    }
+
+    /**
+     * Returns whether the given file uses the binary project format, judging by its extension.
+     *
+     * @param file the file to check
+     * @return true if the file name ends with {@link BinaryCodec#EXTENSION}
+     */
+    public static boolean isBinaryFile(File file) {
+        return file != null && file.getName().toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Reads the given file by mapping it into memory.
+     *
+     * @param file    the wspb-file to read
+     * @param project the project to load the data into
+     * @throws IOException if the file could not be read, or is not a valid wspb-file
+     */
+    public void read(File file, Project project) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), project, lazyDescriptions);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Prefer {@link BinaryCodec#read(File, Project)} when reading from a file, since this
+     * reads the whole stream onto the heap first.
+     */
+    @Override
+    public void read(InputStream in, Project project) throws IOException {
+        decode(ByteBuffer.wrap(in.readAllBytes()), project, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(OutputStream out, ProjectSnapshot snapshot) throws IOException {
+        byte[][] sections = new byte[SECTION_COUNT][];
+        for (int i = 0; i < SECTION_COUNT; i++)
+            sections[i] = encodeSection(i, snapshot);
+
+        out.write(encodeHeader(sections).array());
+        for (int i = 0; i < SECTION_COUNT; i++)
+            out.write(sections[i]);
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sections are rendered by {@link BinaryCodec#render(ProjectSnapshot)},
+     * then written with a single gathering write.
+     */
+    @Override
+    public void write(FileChannel channel, ProjectSnapshot snapshot) throws IOException {
+        ProjectCodec.writeFully(channel, render(snapshot));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The header and section table are rendered as the first section. On machines with more than one core,
+     * the sections of projects with at least {@link BinaryCodec#PARALLEL_WRITE_THRESHOLD} entities are
+     * encoded in parallel.
+     */
+    @Override
+    public ByteBuffer[] render(ProjectSnapshot snapshot) throws IOException {
+        byte[][] sections = new byte[SECTION_COUNT][];
+        if (snapshot.size() >= PARALLEL_WRITE_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            List<CompletableFuture<byte[]>> tasks = new ArrayList<>();
+            for (int i = 0; i < SECTION_COUNT; i++) {
+                int section = i;
+                tasks.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return encodeSection(section, snapshot);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }));
+            }
+            try {
+                for (int i = 0; i < SECTION_COUNT; i++)
+                    sections[i] = tasks.get(i).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw e;
+            }
+        } else {
+            for (int i = 0; i < SECTION_COUNT; i++)
+                sections[i] = encodeSection(i, snapshot);
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[SECTION_COUNT + 1];
+        buffers[0] = encodeHeader(sections);
+        for (int i = 0; i < SECTION_COUNT; i++)
+            buffers[i + 1] = ByteBuffer.wrap(sections[i]);
+        return buffers;
+    }
+
+    private ByteBuffer encodeHeader(byte[][] sections) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + TABLE_ENTRY_SIZE * SECTION_COUNT);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) SECTION_COUNT);
+
+        long offset = header.capacity();
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            header.putInt(i);
+            header.putLong(offset);
+            header.putLong(sections[i].length);
+            offset += sections[i].length;
+        }
+        return header.flip();
+    }
+
+    private byte[] encodeSection(int section, ProjectSnapshot snapshot) throws IOException {
+        switch (section) {
+            case SECTION_PROJECT:
+                return encodeProject(snapshot);
+            case SECTION_UIDS:
+                return encodeUIDs(snapshot);
+            case SECTION_CHAPTERS:
+                return encodeChapters(snapshot);
+            case SECTION_CHAPTER_ORDER:
+                return encodeOrderLists(snapshot.chapterOrderLists);
+            case SECTION_EVENTS:
+                return encodeEvents(snapshot);
+            case SECTION_EVENT_ORDER:
+                return encodeOrderLists(snapshot.eventOrderLists);
+            case SECTION_CHARACTERS:
+                return encodeCharacters(snapshot);
+            case SECTION_ASSOCIATIONS:
+                return encodeAssociations(snapshot);
+            default:
+                throw new IllegalArgumentException("Unknown section: " + section);
+        }
+    }
+
+    /**
+     * Decodes the header and section table, then each of the sections in dependency order.
+     *
+     * @param buf     the contents of the file
+     * @param project the project to load the data into
+     * @param lazy    whether descriptions should be left in the buffer, see {@link LazyText}
+     * @throws IOException if the data is not a valid wspb-file
+     */
+    private void decode(ByteBuffer buf, Project project, boolean lazy) throws IOException {
+        if (buf.remaining() < HEADER_SIZE || buf.getInt() != MAGIC)
+            throw new IOException("Not a Writer's Studio binary project file");
+
+        short version = buf.getShort();
+        if (version != VERSION)
+            throw new IOException("Unsupported binary project file version: " + version);
+
+        int count = buf.getShort();
+        ByteBuffer[] sections = new ByteBuffer[SECTION_COUNT];
+        for (int i = 0; i < count; i++) {
+            int id = buf.getInt();
+            long offset = buf.getLong();
+            long length = buf.getLong();
+
+            if (id < 0 || id >= SECTION_COUNT) // Unknown section, written by a newer version
+                continue;
+            if (offset < 0 || length < 0 || offset + length > buf.limit())
+                throw new IOException("Corrupt section table in binary project file");
+
+            sections[id] = buf.duplicate()
+                    .position((int) offset)
+                    .limit((int) (offset + length))
+                    .slice();
+        }
+
+        if (sections[SECTION_PROJECT] != null)
+            decodeProject(sections[SECTION_PROJECT], project);
+        if (sections[SECTION_UIDS] != null)
+            decodeUIDs(sections[SECTION_UIDS], project);
+        if (sections[SECTION_CHAPTERS] != null)
+            decodeChapters(sections[SECTION_CHAPTERS], project);
+        if (sections[SECTION_CHAPTER_ORDER] != null)
+            decodeOrderLists(sections[SECTION_CHAPTER_ORDER], project, false);
+        if (sections[SECTION_EVENTS] != null)
+            decodeEvents(sections[SECTION_EVENTS], project, lazy);
+        if (sections[SECTION_EVENT_ORDER] != null)
+            decodeOrderLists(sections[SECTION_EVENT_ORDER], project, true);
+        if (sections[SECTION_CHARACTERS] != null)
+            decodeCharacters(sections[SECTION_CHARACTERS], project, lazy);
+        if (sections[SECTION_ASSOCIATIONS] != null)
+            decodeAssociations(sections[SECTION_ASSOCIATIONS], project);
+    }
+
+    ////// ENCODING ////////////////////////////////////////////////////////////
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a text like {@link BinaryCodec#writeString(DataOutputStream, String)}. The bytes of a {@link LazyText}
+     * that has not been decoded are copied as they are, without decoding them.
+     */
+    static void writeText(DataOutputStream out, CharSequence s) throws IOException {
+        ByteBuffer bytes = s instanceof LazyText ? ((LazyText) s).getBytes() : null;
+        if (bytes == null) {
+            writeString(out, s == null ? null : s.toString());
+            return;
+        }
+        out.writeInt(bytes.remaining());
+        if (bytes.hasArray()) {
+            out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } else {
+            byte[] chunk = new byte[Math.min(bytes.remaining(), 8192)];
+            while (bytes.hasRemaining()) {
+                int n = Math.min(chunk.length, bytes.remaining());
+                bytes.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+    }
+
+    private byte[] encodeProject(ProjectSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, snapshot.projectName);
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeUIDs(ProjectSnapshot snapshot) throws IOException {
+        long[] uids = snapshot.uids;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + uids.length * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(uids.length);
+        for (long uid : uids)
+            out.writeLong(uid);
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeChapters(ProjectSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(snapshot.chapters.size());
+        for (ProjectSnapshot.ChapterData chapter : snapshot.chapters) {
+            out.writeLong(chapter.uid);
+            writeString(out, chapter.name);
+            writeString(out, chapter.description);
+            writeString(out, chapter.color);
+            snapshot.advance();
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeOrderLists(List<long[]> lists) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(lists.size());
+        for (long[] list : lists) {
+            out.writeInt(list.length);
+            for (long uid : list)
+                out.writeLong(uid);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeEvents(ProjectSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(snapshot.events.size());
+        for (ProjectSnapshot.EventData event : snapshot.events) {
+            out.writeLong(event.uid);
+            writeString(out, event.name);
+            writeText(out, event.description);
+            writeString(out, event.color);
+            out.writeBoolean(event.chapter != null);
+            if (event.chapter != null) {
+                out.writeLong(event.chapter.getUid());
+                writeString(out, event.chapter.getTitle());
+                writeString(out, event.chapter.getColor());
+            }
+            snapshot.advance();
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeCharacters(ProjectSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(snapshot.characters.size());
+        for (ProjectSnapshot.CharacterData character : snapshot.characters) {
+            out.writeLong(character.uid);
+            writeString(out, character.name);
+            writeText(out, character.description);
+            out.writeInt(character.age);
+            out.writeDouble(character.chartX);
+            out.writeDouble(character.chartY);
+            out.writeBoolean(character.event != null);
+            if (character.event != null) {
+                out.writeLong(character.event.getUid());
+                writeString(out, character.event.getTitle());
+            }
+            snapshot.advance();
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeAssociations(ProjectSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(snapshot.associations.size());
+        for (ProjectSnapshot.AssociationData assoc : snapshot.associations) {
+            out.writeLong(assoc.uid);
+            out.writeLong(assoc.startUID);
+            out.writeLong(assoc.endUID);
+            out.writeDouble(assoc.startX);
+            out.writeDouble(assoc.startY);
+            out.writeDouble(assoc.endX);
+            out.writeDouble(assoc.endY);
+            writeString(out, assoc.label);
+            out.writeDouble(assoc.labelX);
+            out.writeDouble(assoc.labelY);
+            snapshot.advance();
+        }
+        return bytes.toByteArray();
+    }
+
+    ////// DECODING ////////////////////////////////////////////////////////////
+
+    static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0)
+            return null;
+
+        String s;
+        if (buf.hasArray()) {
+            s = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+            buf.position(buf.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buf.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    /**
+     * Reads a string like {@link BinaryCodec#readString(ByteBuffer)}, but without decoding it.
+     *
+     * @param buf the buffer to read from, which must not be modified afterwards
+     * @return the string, or null
+     */
+    static LazyText readLazyText(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0)
+            return null;
+
+        int start = buf.position();
+        buf.position(start + length);
+        return new LazyText(buf.duplicate().position(start).limit(start + length).slice());
+    }
+
+    private void decodeProject(ByteBuffer buf, Project project) {
+        String name = readString(buf);
+        if (name != null)
+            project.setProjectName(name);
+    }
+
+    private void decodeUIDs(ByteBuffer buf, Project project) {
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++)
+            project.uidManager.addUID(buf.getLong());
+    }
+
+    private void decodeChapters(ByteBuffer buf, Project project) {
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            long uid = buf.getLong();
+            String name = readString(buf);
+            String description = readString(buf);
+            String color = readString(buf);
+            project.chapterManager.addChapter(uid, name, description, color);
+        }
+    }
+
+    private void decodeOrderLists(ByteBuffer buf, Project project, boolean events) {
+        int lists = buf.getInt();
+        for (int i = 0; i < lists; i++) {
+            int length = buf.getInt();
+            LinkedList<Long> orderList = new LinkedList<>();
+            for (int j = 0; j < length; j++)
+                orderList.add(buf.getLong());
+
+            if (events)
+                project.eventManager.addOrderList(orderList);
+            else
+                project.chapterManager.addOrderList(orderList);
+        }
+    }
+
+    private void decodeEvents(ByteBuffer buf, Project project, boolean lazy) {
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            long uid = buf.getLong();
+            String name = readString(buf);
+            CharSequence description = lazy ? readLazyText(buf) : readString(buf);
+            readString(buf); // The color of the event, which is the color of its chapter
+
+            ChapterListObject chapter = null;
+            if (buf.get() != 0) {
+                long chapterUID = buf.getLong();
+                String chapterTitle = readString(buf);
+                String chapterColor = readString(buf);
+                chapter = new ChapterListObject(chapterTitle, chapterUID, chapterColor);
+            }
+
+            project.eventManager.addEvent(uid, name, description, chapter);
+        }
+    }
+
+    private void decodeCharacters(ByteBuffer buf, Project project, boolean lazy) {
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            long uid = buf.getLong();
+            String name = readString(buf);
+            CharSequence description = lazy ? readLazyText(buf) : readString(buf);
+            int age = buf.getInt();
+            double chartX = buf.getDouble();
+            double chartY = buf.getDouble();
+
+            EventListObject event = null;
+            if (buf.get() != 0) {
+                long eventUID = buf.getLong();
+                event = new EventListObject(readString(buf), eventUID);
+            }
+
+            project.characterManager.addCharacter(uid, name, description, age, event, chartX, chartY);
+        }
+    }
+
+    private void decodeAssociations(ByteBuffer buf, Project project) {
+        int count = buf.getInt();
+        for (int i = 0; i < count; i++) {
+            long uid = buf.getLong();
+            long startUID = buf.getLong();
+            long endUID = buf.getLong();
+            double sX = buf.getDouble();
+            double sY = buf.getDouble();
+            double eX = buf.getDouble();
+            double eY = buf.getDouble();
+            String label = readString(buf);
+            double lblX = buf.getDouble();
+            double lblY = buf.getDouble();
+            project.characterManager.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, label, lblX, lblY);
+        }
+    }
+}
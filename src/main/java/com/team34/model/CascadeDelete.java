@@ -0,0 +1,128 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterManager;
+import com.team34.model.character.CharacterManager;
+import com.team34.model.event.EventManager;
+
+/**
+ * Deletes chapters, events and characters together with the entities that depend on them, so that no entity is left
+ * referring to one that no longer exists.
+ * <p>
+ * The dependents are found through the reverse indexes of the managers, see {@link ReverseIndex}, so deleting
+ * an entity takes time proportional to the number of its dependents. Each dependent is either detached from
+ * the deleted entity or deleted along with it, as chosen by a {@link Policy}. The whole cascade is made in a
+ * single batch of changes, see {@link ChangeNotifier#beginBatch()}, so that listeners are told of it once,
+ * however many entities it touches. Each change is still recorded in the journal on its own.
+ * <p>
+ * The dependents are:
+ * <ul>
+ *  <li>the events of a chapter, which are detached or deleted
+ *  <li>the characters of an event, which are detached or deleted
+ *  <li>the associations of a character, which are always deleted, since an association needs both its characters
+ * </ul>
+ *
+ * @author Hazem Elkhalil
+ */
+public final class CascadeDelete {
+
+    /**
+     * What to do with the dependents of a deleted entity.
+     */
+    public enum Policy {
+        /**
+         * The dependents are kept, but no longer refer to the deleted entity.
+         */
+        DETACH,
+        /**
+         * The dependents are deleted, along with their own dependents.
+         */
+        DELETE
+    }
+
+    private final ChapterManager chapterManager;
+    private final EventManager eventManager;
+    private final CharacterManager characterManager;
+    private final ChangeNotifier changes;
+
+    /**
+     * Constructs the cascade over the managers of a project, which all publish through the given notifier.
+     *
+     * @param chapterManager   the chapter manager
+     * @param eventManager     the event manager
+     * @param characterManager the character manager
+     * @param changes          the notifier shared by the managers
+     */
+    public CascadeDelete(ChapterManager chapterManager, EventManager eventManager,
+                         CharacterManager characterManager, ChangeNotifier changes) {
+        this.chapterManager = chapterManager;
+        this.eventManager = eventManager;
+        this.characterManager = characterManager;
+        this.changes = changes;
+    }
+
+    /**
+     * Deletes a chapter. The characters of deleted events are detached from them.
+     *
+     * @param chapterUID the UID of the chapter
+     * @param events     what to do with the events of the chapter
+     */
+    public void deleteChapter(long chapterUID, Policy events) {
+        changes.beginBatch();
+        try {
+            for (long eventUID : eventManager.getEventsInChapter(chapterUID)) {
+                if (events == Policy.DELETE)
+                    removeEvent(eventUID, Policy.DETACH);
+                else
+                    eventManager.editEventChapterListObject(eventUID);
+            }
+            chapterManager.removeChapter(chapterUID);
+        } finally {
+            changes.endBatch();
+        }
+    }
+
+    /**
+     * Deletes an event.
+     *
+     * @param eventUID   the UID of the event
+     * @param characters what to do with the characters of the event
+     */
+    public void deleteEvent(long eventUID, Policy characters) {
+        changes.beginBatch();
+        try {
+            removeEvent(eventUID, characters);
+        } finally {
+            changes.endBatch();
+        }
+    }
+
+    /**
+     * Deletes a character and its associations.
+     *
+     * @param characterUID the UID of the character
+     */
+    public void deleteCharacter(long characterUID) {
+        changes.beginBatch();
+        try {
+            removeCharacter(characterUID);
+        } finally {
+            changes.endBatch();
+        }
+    }
+
+    private void removeEvent(long eventUID, Policy characters) {
+        for (long characterUID : characterManager.getCharactersInEvent(eventUID)) {
+            if (characters == Policy.DELETE)
+                removeCharacter(characterUID);
+            else
+                characterManager.setCharacterEvent(characterUID, null);
+        }
+        eventManager.removeEvent(eventUID);
+    }
+
+    private void removeCharacter(long characterUID) {
+        for (long assocUID : characterManager.getAssociationsOf(characterUID))
+            characterManager.deleteAssociation(assocUID);
+        characterManager.deleteCharacter(characterUID);
+    }
+}
@@ -0,0 +1,139 @@
+package com.team34.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Publishes the changes made by the managers to the registered {@link ModelChange.Listener}s.
+ * <p>
+ * Each change is published as soon as it is made, unless a batch has been started with
+ * {@link ChangeNotifier#beginBatch()}, in which case the changes are collected and published together
+ * when the batch ends. Batches may be nested, in which case the changes are published when the outermost ends.
+ * <p>
+ * A {@link Project} shares one notifier between its managers, so that a listener hears of the changes
+ * made to every type of entity, and a batch may span several managers. No change is created while
+ * there are no listeners.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class ChangeNotifier {
+
+    private final ArrayList<ModelChange.Listener> listeners;
+    private final ArrayList<ModelChange> pending;
+    private int batchDepth;
+
+    /**
+     * Constructs a notifier without listeners.
+     */
+    public ChangeNotifier() {
+        listeners = new ArrayList<>();
+        pending = new ArrayList<>();
+        batchDepth = 0;
+    }
+
+    /**
+     * Registers a listener, which is called after each change, or each batch of changes.
+     *
+     * @param listener the listener
+     */
+    public void addListener(ModelChange.Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(ModelChange.Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts collecting changes, rather than publishing each of them. Must be followed by
+     * {@link ChangeNotifier#endBatch()}, preferably in a finally block.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch started with {@link ChangeNotifier#beginBatch()}. If it is the outermost batch,
+     * the collected changes are published to the listeners in a single call.
+     */
+    public void endBatch() {
+        if (batchDepth == 0)
+            throw new IllegalStateException("No batch has been started");
+        if (--batchDepth == 0)
+            flush();
+    }
+
+    /**
+     * Publishes a change of a single entity.
+     *
+     * @param kind the kind of change
+     * @param type the type of the entity
+     * @param uid  the UID of the entity
+     */
+    public void publish(ModelChange.Kind kind, EntityType type, long uid) {
+        if (listeners.isEmpty())
+            return;
+
+        if (!pending.isEmpty()) {
+            ModelChange last = pending.get(pending.size() - 1);
+            if (last.canMerge(kind, type, -1)) {
+                last.merge(uid);
+                flushUnlessBatched();
+                return;
+            }
+        }
+        pending.add(new ModelChange(kind, type, -1, uid));
+        flushUnlessBatched();
+    }
+
+    /**
+     * Publishes a change of several entities.
+     *
+     * @param kind the kind of change
+     * @param type the type of the entities
+     * @param uids the UIDs of the entities, which must not be modified afterwards
+     */
+    public void publish(ModelChange.Kind kind, EntityType type, long[] uids) {
+        if (listeners.isEmpty() || uids.length == 0)
+            return;
+
+        pending.add(new ModelChange(kind, type, -1, uids));
+        flushUnlessBatched();
+    }
+
+    /**
+     * Publishes a change to an order list.
+     *
+     * @param type      the type of the entities in the order list
+     * @param orderList the index of the order list
+     * @param uids      the UIDs of the moved entities, or none if the order list is new
+     */
+    public void publishReordered(EntityType type, int orderList, long... uids) {
+        if (listeners.isEmpty())
+            return;
+
+        pending.add(new ModelChange(ModelChange.Kind.REORDERED, type, orderList, uids));
+        flushUnlessBatched();
+    }
+
+    private void flushUnlessBatched() {
+        if (batchDepth == 0)
+            flush();
+    }
+
+    private void flush() {
+        if (pending.isEmpty())
+            return;
+
+        List<ModelChange> changes = Collections.unmodifiableList(new ArrayList<>(pending));
+        pending.clear();
+        for (ModelChange.Listener listener : listeners.toArray(new ModelChange.Listener[0]))
+            listener.modelChanged(changes);
+    }
+}
@@ -0,0 +1,95 @@
+package com.team34.model;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes compressed project files (wspz-files).
+ * <p>
+ * A compressed project file is the output of another codec, usually the {@link XMLStreamCodec},
+ * compressed as a zlib stream. The data is compressed and decompressed while it is being written and read,
+ * using a {@link Deflater} and an {@link Inflater}, so the uncompressed file is never held in memory.
+ * Since the XML format repeats the same tags and attribute names for every entity, the files shrink
+ * considerably, which makes saving and loading faster on slow disks and network drives.
+ *
+ * @author Hazem Elkhalil
+ */
+public class CompressedCodec implements ProjectCodec {
+
+    public static final String EXTENSION = ".wspz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ProjectCodec codec;
+    private int level;
+
+    /**
+     * Constructs a codec which compresses the output of the given codec, at the default compression level.
+     * The given codec should read its input as a stream, rather than reading all of it before parsing.
+     *
+     * @param codec the codec of the uncompressed data
+     */
+    public CompressedCodec(ProjectCodec codec) {
+        this.codec = codec;
+        this.level = Deflater.DEFAULT_COMPRESSION;
+    }
+
+    /**
+     * Returns whether the given file is a compressed project file, judging by its extension.
+     *
+     * @param file the file to check
+     * @return true if the file name ends with {@link CompressedCodec#EXTENSION}
+     */
+    public static boolean isCompressedFile(File file) {
+        return file != null && file.getName().toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Sets the level of compression used when writing, from {@link Deflater#BEST_SPEED} to
+     * {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}.
+     *
+     * @param level the compression level
+     * @throws IllegalArgumentException if the level is out of range
+     */
+    public void setLevel(int level) {
+        if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+
+        this.level = level;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void read(InputStream in, Project project) throws IOException, XMLStreamException {
+        Inflater inflater = new Inflater();
+        try {
+            codec.read(new InflaterInputStream(in, inflater, BUFFER_SIZE), project);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(OutputStream out, ProjectSnapshot snapshot) throws IOException, XMLStreamException {
+        Deflater deflater = new Deflater(level);
+        try {
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            codec.write(deflated, snapshot);
+            deflated.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+}
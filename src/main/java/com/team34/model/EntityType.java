@@ -0,0 +1,34 @@
+package com.team34.model;
+
+/**
+ * The types of entity that a project holds, each of which is identified by a UID.
+ * The type of entity is encoded in each UID created by the {@link UIDManager}, see {@link UIDManager#typeOf(long)}.
+ *
+ * @author Hazem Elkhalil
+ */
+public enum EntityType {
+    CHAPTER,
+    EVENT,
+    CHARACTER,
+    ASSOCIATION;
+
+    /**
+     * Returns the tag stored in the UIDs of this type, from 1 and up. The tag 0 is never used.
+     *
+     * @return the tag
+     */
+    int tag() {
+        return ordinal() + 1;
+    }
+
+    /**
+     * Returns the type with the given tag.
+     *
+     * @param tag the tag, see {@link EntityType#tag()}
+     * @return the type, or null if there is no type with the tag
+     */
+    static EntityType ofTag(int tag) {
+        EntityType[] types = values();
+        return tag >= 1 && tag <= types.length ? types[tag - 1] : null;
+    }
+}
@@ -0,0 +1,132 @@
+package com.team34.model;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The sections of a project file as they were last written, see {@link SectionedCodec}.
+ * <p>
+ * Holds the length and a SHA-256 hash of each section, together with a stamp of the file (its length and time of
+ * last modification) taken right after it was written. As long as the stamp matches, the file still holds the
+ * same sections, so a save only has to rewrite the file from the first section whose hash has changed,
+ * or nothing at all.
+ * <p>
+ * A layout without sections only holds the stamp, for files that were loaded rather than written.
+ *
+ * @author Hazem Elkhalil
+ */
+final class FileLayout {
+
+    private final File file;
+    private final long fileLength;
+    private final long fileModified;
+    private final long[] lengths;
+    private final byte[][] hashes;
+
+    private FileLayout(File file, long[] lengths, byte[][] hashes) {
+        this.file = file;
+        this.fileLength = file == null ? -1L : file.length();
+        this.fileModified = file == null ? -1L : file.lastModified();
+        this.lengths = lengths;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Hashes the given sections. The positions of the buffers are left unchanged.
+     * The returned layout is not stamped until {@link FileLayout#stamp(File)} is called.
+     *
+     * @param sections the rendered sections
+     * @return the layout of the sections
+     */
+    static FileLayout of(ByteBuffer[] sections) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every Java platform supports SHA-256
+        }
+
+        long[] lengths = new long[sections.length];
+        byte[][] hashes = new byte[sections.length][];
+        for (int i = 0; i < sections.length; i++) {
+            lengths[i] = sections[i].remaining();
+            digest.update(sections[i].duplicate());
+            hashes[i] = digest.digest();
+        }
+        return new FileLayout(null, lengths, hashes);
+    }
+
+    /**
+     * Returns a layout which only holds the stamp of the given file.
+     *
+     * @param file the project file
+     * @return the layout
+     */
+    static FileLayout stampOnly(File file) {
+        return new FileLayout(file, null, null);
+    }
+
+    /**
+     * Returns this layout, stamped with the current state of the given file.
+     *
+     * @param file the file the sections were written to
+     * @return the stamped layout
+     */
+    FileLayout stamp(File file) {
+        return new FileLayout(file, lengths, hashes);
+    }
+
+    /**
+     * Returns whether the given file is still the same as when this layout was stamped.
+     *
+     * @param other the project file
+     * @return true if the file has not been written since
+     */
+    boolean matches(File other) {
+        return file != null && file.equals(other) && other.exists()
+                && other.length() == fileLength
+                && other.lastModified() == fileModified;
+    }
+
+    /**
+     * Returns the index of the first section of this layout which differs from the previous layout.
+     *
+     * @param previous the layout of the file as it is, or null if unknown
+     * @return the index of the first changed section, or the number of sections if none have changed
+     */
+    int firstDifference(FileLayout previous) {
+        if (previous == null || previous.hashes == null || previous.lengths.length != lengths.length)
+            return 0;
+
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] != previous.lengths[i] || !Arrays.equals(hashes[i], previous.hashes[i]))
+                return i;
+        }
+        return lengths.length;
+    }
+
+    /**
+     * Returns the offset of the given section in the file.
+     *
+     * @param section the index of the section
+     * @return the offset in bytes
+     */
+    long offsetOf(int section) {
+        long offset = 0;
+        for (int i = 0; i < section; i++)
+            offset += lengths[i];
+        return offset;
+    }
+
+    /**
+     * Returns the number of sections.
+     *
+     * @return the number of sections
+     */
+    int sectionCount() {
+        return lengths.length;
+    }
+}
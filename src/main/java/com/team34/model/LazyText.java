@@ -0,0 +1,97 @@
+package com.team34.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A piece of UTF-8 text which is only decoded the first time it is needed.
+ * <p>
+ * Used by {@link BinaryCodec} to load descriptions of events and characters, without copying them
+ * out of the memory mapped project file. The decoded text is cached, after which the bytes are released.
+ * <p>
+ * A {@link ProjectSnapshot} holds the texts of the project as they are, so that saving does not decode them on
+ * the JavaFX Application Thread. The thread writing the snapshot copies the bytes, see {@link LazyText#getBytes()},
+ * or decodes them without caching the result, see {@link LazyText#decode()}. The methods are synchronized,
+ * since a text may be accessed by both threads at once.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class LazyText implements CharSequence {
+
+    private ByteBuffer bytes;
+    private String text;
+
+    /**
+     * Constructs the text from the given bytes, from the position to the limit of the buffer.
+     * The buffer must not be modified afterwards.
+     *
+     * @param bytes the UTF-8 encoded text
+     */
+    public LazyText(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.text = null;
+    }
+
+    /**
+     * Returns whether the text has been decoded.
+     *
+     * @return true if the text has been decoded
+     */
+    public synchronized boolean isLoaded() {
+        return text != null;
+    }
+
+    /**
+     * Returns the UTF-8 encoded text, unless it has been decoded.
+     *
+     * @return a read-only view of the bytes, or null if the text has been decoded
+     */
+    public synchronized ByteBuffer getBytes() {
+        return bytes == null ? null : bytes.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the text, decoding it without caching the result if it has not been decoded yet.
+     *
+     * @return the text
+     */
+    public synchronized String decode() {
+        return text != null ? text : StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+    }
+
+    /**
+     * Returns the given text as a String, without caching it if it is a {@link LazyText}.
+     *
+     * @param s the text, or null
+     * @return the text, or null
+     */
+    public static String decode(CharSequence s) {
+        if (s instanceof LazyText)
+            return ((LazyText) s).decode();
+        return s == null ? null : s.toString();
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (text == null) {
+            text = StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+            bytes = null;
+        }
+        return text;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+}
@@ -0,0 +1,350 @@
+package com.team34.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * A map from primitive longs to objects, stored in two parallel arrays using open addressing with linear probing.
+ * It works the same way as {@link LongHashSet}, and is used to store entities and their shapes by UID.
+ * <p>
+ * Unlike a {@code HashMap<Long, V>}, no {@code Long} or entry object is allocated for each mapping, and
+ * a lookup does not box the key. Removed mappings do not leave tombstones behind, since the mappings
+ * following them are shifted back into place.
+ * <p>
+ * The key 0 marks an empty slot, so the mapping of the key 0 is kept separately.
+ * The iteration order of {@link LongHashMap#keys()}, {@link LongHashMap#values()} and
+ * {@link LongHashMap#forEach} is unspecified, and the map must not be changed while iterating.
+ *
+ * @param <V> the type of the values
+ * @author Hazem Elkhalil
+ */
+public final class LongHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+    private Object zeroValue;
+
+    /**
+     * Receives each mapping of a map, see {@link LongHashMap#forEach}.
+     *
+     * @param <V> the type of the values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    /**
+     * Constructs an empty map.
+     */
+    public LongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty map, which can hold the given number of mappings without growing.
+     *
+     * @param expectedSize the expected number of mappings
+     */
+    public LongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < (long) size * 3 / 2 + 1) // Keeps the load factor below 2/3
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L; // Spreads sequential keys across the table
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private int find(long key) {
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of the key.
+     *
+     * @param key the key
+     * @return the value, or null if the map does not contain the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0L)
+            return (V) zeroValue;
+
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Returns whether the map contains the key.
+     *
+     * @param key the key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(long key) {
+        return key == 0L ? containsZero : find(key) >= 0;
+    }
+
+    /**
+     * Maps the key to the value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value of the key, or null if the map did not contain the key
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0L) {
+            Object previous = zeroValue;
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return (V) previous;
+        }
+
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                Object previous = values[slot];
+                values[slot] = value;
+                return (V) previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * 2 / 3)
+            rehash(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Maps the key to the value, only if the map already contains the key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value of the key, or null if the map did not contain the key
+     */
+    public V replace(long key, V value) {
+        return containsKey(key) ? put(key, value) : null;
+    }
+
+    /**
+     * Removes the key and its value from the map.
+     *
+     * @param key the key
+     * @return the value of the key, or null if the map did not contain the key
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0L) {
+            Object previous = zeroValue;
+            if (containsZero) {
+                containsZero = false;
+                zeroValue = null;
+                size--;
+            }
+            return (V) previous;
+        }
+
+        int slot = find(key);
+        if (slot < 0)
+            return null;
+        Object previous = values[slot];
+
+        // Shifts back the following mappings of the run, which would otherwise not be found past the gap
+        int gap = slot;
+        int next = gap;
+        while (true) {
+            next = (next + 1) & mask;
+            long moved = keys[next];
+            if (moved == 0L)
+                break;
+
+            int home = slotOf(moved);
+            boolean reachable = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+            if (!reachable) {
+                keys[gap] = moved;
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = 0L;
+        values[gap] = null;
+        size--;
+        return (V) previous;
+    }
+
+    /**
+     * Returns the number of mappings in the map.
+     *
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the map is empty.
+     *
+     * @return true if the map has no mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all mappings from the map.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        containsZero = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /**
+     * Returns a copy of the map. The values themselves are not copied.
+     *
+     * @return a new map with the same mappings
+     */
+    public LongHashMap<V> copy() {
+        LongHashMap<V> copy = new LongHashMap<>(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.mask = mask;
+        copy.size = size;
+        copy.containsZero = containsZero;
+        copy.zeroValue = zeroValue;
+        return copy;
+    }
+
+    /**
+     * Returns the keys of the map as an array, in no particular order.
+     *
+     * @return a new array of the keys
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsZero)
+            result[i++] = 0L;
+        for (long key : keys) {
+            if (key != 0L)
+                result[i++] = key;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values of the map, in no particular order. The values are read from the map as they are
+     * iterated, so no copy is made.
+     *
+     * @return the values
+     */
+    public Iterable<V> values() {
+        return () -> new Iterator<V>() {
+            private int slot = containsZero ? -1 : nextSlot(0);
+
+            private int nextSlot(int from) {
+                while (from < keys.length && keys[from] == 0L)
+                    from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                Object value = slot < 0 ? zeroValue : values[slot];
+                slot = nextSlot(slot + 1);
+                return (V) value;
+            }
+        };
+    }
+
+    /**
+     * Passes each mapping of the map to the consumer, in no particular order.
+     *
+     * @param consumer the consumer of the mappings
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        if (containsZero)
+            consumer.accept(0L, (V) zeroValue);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0L)
+                consumer.accept(keys[slot], (V) values[slot]);
+        }
+    }
+
+    /**
+     * Returns a key whose value matches the predicate, searching the map in no particular order.
+     *
+     * @param predicate the predicate to test the values with
+     * @param notFound  the key to return if no value matches
+     * @return the key of a matching value, or {@code notFound}
+     */
+    @SuppressWarnings("unchecked")
+    public long findKey(Predicate<? super V> predicate, long notFound) {
+        if (containsZero && predicate.test((V) zeroValue))
+            return 0L;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0L && predicate.test((V) values[slot]))
+                return keys[slot];
+        }
+        return notFound;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0L)
+                continue;
+
+            int slot = slotOf(oldKeys[i]);
+            while (keys[slot] != 0L)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
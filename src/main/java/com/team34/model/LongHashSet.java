@@ -0,0 +1,208 @@
+package com.team34.model;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs, stored in a single array using open addressing with linear probing.
+ * <p>
+ * Unlike a {@code HashSet<Long>}, no object is allocated for each element, and adding, removing
+ * and looking up an element takes constant time on average. Removed elements do not leave tombstones behind,
+ * since the elements following them are shifted back into place.
+ * <p>
+ * The slot value 0 marks an empty slot, so whether the set contains 0 is kept separately.
+ * The iteration order of {@link LongHashSet#toArray()} is unspecified.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    /**
+     * Constructs an empty set.
+     */
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty set, which can hold the given number of elements without growing.
+     *
+     * @param expectedSize the expected number of elements
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < (long) size * 3 / 2 + 1) // Keeps the load factor below 2/3
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slotOf(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L; // Spreads sequential values across the table
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Adds the value to the set.
+     *
+     * @param value the value to add
+     * @return true if the value was not already in the set
+     */
+    public boolean add(long value) {
+        if (value == 0L) {
+            if (containsZero)
+                return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int slot = slotOf(value);
+        while (slots[slot] != 0L) {
+            if (slots[slot] == value)
+                return false;
+            slot = (slot + 1) & mask;
+        }
+
+        slots[slot] = value;
+        if (++size > slots.length * 2 / 3)
+            rehash(slots.length << 1);
+        return true;
+    }
+
+    /**
+     * Returns whether the set contains the value.
+     *
+     * @param value the value to look for
+     * @return true if the value is in the set
+     */
+    public boolean contains(long value) {
+        if (value == 0L)
+            return containsZero;
+
+        int slot = slotOf(value);
+        while (slots[slot] != 0L) {
+            if (slots[slot] == value)
+                return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the value from the set.
+     *
+     * @param value the value to remove
+     * @return true if the value was in the set
+     */
+    public boolean remove(long value) {
+        if (value == 0L) {
+            if (!containsZero)
+                return false;
+            containsZero = false;
+            size--;
+            return true;
+        }
+
+        int slot = slotOf(value);
+        while (slots[slot] != value) {
+            if (slots[slot] == 0L)
+                return false;
+            slot = (slot + 1) & mask;
+        }
+
+        // Shifts back the following values of the run, which would otherwise not be found past the gap
+        int gap = slot;
+        int next = gap;
+        while (true) {
+            next = (next + 1) & mask;
+            long moved = slots[next];
+            if (moved == 0L)
+                break;
+
+            int home = slotOf(moved);
+            boolean reachable = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+            if (!reachable) {
+                slots[gap] = moved;
+                gap = next;
+            }
+        }
+        slots[gap] = 0L;
+        size--;
+        return true;
+    }
+
+    /**
+     * Grows the set, if needed, so that it can hold the given number of values without growing again.
+     *
+     * @param expectedSize the expected number of values
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > slots.length)
+            rehash(capacity);
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return the size of the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values from the set.
+     */
+    public void clear() {
+        Arrays.fill(slots, 0L);
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * Returns the values of the set as an array, in no particular order.
+     *
+     * @return a new array of the values
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int i = 0;
+        if (containsZero)
+            values[i++] = 0L;
+        for (long value : slots) {
+            if (value != 0L)
+                values[i++] = value;
+        }
+        return values;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        allocate(capacity);
+        for (long value : old) {
+            if (value == 0L)
+                continue;
+
+            int slot = slotOf(value);
+            while (slots[slot] != 0L)
+                slot = (slot + 1) & mask;
+            slots[slot] = value;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.team34.model;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive longs to primitive ints, stored in two parallel arrays using open addressing with
+ * linear probing. It works the same way as {@link LongHashMap}, and is used by {@link TextIndex} to store
+ * how many times a term appears in each entity, without boxing a count for every term of every entity.
+ * <p>
+ * The key 0 marks an empty slot, so the mapping of the key 0 is kept separately.
+ * The iteration order of {@link LongIntHashMap#forEach} is unspecified, and the map must not be changed
+ * while iterating.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class LongIntHashMap {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+    private int zeroValue;
+
+    /**
+     * Receives each mapping of a map, see {@link LongIntHashMap#forEach}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    /**
+     * Constructs an empty map.
+     */
+    public LongIntHashMap() {
+        this(0);
+    }
+
+    /**
+     * Constructs an empty map, which can hold the given number of mappings without growing.
+     *
+     * @param expectedSize the expected number of mappings
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < (long) size * 3 / 2 + 1) // Keeps the load factor below 2/3
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L; // Spreads sequential keys across the table
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private int find(long key) {
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of the key.
+     *
+     * @param key      the key
+     * @param notFound the value to return if the map does not contain the key
+     * @return the value, or {@code notFound}
+     */
+    public int get(long key, int notFound) {
+        if (key == 0L)
+            return containsZero ? zeroValue : notFound;
+
+        int slot = find(key);
+        return slot < 0 ? notFound : values[slot];
+    }
+
+    /**
+     * Returns whether the map contains the key.
+     *
+     * @param key the key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(long key) {
+        return key == 0L ? containsZero : find(key) >= 0;
+    }
+
+    /**
+     * Maps the key to the value.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(long key, int value) {
+        if (key == 0L) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+
+        int slot = slotOf(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * 2 / 3)
+            rehash(keys.length << 1);
+    }
+
+    /**
+     * Removes the key and its value from the map.
+     *
+     * @param key the key
+     * @return true if the map contained the key
+     */
+    public boolean remove(long key) {
+        if (key == 0L) {
+            if (!containsZero)
+                return false;
+            containsZero = false;
+            zeroValue = 0;
+            size--;
+            return true;
+        }
+
+        int slot = find(key);
+        if (slot < 0)
+            return false;
+
+        // Shifts back the following mappings of the run, which would otherwise not be found past the gap
+        int gap = slot;
+        int next = gap;
+        while (true) {
+            next = (next + 1) & mask;
+            long moved = keys[next];
+            if (moved == 0L)
+                break;
+
+            int home = slotOf(moved);
+            boolean reachable = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+            if (!reachable) {
+                keys[gap] = moved;
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = 0L;
+        values[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of mappings in the map.
+     *
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the map is empty.
+     *
+     * @return true if the map has no mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all mappings from the map.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, 0);
+        containsZero = false;
+        zeroValue = 0;
+        size = 0;
+    }
+
+    /**
+     * Passes each mapping of the map to the consumer, in no particular order.
+     *
+     * @param consumer the consumer of the mappings
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (containsZero)
+            consumer.accept(0L, zeroValue);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0L)
+                consumer.accept(keys[slot], values[slot]);
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0L)
+                continue;
+
+            int slot = slotOf(oldKeys[i]);
+            while (keys[slot] != 0L)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.team34.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A change made to the entities of one type, published by a manager through its {@link ChangeNotifier},
+ * so that a view can update only the entities that changed, rather than reading the whole model again.
+ * <p>
+ * A change holds the UIDs of the entities it applies to. Consecutive changes of the same kind and type,
+ * such as the events added when loading a project, are merged into one change.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class ModelChange {
+
+    /**
+     * The kinds of change.
+     */
+    public enum Kind {
+        /**
+         * The entities were added.
+         */
+        ADDED,
+        /**
+         * The data of the entities, such as their names, was changed.
+         */
+        UPDATED,
+        /**
+         * The entities were removed.
+         */
+        REMOVED,
+        /**
+         * The entities were moved within an order list, see {@link ModelChange#getOrderList()}.
+         * A new order list is announced by a reorder without UIDs.
+         */
+        REORDERED
+    }
+
+    /**
+     * Receives the changes made to the model.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called after the model has been changed.
+         *
+         * @param changes the changes, in the order they were made. Holds a single change,
+         *                unless the changes were made in a batch, see {@link ChangeNotifier#beginBatch()}
+         */
+        void modelChanged(List<ModelChange> changes);
+    }
+
+    private final Kind kind;
+    private final EntityType type;
+    private final int orderList;
+    private long[] uids;
+    private int count;
+
+    ModelChange(Kind kind, EntityType type, int orderList, long uid) {
+        this.kind = kind;
+        this.type = type;
+        this.orderList = orderList;
+        this.uids = new long[]{uid};
+        this.count = 1;
+    }
+
+    ModelChange(Kind kind, EntityType type, int orderList, long[] uids) {
+        this.kind = kind;
+        this.type = type;
+        this.orderList = orderList;
+        this.uids = uids;
+        this.count = uids.length;
+    }
+
+    /**
+     * Returns whether a change of the given kind can be merged into this one.
+     */
+    boolean canMerge(Kind kind, EntityType type, int orderList) {
+        return this.kind == kind && this.type == type && this.orderList == orderList && kind != Kind.REORDERED;
+    }
+
+    /**
+     * Adds a UID to this change, while it is still pending.
+     */
+    void merge(long uid) {
+        if (count == uids.length)
+            uids = Arrays.copyOf(uids, Math.max(4, count * 2));
+        uids[count++] = uid;
+    }
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the type of the changed entities.
+     *
+     * @return the type
+     */
+    public EntityType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the order list that was reordered.
+     *
+     * @return the index of the order list, or -1 if this is not a {@link Kind#REORDERED} change
+     */
+    public int getOrderList() {
+        return orderList;
+    }
+
+    /**
+     * Returns the number of changed entities.
+     *
+     * @return the number of UIDs
+     */
+    public int getUIDCount() {
+        return count;
+    }
+
+    /**
+     * Returns the UID of a changed entity.
+     *
+     * @param index the index of the UID, from 0 to {@link ModelChange#getUIDCount()}
+     * @return the UID
+     */
+    public long getUID(int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Count: " + count);
+        return uids[index];
+    }
+
+    /**
+     * Returns the UIDs of the changed entities.
+     *
+     * @return a new array of the UIDs
+     */
+    public long[] getUIDs() {
+        return Arrays.copyOf(uids, count);
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + type + (orderList >= 0 ? " in " + orderList : "") + " " + Arrays.toString(getUIDs());
+    }
+}
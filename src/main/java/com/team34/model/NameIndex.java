@@ -0,0 +1,156 @@
+package com.team34.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * An index from names to UIDs, in which names are compared ignoring case, the same way as
+ * {@link String#equalsIgnoreCase(String)}. Used by the managers to look up entities by name in constant time,
+ * rather than comparing the name of every entity.
+ * <p>
+ * Several entities may have the same name. Looking up a name then returns the UID of the entity
+ * that was given the name first, while it keeps the name. The UIDs under a name are kept in an array with
+ * room to grow, and a removed UID is replaced by the last one, so that adding and removing take constant
+ * time apart from finding the UID, however many entities share the name. Once the first entity loses the name,
+ * looking it up therefore returns the UID of the last entity given the name. The index must be kept up to date
+ * by the manager, whenever an entity is added, renamed or removed.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class NameIndex {
+
+    /**
+     * The UIDs under one name, in the first {@code size} elements of the array.
+     */
+    private static final class Entry {
+        long[] uids = new long[1]; // Most names belong to a single entity
+        int size;
+    }
+
+    private final HashMap<String, Entry> uids;
+
+    /**
+     * Constructs an empty name index.
+     */
+    public NameIndex() {
+        uids = new HashMap<>();
+    }
+
+    /**
+     * Returns the key that the name is stored under. Two names have the same key exactly when
+     * {@link String#equalsIgnoreCase(String)} returns true for them.
+     *
+     * @param name the name
+     * @return the normalized name
+     */
+    public static String normalize(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        return new String(chars);
+    }
+
+    /**
+     * Adds the UID under the name.
+     *
+     * @param name the name, which is skipped if null
+     * @param uid  the UID
+     */
+    public void add(String name, long uid) {
+        if (name == null)
+            return;
+
+        Entry entry = uids.computeIfAbsent(normalize(name), key -> new Entry());
+        if (entry.size == entry.uids.length)
+            entry.uids = Arrays.copyOf(entry.uids, entry.size * 2);
+        entry.uids[entry.size++] = uid;
+    }
+
+    /**
+     * Removes the UID from under the name.
+     *
+     * @param name the name, which is skipped if null
+     * @param uid  the UID
+     */
+    public void remove(String name, long uid) {
+        if (name == null)
+            return;
+
+        String key = normalize(name);
+        Entry entry = uids.get(key);
+        if (entry == null)
+            return;
+
+        for (int i = 0; i < entry.size; i++) {
+            if (entry.uids[i] != uid)
+                continue;
+
+            if (entry.size == 1) {
+                uids.remove(key);
+            } else {
+                entry.uids[i] = entry.uids[--entry.size];
+            }
+            return;
+        }
+    }
+
+    /**
+     * Moves the UID from under its old name to under its new name.
+     *
+     * @param oldName the old name, or null
+     * @param newName the new name, or null
+     * @param uid     the UID
+     */
+    public void rename(String oldName, String newName, long uid) {
+        if (oldName != null && newName != null && normalize(oldName).equals(normalize(newName)))
+            return;
+
+        remove(oldName, uid);
+        add(newName, uid);
+    }
+
+    /**
+     * Returns the UID of the first entity with the name.
+     *
+     * @param name the name
+     * @return the UID, or -1 if no entity has the name
+     */
+    public long getUID(String name) {
+        if (name == null)
+            return -1L;
+
+        Entry entry = uids.get(normalize(name));
+        return entry == null ? -1L : entry.uids[0];
+    }
+
+    /**
+     * Returns whether an entity has the name.
+     *
+     * @param name the name
+     * @return true if at least one entity has the name
+     */
+    public boolean contains(String name) {
+        return name != null && uids.containsKey(normalize(name));
+    }
+
+    /**
+     * Returns the number of entities with the name.
+     *
+     * @param name the name
+     * @return the number of entities
+     */
+    public int count(String name) {
+        if (name == null)
+            return 0;
+
+        Entry entry = uids.get(normalize(name));
+        return entry == null ? 0 : entry.size;
+    }
+
+    /**
+     * Removes all names from the index.
+     */
+    public void clear() {
+        uids.clear();
+    }
+}
@@ -0,0 +1,505 @@
+package com.team34.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
+
+/**
+ * An ordered list of UIDs, such as an event order list, in which each UID appears at most once.
+ * <p>
+ * Each UID is given a label, a number which grows along the list, and the UIDs are stored in a treap,
+ * a randomly balanced binary search tree ordered by label, in which each node knows the size of its subtree.
+ * An index maps each UID to its node, so that the position of a UID is found by searching for
+ * its label from the root. Looking up the UID at a position, the position of a UID, and inserting, removing
+ * and moving a UID therefore take O(log n) time on average, unlike a {@code LinkedList}, which takes O(n) time.
+ * A new UID is labelled halfway between its neighbours, and when there is no room left between them,
+ * the whole list is labelled anew.
+ * <p>
+ * The nodes are never changed. A change copies the nodes on the path to the root, and shares the rest of the
+ * tree with the previous version. A list can therefore be {@link OrderList#fork() forked} in O(1) time,
+ * and forked lists share their unchanged nodes, so that many orderings of the same UIDs take little memory.
+ * The index is changed in the same way: it is a hash trie, in which each level picks one of 32 branches
+ * by five bits of the hashed UID, and a change copies only the O(log n) trie nodes on the path to the UID.
+ * A change to a forked list therefore never copies the whole index, neither in the fork nor in the original.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class OrderList {
+
+    private static final long MAX_LABEL = 1L << 62;
+    private static final long GAP = 1L << 32; // Room left after and before the ends of the list
+
+    private static final class Node {
+        final long uid;
+        final long label;
+        final int priority;
+        final int size;
+        final Node left;
+        final Node right;
+
+        Node(long uid, long label, int priority, Node left, Node right) {
+            this.uid = uid;
+            this.label = label;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            size = 1 + sizeOf(left) + sizeOf(right);
+        }
+
+        Node with(Node left, Node right) {
+            return left == this.left && right == this.right ? this : new Node(uid, label, priority, left, right);
+        }
+    }
+
+    /**
+     * A node of the index, holding the occupied branches of one level in a compact array. Each slot holds either
+     * a {@link Node} of the tree, whose UID is the only one in the index with that branch, or the trie of the
+     * next level. Like the nodes of the tree, trie nodes are never changed.
+     */
+    private static final class Trie {
+        static final int BITS = 5;
+
+        final int bitmap;
+        final Object[] slots;
+
+        Trie(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        static long hash(long uid) {
+            long hash = uid * 0x9E3779B97F4A7C15L; // Spreads sequential UIDs across the branches
+            return hash ^ (hash >>> 32);
+        }
+
+        static int bitOf(long hash, int shift) {
+            return 1 << (int) ((hash >>> shift) & 31);
+        }
+
+        int slotOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        static Node get(Trie trie, long uid) {
+            long hash = hash(uid);
+            for (int shift = 0; trie != null; shift += BITS) {
+                int bit = bitOf(hash, shift);
+                if ((trie.bitmap & bit) == 0)
+                    return null;
+
+                Object slot = trie.slots[trie.slotOf(bit)];
+                if (slot instanceof Node)
+                    return ((Node) slot).uid == uid ? (Node) slot : null;
+                trie = (Trie) slot;
+            }
+            return null;
+        }
+
+        /**
+         * Returns a trie in which the UID of the node maps to the node.
+         */
+        static Trie put(Trie trie, Node node, long hash, int shift) {
+            int bit = bitOf(hash, shift);
+            if (trie == null)
+                return new Trie(bit, new Object[]{node});
+
+            int index = trie.slotOf(bit);
+            if ((trie.bitmap & bit) == 0) {
+                Object[] slots = new Object[trie.slots.length + 1];
+                System.arraycopy(trie.slots, 0, slots, 0, index);
+                slots[index] = node;
+                System.arraycopy(trie.slots, index, slots, index + 1, trie.slots.length - index);
+                return new Trie(trie.bitmap | bit, slots);
+            }
+
+            Object slot = trie.slots[index];
+            Object replacement;
+            if (slot instanceof Trie) {
+                replacement = put((Trie) slot, node, hash, shift + BITS);
+            } else if (((Node) slot).uid == node.uid) {
+                replacement = node;
+            } else {
+                // The hash is a bijection of the UID, so the two hashes differ at some later level
+                Trie pushedDown = put(null, (Node) slot, hash(((Node) slot).uid), shift + BITS);
+                replacement = put(pushedDown, node, hash, shift + BITS);
+            }
+            Object[] slots = trie.slots.clone();
+            slots[index] = replacement;
+            return new Trie(trie.bitmap, slots);
+        }
+
+        /**
+         * Returns a trie without the UID, or null if the trie would be empty. The UID must be in the trie.
+         */
+        static Trie remove(Trie trie, long uid, long hash, int shift) {
+            int bit = bitOf(hash, shift);
+            int index = trie.slotOf(bit);
+            Object slot = trie.slots[index];
+
+            if (slot instanceof Trie) {
+                Trie child = remove((Trie) slot, uid, hash, shift + BITS);
+                // A child left with a single node is replaced by that node, so that the trie stays shallow
+                Object replacement = child.slots.length == 1 && child.slots[0] instanceof Node ? child.slots[0] : child;
+                Object[] slots = trie.slots.clone();
+                slots[index] = replacement;
+                return new Trie(trie.bitmap, slots);
+            }
+
+            if (trie.slots.length == 1)
+                return null;
+            Object[] slots = new Object[trie.slots.length - 1];
+            System.arraycopy(trie.slots, 0, slots, 0, index);
+            System.arraycopy(trie.slots, index + 1, slots, index, slots.length - index);
+            return new Trie(trie.bitmap & ~bit, slots);
+        }
+    }
+
+    private Trie index;
+    private Node root;
+
+    /**
+     * Constructs an empty order list.
+     */
+    public OrderList() {
+    }
+
+    /**
+     * Constructs an order list of the given UIDs, in the same order. Repeated UIDs are skipped.
+     *
+     * @param uids the UIDs
+     */
+    public OrderList(List<Long> uids) {
+        for (long uid : uids)
+            add(uid);
+    }
+
+    private OrderList(OrderList original) {
+        index = original.index;
+        root = original.root;
+    }
+
+    /**
+     * Returns a copy of this list, which shares its nodes with this list. Takes O(1) time.
+     * Changing either list afterwards does not change the other.
+     *
+     * @return the copy
+     */
+    public OrderList fork() {
+        return new OrderList(this);
+    }
+
+    private static int sizeOf(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+
+        if (a.priority > b.priority)
+            return a.with(a.left, merge(a.right, b));
+        return b.with(merge(a, b.left), b.right);
+    }
+
+    /**
+     * Splits the tree into the nodes labelled below {@code label}, stored in {@code result[0]}, and the rest,
+     * stored in {@code result[1]}.
+     */
+    private static void split(Node node, long label, Node[] result) {
+        if (node == null) {
+            result[0] = null;
+            result[1] = null;
+            return;
+        }
+
+        if (node.label < label) {
+            split(node.right, label, result);
+            result[0] = node.with(node.left, result[0]);
+        } else {
+            split(node.left, label, result);
+            result[1] = node.with(result[1], node.right);
+        }
+    }
+
+    private Node nodeAt(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+
+        Node node = root;
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of UIDs in the list.
+     *
+     * @return the size of the list
+     */
+    public int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * Returns the UID at the given position.
+     *
+     * @param index the position
+     * @return the UID
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public long get(int index) {
+        return nodeAt(index).uid;
+    }
+
+    /**
+     * Returns whether the list contains the UID.
+     *
+     * @param uid the UID
+     * @return true if the list contains the UID
+     */
+    public boolean contains(long uid) {
+        return Trie.get(index, uid) != null;
+    }
+
+    /**
+     * Returns the position of the UID.
+     *
+     * @param uid the UID
+     * @return the position, or -1 if the list does not contain the UID
+     */
+    public int indexOf(long uid) {
+        Node target = Trie.get(index, uid);
+        if (target == null)
+            return -1;
+
+        int index = 0;
+        Node node = root;
+        while (node.label != target.label) {
+            if (target.label < node.label) {
+                node = node.left;
+            } else {
+                index += sizeOf(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return index + sizeOf(node.left);
+    }
+
+    /**
+     * Adds the UID to the end of the list.
+     *
+     * @param uid the UID
+     * @return false if the list already contains the UID, in which case it is not added
+     */
+    public boolean add(long uid) {
+        return add(size(), uid);
+    }
+
+    /**
+     * Inserts the UID at the given position, shifting the UIDs from that position one step back.
+     *
+     * @param index the position
+     * @param uid   the UID
+     * @return false if the list already contains the UID, in which case it is not added
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public boolean add(int index, long uid) {
+        if (index < 0 || index > size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        if (contains(uid))
+            return false;
+
+        long label = labelAt(index);
+        if (label < 0) {
+            relabel();
+            label = labelAt(index);
+        }
+        insert(new Node(uid, label, ThreadLocalRandom.current().nextInt(), null, null));
+        return true;
+    }
+
+    /**
+     * Returns a free label for a UID inserted at the given position, or -1 if there is no room at the position.
+     */
+    private long labelAt(int index) {
+        int size = size();
+        if (size == 0)
+            return MAX_LABEL / 2;
+
+        long before = index > 0 ? nodeAt(index - 1).label : -1L;
+        long after = index < size ? nodeAt(index).label : MAX_LABEL + 1;
+        if (index == size && before + GAP <= MAX_LABEL)
+            return before + GAP;
+        if (index == 0 && after - GAP >= 0L)
+            return after - GAP;
+        return after - before >= 2 ? before + (after - before) / 2 : -1L;
+    }
+
+    /**
+     * Labels the UIDs anew, evenly spread out, keeping the shape of the tree.
+     */
+    private void relabel() {
+        long step = Math.min(GAP, MAX_LABEL / (size() + 1));
+        index = null;
+        root = relabel(root, new long[]{step}, step);
+    }
+
+    private Node relabel(Node node, long[] next, long step) {
+        if (node == null)
+            return null;
+
+        Node left = relabel(node.left, next, step);
+        long label = next[0];
+        next[0] += step;
+        Node right = relabel(node.right, next, step);
+
+        // The index holds a node without children, so that it does not keep old versions of the tree alive
+        index = Trie.put(index, new Node(node.uid, label, node.priority, null, null), Trie.hash(node.uid), 0);
+        return new Node(node.uid, label, node.priority, left, right);
+    }
+
+    private void insert(Node node) {
+        index = Trie.put(index, node, Trie.hash(node.uid), 0);
+
+        Node[] parts = new Node[2];
+        split(root, node.label, parts);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    private void delete(Node node) {
+        index = Trie.remove(index, node.uid, Trie.hash(node.uid), 0);
+
+        Node[] parts = new Node[2];
+        split(root, node.label, parts);
+        Node before = parts[0];
+        split(parts[1], node.label + 1, parts);
+        root = merge(before, parts[1]);
+    }
+
+    /**
+     * Removes the UID from the list.
+     *
+     * @param uid the UID
+     * @return true if the list contained the UID
+     */
+    public boolean remove(long uid) {
+        Node node = Trie.get(index, uid);
+        if (node == null)
+            return false;
+
+        delete(node);
+        return true;
+    }
+
+    /**
+     * Removes the UID at the given position.
+     *
+     * @param index the position
+     * @return the removed UID
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    public long removeAt(int index) {
+        Node node = nodeAt(index);
+        delete(node);
+        return node.uid;
+    }
+
+    /**
+     * Moves the UID at one position to another, shifting the UIDs in between one step towards the first position.
+     *
+     * @param fromIndex the position of the UID to move
+     * @param toIndex   the position of the UID after the move
+     * @throws IndexOutOfBoundsException if a position is out of range
+     */
+    public void move(int fromIndex, int toIndex) {
+        if (toIndex < 0 || toIndex >= size())
+            throw new IndexOutOfBoundsException("Index: " + toIndex + ", Size: " + size());
+        if (fromIndex == toIndex) {
+            nodeAt(fromIndex); // Checks the range
+            return;
+        }
+
+        add(toIndex, removeAt(fromIndex));
+    }
+
+    /**
+     * Swaps the UIDs at two positions.
+     *
+     * @param index1 the position of the first UID
+     * @param index2 the position of the second UID
+     * @throws IndexOutOfBoundsException if a position is out of range
+     */
+    public void swap(int index1, int index2) {
+        Node first = nodeAt(index1);
+        Node second = nodeAt(index2);
+        if (first == second)
+            return;
+
+        delete(first);
+        delete(second);
+        insert(new Node(first.uid, second.label, second.priority, null, null));
+        insert(new Node(second.uid, first.label, first.priority, null, null));
+    }
+
+    /**
+     * Removes all UIDs from the list.
+     */
+    public void clear() {
+        root = null;
+        index = null;
+    }
+
+    /**
+     * Passes each UID of the list to the consumer, in order, without allocating.
+     *
+     * @param consumer the consumer of the UIDs
+     */
+    public void forEach(LongConsumer consumer) {
+        forEach(root, consumer);
+    }
+
+    private static void forEach(Node node, LongConsumer consumer) {
+        while (node != null) {
+            forEach(node.left, consumer);
+            consumer.accept(node.uid);
+            node = node.right;
+        }
+    }
+
+    /**
+     * Returns the UIDs of the list, in order.
+     *
+     * @return a new array of the UIDs
+     */
+    public long[] toArray() {
+        long[] uids = new long[size()];
+        Node[] stack = new Node[64];
+        int depth = 0;
+        int i = 0;
+        Node node = root;
+
+        while (node != null || depth > 0) {
+            while (node != null) {
+                if (depth == stack.length)
+                    stack = Arrays.copyOf(stack, depth * 2);
+                stack[depth++] = node;
+                node = node.left;
+            }
+            node = stack[--depth];
+            uids[i++] = node.uid;
+            node = node.right;
+        }
+        return uids;
+    }
+}
@@ -1,24 +1,29 @@
 package com.team34.model;
 
-import com.team34.model.chapter.ChapterListObject;
 import com.team34.model.chapter.ChapterManager;
 import com.team34.model.character.CharacterManager;
-import com.team34.model.event.EventListObject;
 import com.team34.model.event.EventManager;
 
 import javax.xml.stream.*;
-import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleConsumer;
 
 /**
  * This class represents the top layer of the model/data.
@@ -32,6 +37,21 @@ import java.util.LinkedList;
  * By calling the method {@link Project#loadProject(File)}, the project file will be loaded.
  * Likewise, if the method {@link Project#saveProject()} is called, the project file will be saved.
  * Any project that was already loaded when loading a new project, will be discarded.
+ * <p>
+ * The format of the project file itself is read and written by a {@link ProjectCodec}.
+ * By default, this is the {@link XMLStreamCodec}. Files with the extension of {@link BinaryCodec#EXTENSION}
+ * are instead stored in the binary project format, by the {@link BinaryCodec}, and files with the extension
+ * of {@link CompressedCodec#EXTENSION} are compressed while they are written and read, by the {@link CompressedCodec}.
+ * <p>
+ * Changes made after a project has been loaded or saved are recorded in a {@link ProjectJournal},
+ * which is appended to when saving, instead of rewriting the project file.
+ * <p>
+ * Whenever the project file is rewritten in full by {@link Project#saveProjectAsync(DoubleConsumer)},
+ * a {@link ProjectSnapshot} is taken and written on a background thread.
+ * <p>
+ * While there are unsaved changes, {@link Project#autosave()} writes a recovery copy of the project
+ * next to the project file, such as ".~project.wsp", which can be restored if the application exits
+ * without saving, see {@link Project#findRecovery()} and {@link Project#restoreRecovery(File)}.
  *
  * @author Kasper S. Skott
  * @updated Alexander Olsson
@@ -39,9 +59,31 @@ import java.util.LinkedList;
  */
 public class Project {
 
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+    private static final String RECOVERY_PREFIX = ".~";
+    private static final String UNTITLED_RECOVERY_NAME = RECOVERY_PREFIX + "untitled.wsp";
+
     public final EventManager eventManager;
     public final CharacterManager characterManager;
     public final ChapterManager chapterManager;
+    public final UIDManager uidManager;
+
+    /**
+     * The text index over the names and descriptions of all events, chapters and characters,
+     * which the managers keep up to date.
+     */
+    public final TextIndex textIndex;
+
+    /**
+     * Publishes the changes made by all managers, see {@link ModelChange}.
+     */
+    public final ChangeNotifier changeNotifier;
+
+    /**
+     * Deletes entities together with their dependents, see {@link CascadeDelete}.
+     */
+    public final CascadeDelete cascade;
 
     private String workingDir;
     private Path workingPath;
@@ -49,21 +91,58 @@ public class Project {
     private UserPreferences userPrefs;
     private String currProjectName;
     private File currProjectFile;
+    private ProjectCodec codec;
+    private final BinaryCodec binaryCodec;
+    private final CompressedCodec compressedCodec;
+
+    private ProjectJournal journal;
+    private boolean journalEnabled;
+    private long compactionThreshold;
+    private ExecutorService writeExecutor;
+    private Future<?> compaction;
+    private Future<?> backgroundSave;
+    private Future<?> autosave;
+    private File autosaveFile;
+    private volatile boolean saveFailed;
+    private volatile FileLayout fileLayout;
+    private boolean restored;
+    private File mappedFile;
+    private Object mappedFileKey;
 
     /**
      * Constructs the project, sets up the working directory, and loads the preferences file.
      */
     public Project() {
-        chapterManager = new ChapterManager();
-
-        eventManager = new EventManager(chapterManager);
-        characterManager = new CharacterManager();
+        uidManager = new UIDManager();
+        chapterManager = new ChapterManager(uidManager);
+
+        eventManager = new EventManager(chapterManager, uidManager);
+        characterManager = new CharacterManager(uidManager);
+        textIndex = new TextIndex();
+        eventManager.setTextIndex(textIndex);
+        chapterManager.setTextIndex(textIndex);
+        characterManager.setTextIndex(textIndex);
+        changeNotifier = new ChangeNotifier();
+        eventManager.setChangeNotifier(changeNotifier);
+        chapterManager.setChangeNotifier(changeNotifier);
+        characterManager.setChangeNotifier(changeNotifier);
+        cascade = new CascadeDelete(chapterManager, eventManager, characterManager, changeNotifier);
         userPrefs = new UserPreferences();
 
         workingDir = System.getProperty("user.dir");
         workingPath = Paths.get(workingDir);
         currProjectName = "";
         currProjectFile = null;
+        codec = new XMLStreamCodec();
+        binaryCodec = new BinaryCodec();
+        XMLStreamCodec streamingCodec = new XMLStreamCodec();
+        streamingCodec.setParallelThreshold(-1);
+        compressedCodec = new CompressedCodec(streamingCodec);
+        journal = null;
+        journalEnabled = true;
+        compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+        saveFailed = false;
+        restored = false;
 
         if (workingPath.endsWith("bin")) {
             System.setProperty("user.dir", workingPath.getRoot().resolve(workingPath.subpath(0, workingPath.getNameCount() - 1)).toString());
@@ -114,6 +193,43 @@ public class Project {
         currProjectFile = file;
     }
 
+    /**
+     * Returns the codec used to read and write XML project files.
+     *
+     * @return {@link Project#codec}
+     */
+    public ProjectCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Sets the codec used to read and write XML project files.
+     *
+     * @param codec the new codec
+     */
+    public void setCodec(ProjectCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Sets whether the descriptions of events and characters are loaded when first accessed, rather than
+     * when the project is loaded. Only applies to project files in the binary format, see {@link BinaryCodec}.
+     *
+     * @param lazy true to load descriptions on first access
+     */
+    public void setLazyDescriptions(boolean lazy) {
+        binaryCodec.setLazyDescriptions(lazy);
+    }
+
+    /**
+     * Sets the level of compression used when saving compressed project files, see {@link CompressedCodec}.
+     *
+     * @param level the compression level, see {@link CompressedCodec#setLevel(int)}
+     */
+    public void setCompressionLevel(int level) {
+        compressedCodec.setLevel(level);
+    }
+
     /**
      * Loads the preferences file.
      *
@@ -182,765 +298,700 @@ public class Project {
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)}
+     * Saves the current state of {@link Project#userPrefs} to the preferences file
      *
-     * @param event
-     * @param reader
+     * @throws IOException
      * @throws XMLStreamException
      */
-    private void loadUIDManager(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException {
-        while (reader.hasNext()) {
-            event = reader.nextEvent();
+    public void writeUserPrefs() throws IOException, XMLStreamException {
+        File file = new File(workingDir, "preferences.xml");
+        file.createNewFile();
 
-            if (event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
+        try (FileOutputStream fileStream = new FileOutputStream(file, false)) {
 
-                if (startElement.getName().getLocalPart() == "uid") {
-                    event = reader.nextEvent();
-                    if (event.isCharacters()) {
-                        UIDManager.addUID(Long.parseLong(event.asCharacters().getData()));
-                    }
-                    event = reader.nextEvent();
-                }
+            XMLEventFactory eventFactory = XMLEventFactory.newFactory();
+            XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+            XMLEventWriter eventWriter = outputFactory.createXMLEventWriter(fileStream);
 
-            } else if (event.isEndElement()) {
-                if (event.asEndElement().getName().getLocalPart() == "uid_manager")
-                    return;
-            }
-        }
-    }
+            eventWriter.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
 
+            eventWriter.add(eventFactory.createStartElement("", "", "preferences"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
 
-    private void loadChapters(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException {
-        long uid = -1L;
-        String name = null;
-        String color = null;
-
-        while (reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if (event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if (startElement.getName().getLocalPart() == "chapter") {
-                    Iterator<Attribute> attrIt = startElement.getAttributes();
-                    while (attrIt.hasNext()) {
-                        Attribute attr = attrIt.next();
-                        switch (attr.getName().getLocalPart()) {
-                            case "uid":
-                                uid = Long.parseLong(attr.getValue());
-                                break;
-                            case "name":
-                                name = attr.getValue();
-                                break;
-                            case "color":
-                                color = attr.getValue();
-                                break;
-
-                        }
-                    }
-                    event = reader.nextEvent();
-                    if (uid != -1L && name != null) {
-                        if (event.isCharacters())
+            addPreference(eventFactory, eventWriter,
+                    "project_directory", userPrefs.projectDir);
+            addPreference(eventFactory, eventWriter,
+                    "window_maximized", Boolean.toString(userPrefs.windowMaximized));
+            addPreference(eventFactory, eventWriter,
+                    "window_width", Integer.toString(userPrefs.windowWidth));
+            addPreference(eventFactory, eventWriter,
+                    "window_height", Integer.toString(userPrefs.windowHeight));
 
-                            chapterManager.addChapter(uid, name, event.asCharacters().getData(), color);
-                        else
-                            chapterManager.addChapter(uid, name, "", color);
+            eventWriter.add(eventFactory.createEndElement("", "", "preferences"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
 
-                    }
-                }
-            } else if (event.isEndElement()) {
-                if (event.asEndElement().getName().getLocalPart() == "chapters")
-                    return;
-            }
-        }
-    }
+            eventWriter.add(eventFactory.createEndDocument());
 
-    private void loadChapterOrderLists(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException {
-        LinkedList<Long> orderList = new LinkedList<>();
-
-        while (reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if (event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if (startElement.getName().getLocalPart() == "chapter_list") {
-                    orderList = new LinkedList<Long>();
-
-                    while (reader.hasNext()) {
-                        event = reader.nextEvent();
-
-                        if (event.isStartElement()) {
-                            startElement = event.asStartElement();
-                            if (startElement.getName().getLocalPart() == "li") {
-                                event = reader.nextEvent();
-                                if (event.isCharacters())
-                                    orderList.add(Long.parseLong(event.asCharacters().getData()));
-                            }
-                        } else if (event.isEndElement()) {
-                            if (event.asEndElement().getName().getLocalPart() == "chapter_list")
-                                chapterManager.addOrderList(orderList);
-                            if (event.asEndElement().getName().getLocalPart() == "chapter_order")
-                                return;
-                        }
-                    }
-                }
-            }
+            eventWriter.flush();
         }
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)}
+     * Loads the given file as a project.
+     * This will discard any existing data, present in the currently loaded project.
      *
-     * @param event
-     * @param reader
+     * @param projectFile the project file to load
+     * @throws IOException
      * @throws XMLStreamException
      */
-    private void loadEvents(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException {
-        long uid = -1L;
-        String name = null;
-        String chapter = null;
-        long chapterUid = -1L;
-        String color = null;
-
-        while (reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if (event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if (startElement.getName().getLocalPart() == "event") {
-                    Iterator<Attribute> attrIt = startElement.getAttributes();
-                    while (attrIt.hasNext()) {
-                        Attribute attr = attrIt.next();
-                        switch (attr.getName().getLocalPart()) {
-                            case "uid":
-                                uid = Long.parseLong(attr.getValue());
-                                break;
-                            case "name":
-                                name = attr.getValue();
-                                break;
-                            case "color":
-                                color = attr.getValue();
-                                break;
-                            case "chapter":
-                                chapter = attr.getValue();
-                                break;
-                            case "chapterUid":
-                                chapterUid = Long.parseLong(attr.getValue());
-                                break;
-                        }
-                    }
-                    event = reader.nextEvent();
-                    if (uid != -1L && name != null) {
-                        if (event.isCharacters())
-                            eventManager.addEvent(uid, name, event.asCharacters().getData(), new ChapterListObject(chapter, chapterUid, color));
-                        else
-                            eventManager.addEvent(uid, name, "", new ChapterListObject(chapter, chapterUid, color));
+    public void loadProject(File projectFile) throws IOException, XMLStreamException {
+        awaitBackgroundWrites();
+        changeNotifier.beginBatch(); // The whole load is published as one batch of changes
+        clearProject();
 
-                    }
-                }
-            } else if (event.isEndElement()) {
-                if (event.asEndElement().getName().getLocalPart() == "events")
-                    return;
+        try {
+            readProjectFile(projectFile);
+            fileLayout = FileLayout.stampOnly(projectFile);
+
+            if (journalEnabled) {
+                ProjectJournal projectJournal = new ProjectJournal(projectFile);
+                projectJournal.replay(this);
+                setJournal(projectJournal);
             }
+        } finally {
+            currProjectFile = projectFile;
+            eventManager.resetChanges();
+            characterManager.resetChanges();
+            chapterManager.resetChanges();
+            changeNotifier.endBatch();
         }
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)} ()}
+     * Saves the current state of the project data into the file, {@link Project#currProjectFile}.
+     * <p>
+     * If the project file is unchanged since it was loaded or last written, only the changes
+     * recorded in the {@link ProjectJournal} are appended to the journal file. Once the journal file
+     * has grown past {@link Project#compactionThreshold}, the project file is rewritten in the background,
+     * see {@link Project#compactJournal()}. Otherwise, the project file is written, starting from the first
+     * section that differs from the file on disk, see {@link FileLayout}.
+     * <p>
+     * Nothing is written if there are no unsaved changes, and the project file alone holds the project,
+     * ie. it has not been changed by anything else since it was loaded or written, and has no journal.
      *
-     * @param event
-     * @param reader
+     * @throws IOException
      * @throws XMLStreamException
      */
-    private void loadEventOrderLists(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException {
-        LinkedList<Long> orderList = new LinkedList<>();
-
-        while (reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if (event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if (startElement.getName().getLocalPart() == "order_list") {
-                    orderList = new LinkedList<Long>();
-
-                    while (reader.hasNext()) {
-                        event = reader.nextEvent();
-
-                        if (event.isStartElement()) {
-                            startElement = event.asStartElement();
-                            if (startElement.getName().getLocalPart() == "li") {
-                                event = reader.nextEvent();
-                                if (event.isCharacters())
-                                    orderList.add(Long.parseLong(event.asCharacters().getData()));
-                            }
-                        } else if (event.isEndElement()) {
-                            if (event.asEndElement().getName().getLocalPart() == "order_list")
-                                eventManager.addOrderList(orderList);
-                            if (event.asEndElement().getName().getLocalPart() == "event_order")
-                                return;
-                        }
-                    }
-                }
+    public void saveProject() throws IOException, XMLStreamException {
+        if (currProjectFile == null)
+            throw new NullPointerException("currProjectFile must not be null");
+
+        if (currProjectName.isEmpty())
+            currProjectName = currProjectFile.getName();
+
+        awaitBackgroundSave();
+
+        if (isProjectFileUpToDate())
+            return;
+
+        boolean compact = false;
+        if (canAppendToJournal()) {
+            journal.append();
+            compact = journal.length() >= compactionThreshold;
+        } else {
+            awaitBackgroundWrites();
+            ProjectSnapshot snapshot = ProjectSnapshot.of(this);
+            ProjectJournal projectJournal;
+            if (isMapped(currProjectFile)) { // Descriptions are still read from the file, which must not change
+                projectJournal = new ProjectJournal(currProjectFile); // Stamped again once the file is replaced
+                fileLayout = replaceProjectFile(currProjectFile, codecOf(currProjectFile), snapshot, fileLayout,
+                        projectJournal, Long.MAX_VALUE);
+            } else {
+                fileLayout = writeProjectFile(currProjectFile, codecOf(currProjectFile), snapshot, fileLayout);
+                projectJournal = new ProjectJournal(currProjectFile);
             }
+
+            projectJournal.delete(); // Any existing journal belongs to the overwritten file
+            setJournal(journalEnabled ? projectJournal : null);
         }
+
+        eventManager.resetChanges();
+        characterManager.resetChanges();
+        chapterManager.resetChanges();
+        saveFailed = false;
+        restored = false;
+        deleteAutosaveFile();
+        if (compact)
+            compactJournal(); // After saveFailed is cleared, so that a failed compaction is not hidden
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)}
+     * Saves the project like {@link Project#saveProject()}, but without blocking the calling thread
+     * while the project file is rewritten.
+     * <p>
+     * If the changes can be appended to the journal, this is done immediately, and a completed future is returned.
+     * Otherwise, a {@link ProjectSnapshot} of the project is taken and written on a background thread. The project
+     * is considered saved as of the snapshot, so changes made while it is being written remain unsaved.
+     * Those changes are recorded by a new journal, which is only stamped once the new project file is in place.
+     * The new project file is written next to the old one, which it then replaces, unless the sections rendered for
+     * the snapshot are identical to those of the old file, see {@link FileLayout}.
+     * <p>
+     * Must be called on the thread that makes changes to the project. If the project file could not be written,
+     * the returned future completes exceptionally, and {@link Project#hasUnsavedChanges()} returns true.
      *
-     * @param event
-     * @param reader
+     * @param progressListener called on the background thread with the progress of writing the file, or null
+     * @return a future that completes when the project file has been written
+     * @throws IOException
      * @throws XMLStreamException
      */
-    private void loadCharacters(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException {
-        long uid = -1L;
-        String name = null;
-        double chartX = 0.0;
-        double chartY = 0.0;
-        long eventUID = -1L;
-        String eventName = null;
-        int age = 0;
-
-        while (reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if (event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if (startElement.getName().getLocalPart() == "character") {
-                    Iterator<Attribute> attrIt = startElement.getAttributes();
-                    while (attrIt.hasNext()) {
-                        Attribute attr = attrIt.next();
-                        switch (attr.getName().getLocalPart()) {
-                            case "uid":
-                                uid = Long.parseLong(attr.getValue());
-                                break;
-                            case "name":
-                                name = attr.getValue();
-                                break;
-                            case "chartX":
-                                chartX = Double.parseDouble(attr.getValue());
-                                break;
-                            case "chartY":
-                                chartY = Double.parseDouble(attr.getValue());
-                                break;
-                            case "eventName":
-                                eventName = attr.getValue();
-                                break;
-                            case "eventUID":
-                                eventUID = Long.parseLong(attr.getValue());
-                                break;
-                            case "age":
-                                age = Integer.parseInt(attr.getValue());
-
-                        }
-                    }
-                    event = reader.nextEvent();
-                    if (uid != -1L && name != null) {
-                        if (event.isCharacters())
-                            characterManager.addCharacter(uid, name, "", age, new EventListObject(eventName, eventUID), chartX, chartY);
-                        else
-                            characterManager.addCharacter(uid, name, "", age, new EventListObject(eventName, eventUID), chartX, chartY);
-                    }
-                }
-            } else if (event.isEndElement()) {
-                if (event.asEndElement().getName().getLocalPart() == "characters")
-                    return;
-            }
+    public CompletableFuture<Void> saveProjectAsync(DoubleConsumer progressListener)
+            throws IOException, XMLStreamException {
+        if (currProjectFile == null)
+            throw new NullPointerException("currProjectFile must not be null");
+
+        if (currProjectName.isEmpty())
+            currProjectName = currProjectFile.getName();
+
+        awaitBackgroundSave();
+
+        if (isProjectFileUpToDate() || canAppendToJournal()) {
+            saveProject();
+            return CompletableFuture.completedFuture(null);
         }
+
+        File file = currProjectFile;
+        ProjectCodec fileCodec = codecOf(file);
+        ProjectSnapshot snapshot = ProjectSnapshot.of(this, progressListener);
+
+        ProjectJournal projectJournal = new ProjectJournal(file);
+        projectJournal.invalidate(); // Until the file has been written, see ProjectJournal#compacted(long)
+        setJournal(journalEnabled ? projectJournal : null);
+
+        eventManager.resetChanges();
+        characterManager.resetChanges();
+        chapterManager.resetChanges();
+        restored = false;
+
+        File recoveryFile = autosaveFile;
+        autosaveFile = null;
+
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+            try {
+                // Any existing journal belongs to the overwritten file
+                fileLayout = replaceProjectFile(file, fileCodec, snapshot, fileLayout, projectJournal, Long.MAX_VALUE);
+                if (recoveryFile != null)
+                    Files.deleteIfExists(recoveryFile.toPath());
+                saveFailed = false;
+            } catch (IOException | XMLStreamException e) {
+                saveFailed = true;
+                throw new CompletionException(e);
+            }
+        }, getWriteExecutor());
+
+        backgroundSave = future;
+        return future;
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)}
+     * Returns whether the changes recorded since the project file was last loaded or written
+     * can be appended to the journal of the current project file.
      *
-     * @param event
-     * @param reader
-     * @throws XMLStreamException
+     * @return true if the journal can be used
      */
-    private void loadAssociations(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException {
-        long uid = -1L;
-        long startUID = -1L;
-        long endUID = -1L;
-        double sX = 0.0;
-        double sY = 0.0;
-        double eX = 0.0;
-        double eY = 0.0;
-        String label = "";
-        double lblX = 0.0;
-        double lblY = 0.0;
-
-        while (reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if (event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if (startElement.getName().getLocalPart() == "association") {
-                    Iterator<Attribute> attrIt = startElement.getAttributes();
-                    while (attrIt.hasNext()) {
-                        Attribute attr = attrIt.next();
-                        switch (attr.getName().getLocalPart()) {
-                            case "uid":
-                                uid = Long.parseLong(attr.getValue());
-                                break;
-                            case "startUID":
-                                startUID = Long.parseLong(attr.getValue());
-                                break;
-                            case "endUID":
-                                endUID = Long.parseLong(attr.getValue());
-                                break;
-                            case "sX":
-                                sX = Double.parseDouble(attr.getValue());
-                                break;
-                            case "sY":
-                                sY = Double.parseDouble(attr.getValue());
-                                break;
-                            case "eX":
-                                eX = Double.parseDouble(attr.getValue());
-                                break;
-                            case "eY":
-                                eY = Double.parseDouble(attr.getValue());
-                                break;
-                            case "lblX":
-                                lblX = Double.parseDouble(attr.getValue());
-                                break;
-                            case "lblY":
-                                lblY = Double.parseDouble(attr.getValue());
-                                break;
-                        }
-                    }
-                    event = reader.nextEvent();
-                    if (uid != -1L && label != null) {
-                        if (event.isCharacters())
-                            characterManager.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, event.asCharacters().getData(), lblX, lblY);
-                        else
-                            characterManager.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, "", lblX, lblY);
-                    }
-                }
-            } else if (event.isEndElement()) {
-                if (event.asEndElement().getName().getLocalPart() == "associations")
-                    return;
-            }
-        }
+    private boolean canAppendToJournal() {
+        return journal != null && journal.getBaseFile().equals(currProjectFile) && journal.matchesBase();
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     *
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * Folds the journal into the project file. A snapshot of the project is taken on the calling thread,
+     * then the file is written on a background thread.
+     * Changes appended to the journal while the file is being written are kept in the journal.
+     * If the file could not be written, {@link Project#hasUnsavedChanges()} returns true, so that the
+     * next save tries again, and the future of the compaction completes exceptionally.
      */
-    private void writeUIDManager(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException {
-        Long[] uids = UIDManager.getUIDs();
-        if (uids == null)
+    private void compactJournal() {
+        if (compaction != null && !compaction.isDone())
             return;
 
-        for (int i = 0; i < uids.length; i++) {
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "uid"));
-            writer.add(factory.createCharacters(Long.toString(uids[i])));
-            writer.add(factory.createEndElement("", "", "uid"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-        }
+        File file = currProjectFile;
+        ProjectCodec fileCodec = codecOf(file);
+        ProjectJournal projectJournal = journal;
+        long foldedLength = projectJournal.length();
+        ProjectSnapshot snapshot = ProjectSnapshot.of(this);
+
+        compaction = CompletableFuture.runAsync(() -> {
+            try {
+                fileLayout = replaceProjectFile(file, fileCodec, snapshot, fileLayout, projectJournal, foldedLength);
+            } catch (IOException | XMLStreamException e) {
+                saveFailed = true;
+                throw new CompletionException(e);
+            }
+        }, getWriteExecutor());
     }
 
-    private void writeChapters(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException {
-        Object[][] chapter = chapterManager.getChapters();
-        if (chapter == null)
-            return;
-        for (int i = 0; i < chapter.length; i++) {
-
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "chapter"));
-            writer.add(factory.createAttribute("uid", Long.toString((Long) chapter[i][0])));
-            writer.add(factory.createAttribute("name", (String) chapter[i][1]));
-            writer.add(factory.createAttribute("color", (String) chapter[i][3]));
-            writer.add(factory.createCharacters((String) chapter[i][2]));
-
-
-            writer.add(factory.createEndElement("", "", "chapter"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-
+    /**
+     * Returns the executor that project files are written on in the background.
+     * It has a single thread, so that background writes of the same file never overlap.
+     *
+     * @return the executor
+     */
+    private ExecutorService getWriteExecutor() {
+        if (writeExecutor == null) {
+            writeExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "project-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        return writeExecutor;
     }
 
-    private void writeChapterOrderLists(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException {
-        int i = 0;
-        Long[] orderList = chapterManager.getChapterOrder(i);
-        if (orderList == null)
-            return;
-
-        while (orderList != null) {
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "chapter_list"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-
-            for (int j = 0; j < orderList.length; j++) {
-                writer.add(factory.createCharacters("\t\t\t"));
-                writer.add(factory.createStartElement("", "", "li"));
-                writer.add(factory.createCharacters(Long.toString(orderList[j])));
-                writer.add(factory.createEndElement("", "", "li"));
-                writer.add(factory.createCharacters(System.lineSeparator()));
-            }
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createEndElement("", "", "chapter_list"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-
-            orderList = chapterManager.getChapterOrder(++i);
-        }
+    /**
+     * Blocks until a running save started by {@link Project#saveProjectAsync(DoubleConsumer)} has finished.
+     */
+    private void awaitBackgroundSave() {
+        backgroundSave = await(backgroundSave);
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     *
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * Blocks until all files being written in the background, by a save or a compaction of the journal,
+     * have been written. Should be called before the application exits.
      */
-    private void writeEvents(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException {
-        Object[][] event = eventManager.getEvents();
-        if (event == null)
-            return;
-
-        for (int i = 0; i < event.length; i++) {
-            if (!event[i][5].equals("")) {
-                writer.add(factory.createCharacters("\t\t"));
-                writer.add(factory.createStartElement("", "", "event"));
-                writer.add(factory.createAttribute("uid", Long.toString((Long) event[i][0])));
-                writer.add(factory.createAttribute("name", (String) event[i][1]));
-                writer.add(factory.createAttribute("color", (String) event[i][3]));
-                writer.add(factory.createAttribute("chapter", (String) event[i][4]));
-                writer.add(factory.createAttribute("chapterUid", Long.toString((Long) event[i][5])));
-                writer.add(factory.createCharacters((String) event[i][2]));
-            } else {
-                writer.add(factory.createCharacters("\t\t"));
-                writer.add(factory.createStartElement("", "", "event"));
-                writer.add(factory.createAttribute("uid", Long.toString((Long) event[i][0])));
-                writer.add(factory.createAttribute("name", (String) event[i][1]));
-                writer.add(factory.createAttribute("color", (String) event[i][3]));
-                writer.add(factory.createCharacters((String) event[i][2]));
-            }
+    public void awaitBackgroundWrites() {
+        backgroundSave = await(backgroundSave);
+        compaction = await(compaction);
+        autosave = await(autosave);
+    }
 
+    private Future<?> await(Future<?> future) {
+        if (future == null)
+            return null;
 
-            writer.add(factory.createEndElement("", "", "event"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
         }
+        return null;
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
+     * Writes a recovery copy of the project in the background, if there are any unsaved changes.
+     * The copy is written next to the project file, or in the working directory if the project is untitled,
+     * see {@link Project#recoveryFileOf(File)}. The managers and the project file are not affected.
+     * <p>
+     * To not compete with saving, nothing is written while the project file or a previous recovery copy
+     * is still being written. The recovery copy is written at the lowest thread priority.
+     * Must be called on the thread that makes changes to the project.
      *
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * @return true if a recovery copy is being written
      */
-    private void writeEventOrderLists(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException {
-        int i = 0;
-        Long[] orderList = eventManager.getEventOrder(i);
-        if (orderList == null)
-            return;
-
-        while (orderList != null) {
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "order_list"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-
-            for (int j = 0; j < orderList.length; j++) {
-                writer.add(factory.createCharacters("\t\t\t"));
-                writer.add(factory.createStartElement("", "", "li"));
-                writer.add(factory.createCharacters(Long.toString(orderList[j])));
-                writer.add(factory.createEndElement("", "", "li"));
-                writer.add(factory.createCharacters(System.lineSeparator()));
+    public boolean autosave() {
+        if (!hasUnsavedChanges() || isWriting(backgroundSave) || isWriting(compaction) || isWriting(autosave))
+            return false;
+
+        File file = currProjectFile != null ? recoveryFileOf(currProjectFile) : new File(workingDir, UNTITLED_RECOVERY_NAME);
+        ProjectCodec fileCodec = codecOf(file);
+        ProjectSnapshot snapshot = ProjectSnapshot.of(this);
+
+        if (autosaveFile != null && !autosaveFile.equals(file))
+            deleteAutosaveFile(); // The project has been saved as another file
+        autosaveFile = file;
+
+        autosave = getWriteExecutor().submit(() -> {
+            Thread thread = Thread.currentThread();
+            int priority = thread.getPriority();
+            thread.setPriority(Thread.MIN_PRIORITY);
+
+            File temp = new File(file.getPath() + ".tmp");
+            try {
+                writeProjectFile(temp, fileCodec, snapshot);
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException | XMLStreamException e) {
+                e.printStackTrace();
+            } finally {
+                thread.setPriority(priority);
             }
+        });
+        return true;
+    }
 
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createEndElement("", "", "order_list"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-
-            orderList = eventManager.getEventOrder(++i);
-        }
+    private static boolean isWriting(Future<?> future) {
+        return future != null && !future.isDone();
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     *
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * Deletes the last recovery copy written by {@link Project#autosave()}, after it has been written.
      */
-    private void writeCharacters(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException {
-        ArrayList<Object[]> chars = characterManager.getCharacterList();
-        if (chars == null)
+    private void deleteAutosaveFile() {
+        if (autosaveFile == null)
             return;
 
-        Object[] data;
-        for (int i = 0; i < chars.size(); i++) {
-            data = chars.get(i);
-
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "character"));
-            writer.add(factory.createAttribute("name", (String) data[0]));
-            writer.add(factory.createAttribute("uid", Long.toString((Long) data[1])));
-            writer.add(factory.createAttribute("chartX", Double.toString((Double) data[2])));
-            writer.add(factory.createAttribute("chartY", Double.toString((Double) data[3])));
-            writer.add(factory.createAttribute("eventName", (String) data[6]));
-            writer.add(factory.createAttribute("eventUID", Long.toString((Long) data[7])));
-            writer.add(factory.createAttribute("age", String.valueOf((int) data[8])));
-            writer.add(factory.createCharacters((String) data[4]));
-            writer.add(factory.createEndElement("", "", "character"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
+        autosave = await(autosave);
+        try {
+            Files.deleteIfExists(autosaveFile.toPath());
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        autosaveFile = null;
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     *
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * Deletes the recovery copy of the current project, unless the last save failed.
+     * Should be called when the user has chosen to discard the unsaved changes of the project.
      */
-    private void writeAssociations(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException {
-        Object[][] assocs = characterManager.getAssociationData();
-        if (assocs == null)
-            return;
-
-        Object[] data;
-        for (int i = 0; i < assocs.length; i++) {
-            data = assocs[i];
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "association"));
-            writer.add(factory.createAttribute("uid", Long.toString((Long) data[0])));
-            writer.add(factory.createAttribute("startUID", Long.toString((Long) data[1])));
-            writer.add(factory.createAttribute("endUID", Long.toString((Long) data[2])));
-            writer.add(factory.createAttribute("sX", Double.toString((Double) data[3])));
-            writer.add(factory.createAttribute("sY", Double.toString((Double) data[4])));
-            writer.add(factory.createAttribute("eX", Double.toString((Double) data[5])));
-            writer.add(factory.createAttribute("eY", Double.toString((Double) data[6])));
-            writer.add(factory.createAttribute("lblX", Double.toString((Double) data[8])));
-            writer.add(factory.createAttribute("lblY", Double.toString((Double) data[9])));
-
-            writer.add(factory.createCharacters((String) data[7]));
-
-            writer.add(factory.createEndElement("", "", "association"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-        }
+    public void discardRecovery() {
+        awaitBackgroundWrites();
+        if (!saveFailed)
+            deleteAutosaveFile();
     }
 
     /**
-     * Saves the current state of {@link Project#userPrefs} to the preferences file
+     * Returns the recovery file belonging to the given project file, ie. the project file name prefixed by ".~".
      *
-     * @throws IOException
-     * @throws XMLStreamException
+     * @param projectFile the project file
+     * @return the recovery file
      */
-    public void writeUserPrefs() throws IOException, XMLStreamException {
-        File file = new File(workingDir, "preferences.xml");
-        file.createNewFile();
-
-        try (FileOutputStream fileStream = new FileOutputStream(file, false)) {
-
-            XMLEventFactory eventFactory = XMLEventFactory.newFactory();
-            XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
-            XMLEventWriter eventWriter = outputFactory.createXMLEventWriter(fileStream);
-
-            eventWriter.add(eventFactory.createStartDocument("UTF-8", "1.0"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createStartElement("", "", "preferences"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            addPreference(eventFactory, eventWriter,
-                    "project_directory", userPrefs.projectDir);
-            addPreference(eventFactory, eventWriter,
-                    "window_maximized", Boolean.toString(userPrefs.windowMaximized));
-            addPreference(eventFactory, eventWriter,
-                    "window_width", Integer.toString(userPrefs.windowWidth));
-            addPreference(eventFactory, eventWriter,
-                    "window_height", Integer.toString(userPrefs.windowHeight));
+    public static File recoveryFileOf(File projectFile) {
+        return new File(projectFile.getParentFile(), RECOVERY_PREFIX + projectFile.getName());
+    }
 
-            eventWriter.add(eventFactory.createEndElement("", "", "preferences"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+    /**
+     * Returns the project file that the given recovery file belongs to.
+     *
+     * @param recoveryFile the recovery file
+     * @return the project file, or null if the recovery file belongs to an untitled project
+     */
+    private File projectFileOf(File recoveryFile) {
+        if (recoveryFile.equals(new File(workingDir, UNTITLED_RECOVERY_NAME)))
+            return null;
+        return new File(recoveryFile.getParentFile(), recoveryFile.getName().substring(RECOVERY_PREFIX.length()));
+    }
 
-            eventWriter.add(eventFactory.createEndDocument());
+    /**
+     * Returns whether there is a recovery file for the given project file, which is newer than
+     * both the project file and its journal.
+     *
+     * @param projectFile the project file, or null for an untitled project
+     * @return true if the recovery file should be offered to be restored
+     */
+    public boolean hasRecovery(File projectFile) {
+        File recoveryFile = projectFile != null ? recoveryFileOf(projectFile) : new File(workingDir, UNTITLED_RECOVERY_NAME);
+        if (!recoveryFile.isFile())
+            return false;
+        if (projectFile == null)
+            return true;
+
+        long saved = Math.max(projectFile.lastModified(), ProjectJournal.journalFileOf(projectFile).lastModified());
+        return recoveryFile.lastModified() > saved;
+    }
 
-            eventWriter.flush();
+    /**
+     * Looks for a recovery file left behind by a previous session, for an untitled project
+     * in the working directory, or for any project in the project directory of the user preferences.
+     *
+     * @return the most recent recovery file that is newer than its project file, or null if there is none
+     */
+    public File findRecovery() {
+        File newest = null;
+
+        File untitled = new File(workingDir, UNTITLED_RECOVERY_NAME);
+        if (hasRecovery(null))
+            newest = untitled;
+
+        File[] files = userPrefs.projectDir.isEmpty() ? null : new File(userPrefs.projectDir).listFiles(
+                (dir, name) -> name.startsWith(RECOVERY_PREFIX) && !name.endsWith(".tmp"));
+        if (files != null) {
+            for (File file : files) {
+                if (file.equals(untitled) || !hasRecovery(projectFileOf(file)))
+                    continue;
+                if (newest == null || file.lastModified() > newest.lastModified())
+                    newest = file;
+            }
         }
+        return newest;
     }
 
     /**
-     * Loads the given file as a project.
+     * Loads the given recovery file, as if it was the project file it belongs to.
      * This will discard any existing data, present in the currently loaded project.
+     * The project has unsaved changes until it is saved, which rewrites the project file in full.
      *
-     * @param projectFile the project file to load
+     * @param recoveryFile the recovery file, as returned by {@link Project#findRecovery()}
+     *                     or {@link Project#recoveryFileOf(File)}
      * @throws IOException
      * @throws XMLStreamException
      */
-    public void loadProject(File projectFile) throws IOException, XMLStreamException {
+    public void restoreRecovery(File recoveryFile) throws IOException, XMLStreamException {
+        awaitBackgroundWrites();
+        changeNotifier.beginBatch();
         clearProject();
 
-        try (FileInputStream fileStream = new FileInputStream(projectFile)) {
-
-            XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-            XMLEventReader eventReader = inputFactory.createXMLEventReader(fileStream);
-
-            XMLEvent event;
-            while (eventReader.hasNext()) {
-                event = eventReader.nextEvent();
-
-                if (event.isStartElement()) {
-                    StartElement startElement = event.asStartElement();
-                    switch (startElement.getName().getLocalPart()) {
-                        case "project":
-                            Attribute projName = startElement.getAttributes().next();
-                            if (projName.getName().getLocalPart() == "name")
-                                currProjectName = projName.getValue();
-                            break;
-                        case "uid_manager":
-                            loadUIDManager(event, eventReader);
-                            break;
-                        case "chapters":
-                            loadChapters(event, eventReader);
-                            break;
-                        case "chapter_order":
-                            loadChapterOrderLists(event, eventReader);
-                            break;
-                        case "events":
-                            loadEvents(event, eventReader);
-                            break;
-                        case "event_order":
-                            loadEventOrderLists(event, eventReader);
-                            break;
-                        case "characters":
-                            loadCharacters(event, eventReader);
-                            break;
-                        case "associations":
-                            loadAssociations(event, eventReader);
-                            break;
-                    }
-                }
-            }
+        try {
+            readProjectFile(recoveryFile);
         } finally {
-            currProjectFile = projectFile;
+            currProjectFile = projectFileOf(recoveryFile);
+            autosaveFile = recoveryFile;
             eventManager.resetChanges();
             characterManager.resetChanges();
             chapterManager.resetChanges();
+            restored = true;
+            changeNotifier.endBatch();
         }
     }
 
     /**
-     * Saves the current state of the project data into the file, {@link Project#currProjectFile}.
+     * Sets the journal that the managers record changes to.
      *
-     * @throws IOException
-     * @throws XMLStreamException
+     * @param projectJournal the journal, or null to stop recording
      */
-    public void saveProject() throws IOException, XMLStreamException {
-        if (currProjectFile == null)
-            throw new NullPointerException("currProjectFile must not be null");
+    private void setJournal(ProjectJournal projectJournal) {
+        journal = projectJournal;
+        eventManager.setJournal(projectJournal);
+        characterManager.setJournal(projectJournal);
+        chapterManager.setJournal(projectJournal);
+    }
 
-        currProjectFile.createNewFile();
+    /**
+     * Sets whether saving should append changes to a journal, rather than rewriting the project file.
+     * Takes effect the next time a project is loaded or saved in full.
+     *
+     * @param enabled true to use a journal
+     */
+    public void setJournalEnabled(boolean enabled) {
+        journalEnabled = enabled;
+        if (!enabled)
+            setJournal(null);
+    }
 
-        if (currProjectName.isEmpty())
-            currProjectName = currProjectFile.getName();
+    /**
+     * Sets the size of the journal file, in bytes, at which it is folded into the project file.
+     *
+     * @param threshold the size in bytes
+     */
+    public void setCompactionThreshold(long threshold) {
+        compactionThreshold = threshold;
+    }
 
-        try (FileOutputStream fileStream = new FileOutputStream(currProjectFile, false)) {
+    /**
+     * Writes the current state of the project data into the given file, without making it
+     * the current project file. The format is decided by the extension of the file, see
+     * {@link BinaryCodec#isBinaryFile(File)}. This can be used to convert between formats.
+     *
+     * @param file the file to export to
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public void exportProject(File file) throws IOException, XMLStreamException {
+        ProjectSnapshot snapshot = ProjectSnapshot.of(this);
+        if (isMapped(file)) {
+            File temp = new File(file.getPath() + ".tmp");
+            writeProjectFile(temp, codecOf(file), snapshot);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            writeProjectFile(file, snapshot);
+        }
+    }
 
-            XMLEventFactory eventFactory = XMLEventFactory.newFactory();
-            XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
-            XMLEventWriter eventWriter = outputFactory.createXMLEventWriter(fileStream);
+    /**
+     * Internal helper method to {@link Project#saveProject()} and {@link Project#exportProject(File)}
+     *
+     * @param file     the file to write to
+     * @param snapshot the snapshot to write
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private void writeProjectFile(File file, ProjectSnapshot snapshot) throws IOException, XMLStreamException {
+        writeProjectFile(file, codecOf(file), snapshot);
+    }
 
-            eventWriter.add(eventFactory.createStartDocument("UTF-8", "1.0"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+    /**
+     * Writes the snapshot to the given file, using the given codec. Safe to call on a background thread.
+     *
+     * @param file      the file to write to
+     * @param fileCodec the codec to write with
+     * @param snapshot  the snapshot to write
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static void writeProjectFile(File file, ProjectCodec fileCodec, ProjectSnapshot snapshot)
+            throws IOException, XMLStreamException {
+        writeProjectFile(file, fileCodec, snapshot, null);
+    }
 
-            eventWriter.add(eventFactory.createStartElement("", "", "project"));
-            eventWriter.add(eventFactory.createAttribute("name", currProjectName));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+    /**
+     * Writes the snapshot to the given file, using the given codec. Safe to call on a background thread.
+     * <p>
+     * If the codec is a {@link SectionedCodec}, and the file still holds the sections of the previous layout,
+     * the file is only written from the first section that has changed. If no section has changed,
+     * nothing is written.
+     *
+     * @param file      the file to write to
+     * @param fileCodec the codec to write with
+     * @param snapshot  the snapshot to write
+     * @param previous  the layout of the file when it was last written, or null
+     * @return the layout of the file, or null if the codec is not a {@link SectionedCodec}
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static FileLayout writeProjectFile(File file, ProjectCodec fileCodec, ProjectSnapshot snapshot,
+                                               FileLayout previous) throws IOException, XMLStreamException {
+        file.createNewFile();
 
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "uid_manager"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeUIDManager(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "uid_manager"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        if (!(fileCodec instanceof SectionedCodec)) {
+            try (FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                fileCodec.write(channel, snapshot);
+            }
+            return null;
+        }
 
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "chapters"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeChapters(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "chapters"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        ByteBuffer[] sections = ((SectionedCodec) fileCodec).render(snapshot);
+        FileLayout layout = FileLayout.of(sections);
+        int first = previous != null && previous.matches(file) ? layout.firstDifference(previous) : 0;
+        if (first == sections.length)
+            return previous;
 
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "chapter_order"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeChapterOrderLists(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "chapter_order"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.position(layout.offsetOf(first));
+            ProjectCodec.writeFully(channel, Arrays.copyOfRange(sections, first, sections.length));
+            channel.truncate(layout.offsetOf(sections.length));
+        }
+        return layout.stamp(file);
+    }
 
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "events"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeEvents(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "events"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+    /**
+     * Writes the snapshot to a temporary file, which then replaces the given file, and marks the journal as
+     * compacted. The file is left as it is if it still holds the same sections as those rendered for the snapshot.
+     * Safe to call on a background thread.
+     *
+     * @param file           the file to replace
+     * @param fileCodec      the codec to write with
+     * @param snapshot       the snapshot to write
+     * @param previous       the layout of the file when it was last written, or null
+     * @param projectJournal the journal of the file
+     * @param foldedLength   the length of the journal that the snapshot includes, see {@link ProjectJournal#compacted(long)}
+     * @return the layout of the file, or null if the codec is not a {@link SectionedCodec}
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static FileLayout replaceProjectFile(File file, ProjectCodec fileCodec, ProjectSnapshot snapshot,
+                                                 FileLayout previous, ProjectJournal projectJournal, long foldedLength)
+            throws IOException, XMLStreamException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileLayout layout = null;
+
+        if (fileCodec instanceof SectionedCodec) {
+            ByteBuffer[] sections = ((SectionedCodec) fileCodec).render(snapshot);
+            layout = FileLayout.of(sections);
+            if (previous != null && previous.matches(file) && layout.firstDifference(previous) == sections.length) {
+                synchronized (projectJournal) {
+                    projectJournal.compacted(foldedLength);
+                }
+                return previous;
+            }
 
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "event_order"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeEventOrderLists(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "event_order"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+            temp.createNewFile();
+            try (FileChannel channel = FileChannel.open(temp.toPath(),
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ProjectCodec.writeFully(channel, sections);
+            }
+        } else {
+            writeProjectFile(temp, fileCodec, snapshot);
+        }
 
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "characters"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeCharacters(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "characters"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        synchronized (projectJournal) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            projectJournal.compacted(foldedLength);
+        }
+        return layout == null ? null : layout.stamp(file);
+    }
 
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "associations"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeAssociations(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "associations"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+    /**
+     * Returns whether saving would not change anything: there are no unsaved changes, and the project file
+     * is the same as when it was last loaded or written by this project, with no journal next to it.
+     *
+     * @return true if the project file is up to date
+     */
+    private boolean isProjectFileUpToDate() {
+        FileLayout layout = fileLayout;
+        return !hasUnsavedChanges()
+                && layout != null && layout.matches(currProjectFile)
+                && !ProjectJournal.journalFileOf(currProjectFile).exists();
+    }
 
-            eventWriter.add(eventFactory.createEndElement("", "", "project"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+    /**
+     * Reads the given file into the project, using the codec decided by its extension.
+     * Internal helper method to {@link Project#loadProject(File)} and {@link Project#restoreRecovery(File)}.
+     *
+     * @param file the file to read
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private void readProjectFile(File file) throws IOException, XMLStreamException {
+        if (BinaryCodec.isBinaryFile(file)) {
+            binaryCodec.read(file, this);
+            if (binaryCodec.isLazyDescriptions()) {
+                mappedFile = file.getAbsoluteFile();
+                mappedFileKey = fileKeyOf(file);
+            }
+        } else {
+            try (InputStream fileStream = new BufferedInputStream(new FileInputStream(file), IO_BUFFER_SIZE)) {
+                ProjectCodec fileCodec = codecOf(file);
+                if (fileCodec instanceof XMLStreamCodec)
+                    ((XMLStreamCodec) fileCodec).read(fileStream, file.length(), this);
+                else
+                    fileCodec.read(fileStream, this);
+            }
+        }
+    }
 
-            eventWriter.add(eventFactory.createEndDocument());
+    /**
+     * Returns whether descriptions of the project may still be read from the given file, see {@link LazyText},
+     * in which case the file must be replaced by a new file rather than written in place. Once the file has been
+     * replaced, the descriptions are read from the old file, which is kept by its mapping until it is released.
+     *
+     * @param file the file to check
+     * @return true if the file is mapped by the project
+     */
+    private boolean isMapped(File file) {
+        if (mappedFile == null || !mappedFile.equals(file.getAbsoluteFile()))
+            return false;
 
-            eventWriter.flush();
+        Object key = fileKeyOf(file);
+        return mappedFileKey == null || mappedFileKey.equals(key);
+    }
 
-            eventManager.resetChanges();
-            characterManager.resetChanges();
+    /**
+     * Returns the key that identifies the given file on its file system, such as its inode.
+     *
+     * @return the key, or null if it is not available
+     */
+    private static Object fileKeyOf(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
         }
     }
 
+    /**
+     * Returns the codec that reads and writes the given file, decided by its extension.
+     *
+     * @param file the project file
+     * @return {@link Project#binaryCodec}, {@link Project#compressedCodec} or {@link Project#codec}
+     */
+    private ProjectCodec codecOf(File file) {
+        if (BinaryCodec.isBinaryFile(file))
+            return binaryCodec;
+        if (CompressedCodec.isCompressedFile(file))
+            return compressedCodec;
+        return codec;
+    }
+
     /**
      * Discards all data currently loaded. Does not overwrite or erase any file.
      * This only affects the data currently loaded in the application.
@@ -949,12 +1000,73 @@ public class Project {
      * @Author Alexander Olsson
      */
     public void clearProject() {
-        eventManager.clear();
-        characterManager.clear();
-        chapterManager.clear();
-        UIDManager.clear();
+        setJournal(null);
+        mappedFile = null;
+        mappedFileKey = null;
+        changeNotifier.beginBatch();
+        try {
+            eventManager.clear();
+            characterManager.clear();
+            chapterManager.clear();
+        } finally {
+            changeNotifier.endBatch();
+        }
+        textIndex.clear();
+        uidManager.clear();
         currProjectName = "";
         currProjectFile = null;
+        autosaveFile = null;
+        fileLayout = null;
+        restored = false;
+    }
+
+    /**
+     * Returns the type of the entity with the given UID.
+     * <p>
+     * The type encoded in the UID, see {@link UIDManager#typeOf(long)}, is checked first. Since a random UID from an
+     * older project file may look like it encodes a type, the other managers are only searched if that fails.
+     *
+     * @param uid the UID of the entity
+     * @return the type of the entity, or null if there is no entity with the UID
+     */
+    public EntityType getEntityType(long uid) {
+        EntityType encoded = UIDManager.typeOf(uid);
+        if (encoded != null && hasEntity(encoded, uid))
+            return encoded;
+
+        for (EntityType type : EntityType.values()) {
+            if (type != encoded && hasEntity(type, uid))
+                return type;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the UIDs of the characters in any event of the given chapter, in ascending order.
+     * Takes time proportional to the number of events and characters found, since both are looked up
+     * in the reverse indexes of the managers, see {@link EventManager#getEventsInChapter(long)}
+     * and {@link CharacterManager#getCharactersInEvents(long[])}.
+     *
+     * @param chapterUID the UID of the chapter
+     * @return a new array of the UIDs of the characters
+     */
+    public long[] getCharactersInChapter(long chapterUID) {
+        return characterManager.getCharactersInEvents(eventManager.getEventsInChapter(chapterUID));
+    }
+
+    private boolean hasEntity(EntityType type, long uid) {
+        switch (type) {
+            case CHAPTER:
+                return chapterManager.getChapter(uid) != null;
+            case EVENT:
+                return eventManager.getEvent(uid) != null;
+            case CHARACTER:
+                return characterManager.hasCharacter(uid);
+            case ASSOCIATION:
+                return characterManager.hasAssociation(uid);
+            default:
+                return false;
+        }
     }
 
     /**
@@ -964,7 +1076,10 @@ public class Project {
      */
     public boolean hasUnsavedChanges() {
         return eventManager.hasChanged() ||
-                characterManager.hasChanged();
+                characterManager.hasChanged() ||
+                chapterManager.hasChanged() ||
+                saveFailed ||
+                restored;
     }
 
     /**
@@ -0,0 +1,77 @@
+package com.team34.model;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * A codec reads and writes the contents of a project file.
+ * <p>
+ * {@link Project} opens and closes the file streams and handles the project file bookkeeping,
+ * while the codec only concerns itself with the format of the bytes. This allows different
+ * implementations of the same format to be swapped through {@link Project#setCodec(ProjectCodec)}.
+ *
+ * @author Hazem Elkhalil
+ */
+public interface ProjectCodec {
+
+    /**
+     * Reads a project from the given stream into the managers of the given project.
+     * The project is expected to have been cleared beforehand.
+     *
+     * @param in      the stream to read from
+     * @param project the project to load the data into
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    void read(InputStream in, Project project) throws IOException, XMLStreamException;
+
+    /**
+     * Writes a snapshot of a project to the stream. This may be called on a background thread,
+     * and must therefore only read from the snapshot, never from the project it was taken of.
+     *
+     * @param out      the stream to write to
+     * @param snapshot the snapshot to write
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    void write(OutputStream out, ProjectSnapshot snapshot) throws IOException, XMLStreamException;
+
+    /**
+     * Writes a snapshot of a project to the file channel, like {@link ProjectCodec#write(OutputStream, ProjectSnapshot)}.
+     * Codecs may override this to render the sections of the file in parallel, and write them all at once.
+     * The channel is not closed.
+     *
+     * @param channel  the channel to write to
+     * @param snapshot the snapshot to write
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    default void write(FileChannel channel, ProjectSnapshot snapshot) throws IOException, XMLStreamException {
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+        write(out, snapshot);
+        out.flush();
+    }
+
+    /**
+     * Writes every buffer to the channel, with as few gathering writes as the channel allows.
+     *
+     * @param channel the channel to write to
+     * @param buffers the buffers to write, in order
+     * @throws IOException
+     */
+    static void writeFully(GatheringByteChannel channel, ByteBuffer[] buffers) throws IOException {
+        int first = 0;
+        while (first < buffers.length) {
+            channel.write(buffers, first, buffers.length - first);
+            while (first < buffers.length && !buffers[first].hasRemaining())
+                first++;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.team34.model;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts project files between the XML format (wsp), the binary format (wspb) and the compressed format (wspz).
+ * The format of each file is decided by its extension, see {@link BinaryCodec#isBinaryFile(File)}
+ * and {@link CompressedCodec#isCompressedFile(File)}.
+ * <p>
+ * All formats store the same data, so converting a file back and forth does not lose anything.
+ * The conversion uses a project of its own, so it does not affect any other project that is loaded.
+ *
+ * @author Hazem Elkhalil
+ */
+public class ProjectConverter {
+
+    /**
+     * Loads the source file and writes it to the target file, in the format of the target file.
+     *
+     * @param source the project file to convert
+     * @param target the file to write the converted project to
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static void convert(File source, File target) throws IOException, XMLStreamException {
+        Project project = new Project();
+        project.loadProject(source);
+        project.exportProject(target);
+        project.clearProject();
+    }
+
+    /**
+     * Converts a project file from the command line.
+     *
+     * @param args the source file and the target file
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: ProjectConverter <source.wsp|.wspb|.wspz> <target.wsp|.wspb|.wspz>");
+            return;
+        }
+
+        try {
+            convert(new File(args[0]), new File(args[1]));
+        } catch (IOException | XMLStreamException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package com.team34.model;
+
+import com.team34.model.chapter.Chapter;
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.character.Character;
+import com.team34.model.event.Event;
+import com.team34.model.event.EventListObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of changes made to a project since its file was last written in full.
+ * <p>
+ * The managers record one entry for each change made to them. The entries are kept in memory until
+ * {@link ProjectJournal#append()} is called, which appends them to the journal file next to the project file
+ * (eg. "story.wsp.journal"). When a project is loaded, the journal is replayed on top of the project file,
+ * see {@link ProjectJournal#replay(Project)}. This way, saving only needs to write the changes, rather than
+ * the whole project.
+ * <p>
+ * The journal file starts with a stamp of the project file it was started for (its length and time of
+ * last modification). If the project file has been rewritten since, the journal is stale, and is ignored.
+ * When the journal grows too large, {@link Project} folds it into the project file by writing the project
+ * in full, then calls {@link ProjectJournal#compacted(long)}.
+ * <p>
+ * Each entry is stored as its length, a CRC-32 checksum, its type and its data, so that an entry cut short by
+ * a crash, or damaged in any other way, is detected rather than applied. Replaying stops at the first such entry,
+ * and the journal file is truncated there, so that the entries appended afterwards are not read as part of it.
+ * Entries store the state of an entity after the change, rather than the change itself.
+ *
+ * @author Hazem Elkhalil
+ */
+public class ProjectJournal {
+
+    public static final String EXTENSION = ".journal";
+
+    private static final int MAGIC = 0x57534A32; // "WSJ2", entries with checksums
+    private static final int HEADER_SIZE = 20;
+    private static final int ENTRY_HEADER_SIZE = 9; // Length, checksum and type
+
+    private static final byte EVENT_PUT = 1;
+    private static final byte EVENT_REMOVE = 2;
+    private static final byte EVENT_MOVE = 3;
+    private static final byte EVENT_SWAP = 4;
+    private static final byte CHAPTER_PUT = 5;
+    private static final byte CHAPTER_REMOVE = 6;
+    private static final byte CHARACTER_PUT = 7;
+    private static final byte CHARACTER_REMOVE = 8;
+    private static final byte ASSOCIATION_PUT = 9;
+    private static final byte ASSOCIATION_REMOVE = 10;
+    private static final byte EVENT_ORDER_FORK = 11;
+
+    private final File baseFile;
+    private final File journalFile;
+    private long baseLength;
+    private long baseModified;
+    private long validLength;
+
+    private final ByteArrayOutputStream pending;
+    private final ByteArrayOutputStream entryBytes;
+    private final DataOutputStream entry;
+
+    /**
+     * Constructs a journal for the given project file, and stamps it with the current state of the file.
+     *
+     * @param baseFile the project file
+     */
+    public ProjectJournal(File baseFile) {
+        this.baseFile = baseFile;
+        this.journalFile = journalFileOf(baseFile);
+        pending = new ByteArrayOutputStream();
+        entryBytes = new ByteArrayOutputStream();
+        entry = new DataOutputStream(entryBytes);
+        validLength = -1L;
+        stampBase();
+    }
+
+    /**
+     * Returns the journal file belonging to the given project file.
+     *
+     * @param baseFile the project file
+     * @return the journal file
+     */
+    public static File journalFileOf(File baseFile) {
+        return new File(baseFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Returns the project file this journal belongs to.
+     *
+     * @return {@link ProjectJournal#baseFile}
+     */
+    public File getBaseFile() {
+        return baseFile;
+    }
+
+    private synchronized void stampBase() {
+        baseLength = baseFile.length();
+        baseModified = baseFile.lastModified();
+    }
+
+    /**
+     * Returns whether the project file is still the same as when this journal was stamped.
+     *
+     * @return true if the journal can be appended to
+     */
+    public synchronized boolean matchesBase() {
+        return baseFile.exists()
+                && baseFile.length() == baseLength
+                && baseFile.lastModified() == baseModified;
+    }
+
+    /**
+     * Makes {@link ProjectJournal#matchesBase()} return false until the journal is stamped again by
+     * {@link ProjectJournal#compacted(long)}. Used while the project file is being rewritten in the background,
+     * so that nothing is appended to the journal before the new project file is in place.
+     */
+    public synchronized void invalidate() {
+        baseLength = -1L;
+        baseModified = -1L;
+    }
+
+    ////// RECORDING ///////////////////////////////////////////////////////////
+
+    /**
+     * Records the current state of an event. Used both for new and edited events.
+     * A description that has not been loaded is copied as it is, without loading it.
+     *
+     * @param uid     the UID of the event
+     * @param event   the event
+     * @param chapter the chapter of the event, or null if it has none
+     */
+    public void recordEvent(long uid, Event event, ChapterListObject chapter) {
+        try {
+            entry.writeLong(uid);
+            BinaryCodec.writeString(entry, event.getName());
+            BinaryCodec.writeText(entry, event.getLazyDescription());
+            BinaryCodec.writeString(entry, chapter != null ? chapter.getColor() : "");
+            entry.writeBoolean(chapter != null);
+            if (chapter != null) {
+                entry.writeLong(chapter.getUid());
+                BinaryCodec.writeString(entry, chapter.getTitle());
+                BinaryCodec.writeString(entry, chapter.getColor());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Writing to memory does not fail
+        }
+        endEntry(EVENT_PUT);
+    }
+
+    public void recordEventRemoved(long uid) {
+        recordRemoved(EVENT_REMOVE, uid);
+    }
+
+    public void recordEventMoved(int orderList, int fromIndex, int toIndex) {
+        recordOrderChange(EVENT_MOVE, orderList, fromIndex, toIndex);
+    }
+
+    public void recordEventSwapped(int orderList, int index1, int index2) {
+        recordOrderChange(EVENT_SWAP, orderList, index1, index2);
+    }
+
+    public void recordEventOrderForked(int orderList) {
+        try {
+            entry.writeInt(orderList);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        endEntry(EVENT_ORDER_FORK);
+    }
+
+    /**
+     * Records the current state of a chapter. Used both for new and edited chapters.
+     *
+     * @param uid     the UID of the chapter
+     * @param chapter the chapter
+     */
+    public void recordChapter(long uid, Chapter chapter) {
+        try {
+            entry.writeLong(uid);
+            BinaryCodec.writeString(entry, chapter.getName());
+            BinaryCodec.writeString(entry, chapter.getDescription());
+            BinaryCodec.writeString(entry, chapter.getColor());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        endEntry(CHAPTER_PUT);
+    }
+
+    public void recordChapterRemoved(long uid) {
+        recordRemoved(CHAPTER_REMOVE, uid);
+    }
+
+    /**
+     * Records the current state of a character. Used both for new and edited characters.
+     * A description that has not been loaded is copied as it is, without loading it.
+     *
+     * @param uid       the UID of the character
+     * @param character the character
+     */
+    public void recordCharacter(long uid, Character character) {
+        try {
+            entry.writeLong(uid);
+            BinaryCodec.writeString(entry, character.getName());
+            BinaryCodec.writeText(entry, character.getLazyDescription());
+            entry.writeInt(character.getAge());
+            entry.writeDouble(character.getChartPositionX());
+            entry.writeDouble(character.getChartPositionY());
+            EventListObject event = character.getEvent();
+            entry.writeBoolean(event != null);
+            if (event != null) {
+                entry.writeLong(event.getUid());
+                BinaryCodec.writeString(entry, event.getTitle());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        endEntry(CHARACTER_PUT);
+    }
+
+    public void recordCharacterRemoved(long uid) {
+        recordRemoved(CHARACTER_REMOVE, uid);
+    }
+
+    /**
+     * Records the current state of an association. Used both for new and edited associations.
+     */
+    public void recordAssociation(long uid, long sCharUID, long eCharUID, double sX, double sY,
+                                  double eX, double eY, String label, double lblX, double lblY) {
+        try {
+            entry.writeLong(uid);
+            entry.writeLong(sCharUID);
+            entry.writeLong(eCharUID);
+            entry.writeDouble(sX);
+            entry.writeDouble(sY);
+            entry.writeDouble(eX);
+            entry.writeDouble(eY);
+            BinaryCodec.writeString(entry, label);
+            entry.writeDouble(lblX);
+            entry.writeDouble(lblY);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        endEntry(ASSOCIATION_PUT);
+    }
+
+    public void recordAssociationRemoved(long uid) {
+        recordRemoved(ASSOCIATION_REMOVE, uid);
+    }
+
+    private void recordRemoved(byte type, long uid) {
+        try {
+            entry.writeLong(uid);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        endEntry(type);
+    }
+
+    private void recordOrderChange(byte type, int orderList, int a, int b) {
+        try {
+            entry.writeInt(orderList);
+            entry.writeInt(a);
+            entry.writeInt(b);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        endEntry(type);
+    }
+
+    /**
+     * Moves the entry that has been written to {@link ProjectJournal#entry} into the pending entries,
+     * prefixed by its length, checksum and type.
+     *
+     * @param type the type of the entry
+     */
+    private void endEntry(byte type) {
+        byte[] data = entryBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data);
+
+        writeInt(pending, data.length + 1);
+        writeInt(pending, (int) crc.getValue());
+        pending.write(type);
+        pending.writeBytes(data);
+        entryBytes.reset();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Returns whether there are entries that have not been appended to the journal file.
+     *
+     * @return true if there are pending entries
+     */
+    public boolean hasPending() {
+        return pending.size() > 0;
+    }
+
+    /**
+     * Discards the entries that have not been appended to the journal file.
+     */
+    public void discardPending() {
+        pending.reset();
+    }
+
+    ////// FILE ////////////////////////////////////////////////////////////////
+
+    /**
+     * Appends the pending entries to the journal file. The file is created if it does not exist.
+     * Anything after the last entry known to be whole, such as the rest of an append that failed,
+     * is cut off first, so that the new entries directly follow the valid ones.
+     *
+     * @throws IOException
+     */
+    public synchronized void append() throws IOException {
+        if (!hasPending())
+            return;
+
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long end = channel.size();
+            if (end < HEADER_SIZE) {
+                channel.truncate(0L);
+                ProjectCodec.writeFully(channel, new ByteBuffer[]{ByteBuffer.wrap(header())});
+                end = HEADER_SIZE;
+            } else if (validLength >= HEADER_SIZE && end > validLength) {
+                channel.truncate(validLength);
+                end = validLength;
+            }
+
+            channel.position(end);
+            ProjectCodec.writeFully(channel, new ByteBuffer[]{ByteBuffer.wrap(pending.toByteArray())});
+            channel.force(true);
+            validLength = end + pending.size();
+        }
+        pending.reset();
+    }
+
+    /**
+     * Returns the current length of the journal file.
+     *
+     * @return the length in bytes, or 0 if there is no journal file
+     */
+    public synchronized long length() {
+        return journalFile.length();
+    }
+
+    /**
+     * Deletes the journal file, and discards all pending entries.
+     *
+     * @throws IOException
+     */
+    public synchronized void delete() throws IOException {
+        Files.deleteIfExists(journalFile.toPath());
+        pending.reset();
+        validLength = -1L;
+    }
+
+    /**
+     * Must be called after the project file has been rewritten with every entry up to the given
+     * length of the journal file. Those entries are removed from the journal file, and the journal is
+     * stamped with the new state of the project file. Entries appended after the given length are kept.
+     *
+     * @param foldedLength the length of the journal file when the project was written
+     * @throws IOException
+     */
+    public synchronized void compacted(long foldedLength) throws IOException {
+        stampBase();
+
+        byte[] journal = journalFile.exists() ? Files.readAllBytes(journalFile.toPath()) : new byte[0];
+        int end = validLength >= HEADER_SIZE ? (int) Math.min(validLength, journal.length) : journal.length;
+        int keepFrom = (int) Math.max(HEADER_SIZE, Math.min(foldedLength, end));
+        if (end <= keepFrom) {
+            Files.deleteIfExists(journalFile.toPath());
+            validLength = -1L;
+            return;
+        }
+
+        File temp = new File(journalFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp, false)) {
+            out.write(header());
+            out.write(Arrays.copyOfRange(journal, keepFrom, end));
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        validLength = HEADER_SIZE + end - keepFrom;
+    }
+
+    private byte[] header() {
+        return ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putLong(baseLength)
+                .putLong(baseModified)
+                .array();
+    }
+
+    ////// REPLAY //////////////////////////////////////////////////////////////
+
+    /**
+     * Applies the entries of the journal file to the given project, which must contain the data of the
+     * project file. A stale journal file, belonging to an earlier version of the project file, is deleted.
+     * If an entry is cut short or fails its checksum, the journal file is truncated before it.
+     * The journal should not be attached to the managers while replaying, or the entries would be recorded again.
+     *
+     * @param project the project to apply the entries to
+     * @return the number of entries applied
+     * @throws IOException
+     */
+    public synchronized int replay(Project project) throws IOException {
+        if (!journalFile.exists())
+            return 0;
+
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+        if (buf.remaining() < HEADER_SIZE
+                || buf.getInt() != MAGIC
+                || buf.getLong() != baseLength
+                || buf.getLong() != baseModified) {
+            Files.deleteIfExists(journalFile.toPath());
+            return 0;
+        }
+
+        int applied = 0;
+        int end = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (buf.remaining() >= ENTRY_HEADER_SIZE) {
+            int length = buf.getInt();
+            int checksum = buf.getInt();
+            if (length < 1 || length > buf.remaining()) // Cut short by a crash
+                break;
+
+            ByteBuffer data = buf.slice().limit(length);
+            crc.reset();
+            crc.update(data.duplicate());
+            if ((int) crc.getValue() != checksum)
+                break;
+
+            buf.position(buf.position() + length);
+            apply(data.get(), data, project);
+            end = buf.position();
+            applied++;
+        }
+
+        if (end < buf.limit()) {
+            try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+        }
+        validLength = end;
+        return applied;
+    }
+
+    private void apply(byte type, ByteBuffer data, Project project) {
+        long uid;
+        switch (type) {
+            case EVENT_PUT: {
+                uid = data.getLong();
+                String name = BinaryCodec.readString(data);
+                String description = BinaryCodec.readString(data);
+                String color = BinaryCodec.readString(data);
+                ChapterListObject chapter = null;
+                if (data.get() != 0) {
+                    long chapterUID = data.getLong();
+                    chapter = new ChapterListObject(BinaryCodec.readString(data), chapterUID, BinaryCodec.readString(data));
+                }
+                project.eventManager.restoreEvent(uid, name, description, color, chapter);
+                break;
+            }
+            case EVENT_REMOVE:
+                uid = data.getLong();
+                if (project.eventManager.getEvent(uid) != null)
+                    project.eventManager.removeEvent(uid);
+                break;
+            case EVENT_MOVE:
+                project.eventManager.moveEvent(data.getInt(), data.getInt(), data.getInt());
+                break;
+            case EVENT_SWAP:
+                project.eventManager.swapEvent(data.getInt(), data.getInt(), data.getInt());
+                break;
+            case EVENT_ORDER_FORK:
+                project.eventManager.forkOrderList(data.getInt());
+                break;
+            case CHAPTER_PUT:
+                uid = data.getLong();
+                project.chapterManager.restoreChapter(uid,
+                        BinaryCodec.readString(data), BinaryCodec.readString(data), BinaryCodec.readString(data));
+                break;
+            case CHAPTER_REMOVE:
+                uid = data.getLong();
+                if (project.chapterManager.getChapter(uid) != null)
+                    project.chapterManager.removeChapter(uid);
+                break;
+            case CHARACTER_PUT: {
+                uid = data.getLong();
+                String name = BinaryCodec.readString(data);
+                String description = BinaryCodec.readString(data);
+                int age = data.getInt();
+                double x = data.getDouble();
+                double y = data.getDouble();
+                EventListObject event = null;
+                if (data.get() != 0) {
+                    long eventUID = data.getLong();
+                    event = new EventListObject(BinaryCodec.readString(data), eventUID);
+                }
+                project.characterManager.restoreCharacter(uid, name, description, age, event, x, y);
+                break;
+            }
+            case CHARACTER_REMOVE:
+                project.characterManager.deleteCharacter(data.getLong());
+                break;
+            case ASSOCIATION_PUT:
+                uid = data.getLong();
+                project.characterManager.restoreAssociation(uid, data.getLong(), data.getLong(),
+                        data.getDouble(), data.getDouble(), data.getDouble(), data.getDouble(),
+                        BinaryCodec.readString(data), data.getDouble(), data.getDouble());
+                break;
+            case ASSOCIATION_REMOVE:
+                project.characterManager.deleteAssociation(data.getLong());
+                break;
+            default: // Unknown entry, written by a newer version
+                break;
+        }
+    }
+}
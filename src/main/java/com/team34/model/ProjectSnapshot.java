@@ -0,0 +1,234 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+/**
+ * An immutable copy of the data of a project, taken at a single point in time.
+ * <p>
+ * Taking a snapshot only copies references to the values of each entity, such as names and descriptions,
+ * which are themselves immutable. This makes it cheap compared to writing the project, and allows the
+ * snapshot to be written by a {@link ProjectCodec} on a background thread, while the project keeps changing.
+ * Descriptions that have not been loaded yet are kept as {@link LazyText}, and are only read by the codec,
+ * without being decoded into the project.
+ * <p>
+ * The entities of each kind are listed in ascending order of UID, so that a project is always written the same way,
+ * whereas the managers pass them in no particular order.
+ * <p>
+ * A snapshot must be taken on the thread that makes changes to the project, ie. the JavaFX Application Thread.
+ * <p>
+ * The only mutable part of a snapshot is its progress, which is advanced by the codec as each
+ * entity is written, and reported to the listener given when the snapshot was taken.
+ * The progress may be advanced by several threads at once, when sections are written in parallel.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class ProjectSnapshot {
+
+    public final String projectName;
+    public final long[] uids;
+    public final List<ChapterData> chapters;
+    public final List<long[]> chapterOrderLists;
+    public final List<EventData> events;
+    public final List<long[]> eventOrderLists;
+    public final List<CharacterData> characters;
+    public final List<AssociationData> associations;
+
+    private final DoubleConsumer progressListener;
+    private final int total;
+    private final AtomicInteger written;
+    private final AtomicInteger lastReported;
+
+    private ProjectSnapshot(Project project, DoubleConsumer progressListener) {
+        projectName = project.getProjectName();
+
+        uids = project.uidManager.getUIDArray();
+
+        ArrayList<ChapterData> chapterList = new ArrayList<>();
+        project.chapterManager.forEachChapter((uid, name, description, color) ->
+                chapterList.add(new ChapterData(uid, name, description, color)));
+        chapterList.sort(Comparator.comparingLong(chapter -> chapter.uid));
+        chapters = Collections.unmodifiableList(chapterList);
+
+        ArrayList<long[]> chapterOrders = new ArrayList<>();
+        long[] order;
+        while ((order = project.chapterManager.getChapterOrderArray(chapterOrders.size())) != null)
+            chapterOrders.add(order);
+        chapterOrderLists = Collections.unmodifiableList(chapterOrders);
+
+        ArrayList<EventData> eventList = new ArrayList<>();
+        project.eventManager.forEachEvent((uid, name, description, color, chapter) ->
+                eventList.add(new EventData(uid, name, description, color, chapter)));
+        eventList.sort(Comparator.comparingLong(event -> event.uid));
+        events = Collections.unmodifiableList(eventList);
+
+        ArrayList<long[]> eventOrders = new ArrayList<>();
+        while ((order = project.eventManager.getEventOrderArray(eventOrders.size())) != null)
+            eventOrders.add(order);
+        eventOrderLists = Collections.unmodifiableList(eventOrders);
+
+        ArrayList<CharacterData> characterList = new ArrayList<>();
+        project.characterManager.forEachCharacter((uid, name, description, age, chartX, chartY, event) ->
+                characterList.add(new CharacterData(uid, name, description, age, chartX, chartY, event)));
+        characterList.sort(Comparator.comparingLong(character -> character.uid));
+        characters = Collections.unmodifiableList(characterList);
+
+        ArrayList<AssociationData> associationList = new ArrayList<>();
+        project.characterManager.forEachAssociation((uid, startUID, endUID, startX, startY, endX, endY,
+                                                     label, labelX, labelY) ->
+                associationList.add(new AssociationData(uid, startUID, endUID, startX, startY, endX, endY,
+                        label, labelX, labelY)));
+        associationList.sort(Comparator.comparingLong(association -> association.uid));
+        associations = Collections.unmodifiableList(associationList);
+
+        this.progressListener = progressListener;
+        total = chapters.size() + events.size() + characters.size() + associations.size();
+        written = new AtomicInteger();
+        lastReported = new AtomicInteger(-1);
+    }
+
+    /**
+     * Takes a snapshot of the given project.
+     *
+     * @param project the project
+     * @return the snapshot
+     */
+    public static ProjectSnapshot of(Project project) {
+        return new ProjectSnapshot(project, null);
+    }
+
+    /**
+     * Takes a snapshot of the given project, which reports the progress of writing it to the given listener.
+     * The listener is called on the thread writing the snapshot, with a value between 0.0 and 1.0.
+     *
+     * @param project          the project
+     * @param progressListener the listener, or null
+     * @return the snapshot
+     */
+    public static ProjectSnapshot of(Project project, DoubleConsumer progressListener) {
+        return new ProjectSnapshot(project, progressListener);
+    }
+
+    /**
+     * Returns the number of chapters, events, characters and associations in the snapshot.
+     *
+     * @return the number of entities
+     */
+    public int size() {
+        return total;
+    }
+
+    /**
+     * Called by a {@link ProjectCodec} when an entity has been written.
+     * The listener is only notified when the progress has increased by at least a percent.
+     */
+    void advance() {
+        if (progressListener == null)
+            return;
+
+        int percent = total == 0 ? 100 : (int) (100L * written.incrementAndGet() / total);
+        int last = lastReported.get();
+        if (percent > last && lastReported.compareAndSet(last, percent))
+            progressListener.accept(percent / 100.0);
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The data of a chapter.
+     */
+    public static final class ChapterData {
+        public final long uid;
+        public final String name;
+        public final String description;
+        public final String color;
+
+        ChapterData(long uid, String name, String description, String color) {
+            this.uid = uid;
+            this.name = name;
+            this.description = description;
+            this.color = color;
+        }
+    }
+
+    /**
+     * The data of an event. The chapter is null if the event does not belong to a chapter.
+     * The description may be a {@link LazyText}, see {@link LazyText#decode(CharSequence)}.
+     */
+    public static final class EventData {
+        public final long uid;
+        public final String name;
+        public final CharSequence description;
+        public final String color;
+        public final ChapterListObject chapter;
+
+        EventData(long uid, String name, CharSequence description, String color, ChapterListObject chapter) {
+            this.uid = uid;
+            this.name = name;
+            this.description = description;
+            this.color = color;
+            this.chapter = chapter;
+        }
+    }
+
+    /**
+     * The data of a character. The event is null if the character does not belong to an event.
+     * The description may be a {@link LazyText}, see {@link LazyText#decode(CharSequence)}.
+     */
+    public static final class CharacterData {
+        public final long uid;
+        public final String name;
+        public final CharSequence description;
+        public final int age;
+        public final double chartX;
+        public final double chartY;
+        public final EventListObject event;
+
+        CharacterData(long uid, String name, CharSequence description, int age, double chartX, double chartY, EventListObject event) {
+            this.uid = uid;
+            this.name = name;
+            this.description = description;
+            this.age = age;
+            this.chartX = chartX;
+            this.chartY = chartY;
+            this.event = event;
+        }
+    }
+
+    /**
+     * The data of an association between two characters.
+     */
+    public static final class AssociationData {
+        public final long uid;
+        public final long startUID;
+        public final long endUID;
+        public final double startX;
+        public final double startY;
+        public final double endX;
+        public final double endY;
+        public final String label;
+        public final double labelX;
+        public final double labelY;
+
+        AssociationData(long uid, long startUID, long endUID, double startX, double startY,
+                        double endX, double endY, String label, double labelX, double labelY) {
+            this.uid = uid;
+            this.startUID = startUID;
+            this.endUID = endUID;
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+            this.label = label;
+            this.labelX = labelX;
+            this.labelY = labelY;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.team34.model;
+
+import java.util.Arrays;
+
+/**
+ * An index of the references from one kind of entity to another, such as from events to their chapters,
+ * which can be followed in both directions. Both the sources and the targets of the references are UIDs.
+ * <p>
+ * The targets of each source are kept in a {@link LongHashMap}, and the sources referring to each target
+ * in a {@link LongHashSet}, so that the sources referring to a target are found in time proportional to
+ * their number, rather than by looking at every source. The index must be kept up to date by the manager
+ * owning the sources, whenever a source is added, edited or removed.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class ReverseIndex {
+
+    private static final long[] NONE = new long[0];
+
+    private final LongHashMap<long[]> targets;
+    private final LongHashMap<LongHashSet> sources;
+
+    /**
+     * Constructs an empty index.
+     */
+    public ReverseIndex() {
+        targets = new LongHashMap<>();
+        sources = new LongHashMap<>();
+    }
+
+    /**
+     * Sets the targets referred to by the source, replacing those it referred to before.
+     *
+     * @param source  the UID of the source
+     * @param targets the UIDs of the targets, or none to remove the references of the source
+     */
+    public void link(long source, long... targets) {
+        unlink(source);
+        if (targets.length == 0)
+            return;
+
+        this.targets.put(source, targets.clone());
+        for (long target : targets) {
+            LongHashSet referring = sources.get(target);
+            if (referring == null) {
+                referring = new LongHashSet(4);
+                sources.put(target, referring);
+            }
+            referring.add(source);
+        }
+    }
+
+    /**
+     * Removes the references of the source.
+     *
+     * @param source the UID of the source
+     */
+    public void unlink(long source) {
+        long[] previous = targets.remove(source);
+        if (previous == null)
+            return;
+
+        for (long target : previous) {
+            LongHashSet referring = sources.get(target);
+            if (referring != null && referring.remove(source) && referring.size() == 0)
+                sources.remove(target);
+        }
+    }
+
+    /**
+     * Returns the targets referred to by the source.
+     *
+     * @param source the UID of the source
+     * @return a new array of the UIDs of the targets, which is empty if the source refers to nothing
+     */
+    public long[] getTargets(long source) {
+        long[] referred = targets.get(source);
+        return referred == null ? NONE : referred.clone();
+    }
+
+    /**
+     * Returns the sources referring to the target, in ascending order.
+     *
+     * @param target the UID of the target
+     * @return a new array of the UIDs of the sources
+     */
+    public long[] getSources(long target) {
+        LongHashSet referring = sources.get(target);
+        if (referring == null)
+            return NONE;
+
+        long[] result = referring.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns the number of sources referring to the target.
+     *
+     * @param target the UID of the target
+     * @return the number of sources
+     */
+    public int countSources(long target) {
+        LongHashSet referring = sources.get(target);
+        return referring == null ? 0 : referring.size();
+    }
+
+    /**
+     * Removes all references.
+     */
+    public void clear() {
+        targets.clear();
+        sources.clear();
+    }
+}
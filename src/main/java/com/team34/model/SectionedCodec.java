@@ -0,0 +1,28 @@
+package com.team34.model;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ProjectCodec} whose files consist of separate sections, which can be rendered on their own.
+ * <p>
+ * Written one after another, the rendered sections make up the whole file. Since an unchanged section renders
+ * to the same bytes every time, {@link Project} compares the sections against those last written to the file,
+ * see {@link FileLayout}, and only rewrites the file from the first section that differs.
+ *
+ * @author Hazem Elkhalil
+ */
+public interface SectionedCodec extends ProjectCodec {
+
+    /**
+     * Renders the file for the given snapshot, one buffer per section. Any header or footer of the file
+     * is rendered as a section of its own.
+     *
+     * @param snapshot the snapshot to render
+     * @return the sections of the file, in order
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    ByteBuffer[] render(ProjectSnapshot snapshot) throws IOException, XMLStreamException;
+}
@@ -0,0 +1,332 @@
+package com.team34.model;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over the names and descriptions of the events, chapters and characters of a project,
+ * used to search the whole project for words.
+ * <p>
+ * Each word, or term, is mapped to its postings: the UIDs of the entities containing it, and the number of times
+ * it appears in each, kept in a {@link LongIntHashMap} so that no count is boxed. The terms are kept in a sorted
+ * map, so that the terms starting with a prefix are found without looking at the others. Terms are split on
+ * anything that is not a letter or digit, and compared ignoring case, the same way as in a {@link NameIndex}.
+ * <p>
+ * The index is kept up to date by the managers, which call {@link TextIndex#index} when an entity is added or
+ * edited and {@link TextIndex#remove} when it is removed, see {@link Project#textIndex}. An indexed entity is only
+ * split into terms at the next search, so that loading a project does not decode every {@link LazyText}
+ * description, and an entity edited several times between two searches is only split once.
+ * <p>
+ * Search results are ranked by BM25, which favours entities that contain the rarer terms of the query
+ * many times, relative to their length. A term in the name of an entity counts {@link TextIndex#NAME_WEIGHT}
+ * times as much as a term in its description.
+ *
+ * @author Hazem Elkhalil
+ */
+public final class TextIndex {
+
+    /**
+     * The number of times a term in a name is counted, compared to a term in a description.
+     */
+    public static final int NAME_WEIGHT = 3;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * The terms of an indexed entity, kept so that its postings can be removed again.
+     */
+    private static final class Document {
+        final String[] terms;
+        final int length;
+
+        Document(String[] terms, int length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+    private final TreeMap<String, LongIntHashMap> postings;
+    private final LongHashMap<Document> documents;
+    private final LongHashMap<CharSequence[]> pending;
+    private long totalLength;
+
+    /**
+     * Constructs an empty index.
+     */
+    public TextIndex() {
+        postings = new TreeMap<>();
+        documents = new LongHashMap<>();
+        pending = new LongHashMap<>();
+        totalLength = 0L;
+    }
+
+    /**
+     * Indexes the name and description of the entity with the given UID, replacing what was indexed for it before.
+     * The text is not read until the next search.
+     *
+     * @param uid         the UID of the entity
+     * @param name        the name, or null
+     * @param description the description, or null
+     */
+    public synchronized void index(long uid, String name, CharSequence description) {
+        pending.put(uid, new CharSequence[]{name, description});
+    }
+
+    /**
+     * Removes the entity with the given UID from the index.
+     *
+     * @param uid the UID of the entity
+     */
+    public synchronized void remove(long uid) {
+        pending.remove(uid);
+        removeDocument(uid);
+    }
+
+    /**
+     * Removes all entities from the index.
+     */
+    public synchronized void clear() {
+        postings.clear();
+        documents.clear();
+        pending.clear();
+        totalLength = 0L;
+    }
+
+    /**
+     * Returns the number of indexed entities.
+     *
+     * @return the number of entities
+     */
+    public synchronized int size() {
+        flush();
+        return documents.size();
+    }
+
+    /**
+     * Returns the UIDs of the entities containing any of the terms of the query, best match first.
+     * Entities with the same score are ordered by UID.
+     *
+     * @param query the words to search for
+     * @param limit the greatest number of UIDs to return
+     * @return the UIDs of the best matches
+     */
+    public synchronized long[] search(String query, int limit) {
+        return search(query, limit, false);
+    }
+
+    /**
+     * Returns the UIDs of the entities containing any of the terms of the query, best match first, where the
+     * last term of the query matches any term starting with it. Meant to be called as the user types,
+     * so that a query such as "the dra" matches "dragon".
+     *
+     * @param query the words to search for
+     * @param limit the greatest number of UIDs to return
+     * @return the UIDs of the best matches
+     */
+    public synchronized long[] searchPrefix(String query, int limit) {
+        return search(query, limit, true);
+    }
+
+    private long[] search(String query, int limit, boolean lastIsPrefix) {
+        flush();
+        ArrayList<String> terms = new ArrayList<>();
+        tokenize(query, terms);
+        if (terms.isEmpty() || limit <= 0 || documents.isEmpty())
+            return new long[0];
+
+        LongHashMap<double[]> scores = new LongHashMap<>();
+        double averageLength = (double) totalLength / documents.size();
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            if (lastIsPrefix && i == terms.size() - 1) {
+                for (LongIntHashMap termPostings : withPrefix(term).values())
+                    score(termPostings, averageLength, scores);
+            } else {
+                LongIntHashMap termPostings = postings.get(term);
+                if (termPostings != null)
+                    score(termPostings, averageLength, scores);
+            }
+        }
+
+        TopMatches top = new TopMatches(Math.min(limit, scores.size()));
+        scores.forEach((uid, score) -> top.offer(uid, score[0]));
+        return top.toArray();
+    }
+
+    /**
+     * The best matches seen so far, at most a given number, kept in a heap whose root is the worst of them.
+     * Picking the best k of n matches thus takes O(n log k) time, without boxing or sorting all the matches.
+     */
+    private static final class TopMatches {
+        final long[] uids;
+        final double[] scores;
+        int size;
+
+        TopMatches(int capacity) {
+            uids = new long[capacity];
+            scores = new double[capacity];
+        }
+
+        /**
+         * Returns whether the first match ranks below the second: it has a lower score, or the same score
+         * and a greater UID.
+         */
+        static boolean worse(double score1, long uid1, double score2, long uid2) {
+            int byScore = Double.compare(score1, score2);
+            return byScore != 0 ? byScore < 0 : uid1 > uid2;
+        }
+
+        void offer(long uid, double score) {
+            if (size < uids.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (!worse(score, uid, scores[parent], uids[parent]))
+                        break;
+                    uids[i] = uids[parent];
+                    scores[i] = scores[parent];
+                    i = parent;
+                }
+                uids[i] = uid;
+                scores[i] = score;
+            } else if (size > 0 && worse(scores[0], uids[0], score, uid)) {
+                siftDown(uid, score, size);
+            }
+        }
+
+        /**
+         * Places the match at the root, and moves it down among the first {@code end} elements of the heap.
+         */
+        void siftDown(long uid, double score, int end) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= end)
+                    break;
+                if (child + 1 < end && worse(scores[child + 1], uids[child + 1], scores[child], uids[child]))
+                    child++;
+                if (!worse(scores[child], uids[child], score, uid))
+                    break;
+                uids[i] = uids[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            uids[i] = uid;
+            scores[i] = score;
+        }
+
+        /**
+         * Empties the heap, returning its UIDs best match first.
+         */
+        long[] toArray() {
+            long[] result = new long[size];
+            for (int end = size - 1; end >= 0; end--) {
+                result[end] = uids[0]; // The worst match left goes last
+                siftDown(uids[end], scores[end], end);
+            }
+            size = 0;
+            return result;
+        }
+    }
+
+    /**
+     * Returns the terms starting with the prefix, and their postings.
+     */
+    private NavigableMap<String, LongIntHashMap> withPrefix(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Adds the BM25 score of a term to each entity containing it.
+     */
+    private void score(LongIntHashMap termPostings, double averageLength, LongHashMap<double[]> scores) {
+        int count = documents.size();
+        double idf = Math.log(1.0 + (count - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+        termPostings.forEach((uid, frequency) -> {
+            double length = documents.get(uid).length;
+            double score = idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+            double[] total = scores.get(uid);
+            if (total == null)
+                scores.put(uid, new double[]{score});
+            else
+                total[0] += score;
+        });
+    }
+
+    /**
+     * Splits the entities indexed since the last search into terms, and adds them to the postings.
+     */
+    private void flush() {
+        if (pending.isEmpty())
+            return;
+
+        ArrayList<String> terms = new ArrayList<>();
+        pending.forEach((uid, text) -> {
+            removeDocument(uid);
+            addDocument(uid, text[0], text[1], terms);
+        });
+        pending.clear();
+    }
+
+    private void addDocument(long uid, CharSequence name, CharSequence description, ArrayList<String> terms) {
+        TreeMap<String, int[]> counts = new TreeMap<>();
+        terms.clear();
+        if (name != null)
+            tokenize(name.toString(), terms);
+        for (String term : terms)
+            counts.computeIfAbsent(term, t -> new int[1])[0] += NAME_WEIGHT;
+        int length = terms.size() * NAME_WEIGHT;
+
+        terms.clear();
+        if (description != null)
+            tokenize(LazyText.decode(description), terms); // Keeps a LazyText description from being cached
+        for (String term : terms)
+            counts.computeIfAbsent(term, t -> new int[1])[0]++;
+        length += terms.size();
+
+        String[] documentTerms = new String[counts.size()];
+        int i = 0;
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            documentTerms[i++] = entry.getKey();
+            postings.computeIfAbsent(entry.getKey(), t -> new LongIntHashMap()).put(uid, entry.getValue()[0]);
+        }
+
+        documents.put(uid, new Document(documentTerms, length));
+        totalLength += length;
+    }
+
+    private void removeDocument(long uid) {
+        Document document = documents.remove(uid);
+        if (document == null)
+            return;
+
+        for (String term : document.terms) {
+            LongIntHashMap termPostings = postings.get(term);
+            termPostings.remove(uid);
+            if (termPostings.isEmpty())
+                postings.remove(term);
+        }
+        totalLength -= document.length;
+    }
+
+    /**
+     * Splits the text into terms, folding their case, and adds them to the list.
+     */
+    private static void tokenize(String text, ArrayList<String> terms) {
+        StringBuilder term = new StringBuilder();
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(Character.toUpperCase(c)));
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0)
+            terms.add(term.toString());
+    }
+}
@@ -1,93 +1,197 @@
 package com.team34.model;
 
-import java.util.ArrayList;
-import java.util.Random;
-import java.util.UUID;
+import java.util.Arrays;
 
 /**
  * The UID Manager generates and stores Unique IDs (UID).
  * The UID Manager class can create new UIDs or remove existing UIDs.
+ * <p>
+ * Each UID encodes when it was created and the type of entity it identifies:
+ * <pre>
+ * bits 63-56  marker (0x5A), which sets the UIDs created here apart from the random UIDs of older project files
+ * bits 55-15  milliseconds since 2020-01-01 UTC
+ * bits 14-3   counter, for UIDs created within the same millisecond
+ * bits 2-0    type of entity, see {@link EntityType}
+ * </pre>
+ * The UIDs of a session are therefore unique without being looked up, and sort in the order they were created.
+ * The type of entity can be read from a UID with {@link UIDManager#typeOf(long)}. UIDs from older project files
+ * are random, so a few of them may look like they encode a type, see {@link Project#getEntityType(long)}.
+ * <p>
+ * The UIDs in use are stored in a {@link LongHashSet}, so adding and removing a UID takes constant time,
+ * also when loading large projects. A new UID is only checked against the set in case it happens to equal
+ * the UID of an older project file.
+ * <p>
+ * Each {@link Project} owns a UID manager, which it shares with its managers, so that several projects can be
+ * open, or loaded on different threads, at the same time. The methods are synchronized, since a project may be
+ * read on a background thread.
  *
  * @author Jim Andersson
  * @version 1.0
+ * @updated Hazem Elkhalil
  */
 public class UIDManager {
-    private static ArrayList<Long> uidList = new ArrayList<>(); // TODO: How to store UID list during application downtime?
+    private static final long MARKER = 0x5AL;
+    private static final int MARKER_SHIFT = 56;
+    private static final long EPOCH = 1577836800000L; // 2020-01-01T00:00:00Z
+    private static final int TIME_SHIFT = 15;
+    private static final long TIME_MASK = (1L << 41) - 1;
+    private static final int COUNTER_SHIFT = 3;
+    private static final int COUNTER_MASK = (1 << 12) - 1;
+    private static final int TYPE_MASK = (1 << 3) - 1;
+
+    private final LongHashSet uidSet; // TODO: How to store UID list during application downtime?
+    private long lastTime;
+    private int counter;
 
     /**
-     * Creates a UID and checks it against the UID list to ensure uniqueness. If unique, returns the UID.
+     * Constructs an empty UID manager.
+     */
+    public UIDManager() {
+        uidSet = new LongHashSet();
+        lastTime = -1L;
+        counter = 0;
+    }
+
+    /**
+     * Creates a UID for a new entity of the given type, and adds it to the UID set.
+     * Each UID is greater than the UIDs previously created by this manager.
      *
+     * @param type the type of the entity
      * @return Long UID.
      */
-    public static long nextUID() {
-        UUID idGenerator;
+    public synchronized long nextUID(EntityType type) {
+        return generate(type, currentTime());
+    }
+
+    /**
+     * Creates a block of UIDs for new entities of the given type, and adds them to the UID set, in a single call.
+     * The UIDs are in ascending order, and are greater than the UIDs previously created by this manager.
+     * Used when adding many entities at once, such as {@link com.team34.model.event.EventManager#addEvents}.
+     *
+     * @param type  the type of the entities
+     * @param count the number of UIDs to create
+     * @return the new UIDs
+     */
+    public synchronized long[] reserveUIDs(EntityType type, int count) {
+        uidSet.ensureCapacity(uidSet.size() + count);
+
+        long time = currentTime();
+        long[] uids = new long[count];
+        for (int i = 0; i < count; i++)
+            uids[i] = generate(type, time);
+        return uids;
+    }
+
+    private static long currentTime() {
+        return Math.max(System.currentTimeMillis() - EPOCH, 0L);
+    }
+
+    private long generate(EntityType type, long time) {
         long uid;
         do {
-            Random rand = new Random();
-            long input1 = rand.nextLong();
-            long input2 = rand.nextLong();
-            idGenerator = new UUID(input1, input2);
-            uid = idGenerator.getMostSignificantBits();
-        } while (!isUnique(uid));
-        uidList.add(uid);
+            if (time > lastTime) {
+                lastTime = time;
+                counter = 0;
+            } else if (++counter > COUNTER_MASK) { // Borrows the next millisecond
+                lastTime++;
+                counter = 0;
+            }
+
+            uid = MARKER << MARKER_SHIFT
+                    | (lastTime & TIME_MASK) << TIME_SHIFT
+                    | (long) counter << COUNTER_SHIFT
+                    | type.tag();
+        } while (!uidSet.add(uid));
         return uid;
     }
 
     /**
-     * Checks against the UID list to verify that the UID is unique. Returns True if unique, else returns False.
+     * Returns whether the UID was created by a UID manager, rather than being a random UID of an older project file.
+     * A random UID looks like a created one by chance once in 256.
      *
-     * @param uid UID
-     * @return boolean
+     * @param uid the UID
+     * @return true if the UID has the layout of a created UID
      */
-    private static boolean isUnique(long uid) {
-        for (long listEntry : uidList) {
-            if (uid == listEntry) {
-                return false;
-            }
-        }
-        return true;
+    public static boolean isTagged(long uid) {
+        return uid >>> MARKER_SHIFT == MARKER;
     }
 
     /**
-     * Removes UID from UIDList. Returns True if UID is found and successfully removed, else returns False.
-     * (The below warning speaks lies, the method does in fact return a boolean).
+     * Returns the type of entity encoded in the UID.
+     *
+     * @param uid the UID
+     * @return the type, or null if the UID does not encode a type
+     */
+    public static EntityType typeOf(long uid) {
+        return isTagged(uid) ? EntityType.ofTag((int) (uid & TYPE_MASK)) : null;
+    }
+
+    /**
+     * Returns the time at which the UID was created.
+     *
+     * @param uid the UID
+     * @return the time in milliseconds since the epoch, or -1 if the UID does not encode a time
+     */
+    public static long creationTimeOf(long uid) {
+        return isTagged(uid) ? EPOCH + (uid >>> TIME_SHIFT & TIME_MASK) : -1L;
+    }
+
+    /**
+     * Removes UID from the UID set. Returns True if UID is found and successfully removed, else returns False.
      *
      * @param uid UID
      * @return boolean
      */
-    public static boolean removeUID(long uid) {
-        return uidList.remove(uid);
+    public synchronized boolean removeUID(long uid) {
+        return uidSet.remove(uid);
     }
 
     /**
-     * Adds a UID to {@link UIDManager#uidList} manually.
+     * Adds a UID to {@link UIDManager#uidSet} manually.
      * This should only be used when loading a project.
      *
      * @param uid the UID to add
      * @author Kasper S. Skott
      */
-    public static void addUID(long uid) {
-        uidList.add(uid);
+    public synchronized void addUID(long uid) {
+        uidSet.add(uid);
     }
 
     /**
-     * Removes all UIDs from {@link UIDManager#uidList}.
+     * Removes all UIDs from {@link UIDManager#uidSet}.
      * This should only ever need to be used when creating or loading a project.
      *
      * @author Kasper S. Skott
      */
-    public static void clear() {
-        uidList.clear();
+    public synchronized void clear() {
+        uidSet.clear();
     }
 
     /**
-     * Returns all UIDs as an array.
+     * Returns all UIDs as an array, in ascending order.
      *
-     * @return the UIDs contained within {@link UIDManager#uidList}
+     * @return the UIDs contained within {@link UIDManager#uidSet}
      * @author Kasper S. Skott
      */
-    public static Long[] getUIDs() {
-        return uidList.toArray(new Long[uidList.size()]);
+    public Long[] getUIDs() {
+        long[] uids = getUIDArray();
+        Long[] boxed = new Long[uids.length];
+        for (int i = 0; i < uids.length; i++)
+            boxed[i] = uids[i];
+        return boxed;
+    }
+
+    /**
+     * Returns all UIDs as an array of primitives, in ascending order. The order does not depend on the
+     * order in which the UIDs were added, so that a project is always written the same way.
+     * The UIDs created by a UID manager are sorted by the time they were created.
+     *
+     * @return the UIDs contained within {@link UIDManager#uidSet}
+     */
+    public synchronized long[] getUIDArray() {
+        long[] uids = uidSet.toArray();
+        Arrays.sort(uids);
+        return uids;
     }
 
 
@@ -97,11 +201,11 @@ public class UIDManager {
 
     /**
      * FOR TEST PURPOSES ONLY
-     * Prints the UIDs stored in UIDList.
+     * Prints the UIDs stored in the UID set.
      */
     private void printUidList() {
-        for (Long id : uidList) {
-            System.out.println(id + " List size: " + uidList.size() + "\n");
+        for (long id : getUIDArray()) {
+            System.out.println(id + " List size: " + uidSet.size() + "\n");
         }
     }
 
@@ -118,9 +222,9 @@ public class UIDManager {
 
         System.out.println("--- Add three UIDs ---");
 
-        uid1 = manager.nextUID();
-        uid2 = manager.nextUID();
-        uid3 = manager.nextUID();
+        uid1 = manager.nextUID(EntityType.EVENT);
+        uid2 = manager.nextUID(EntityType.EVENT);
+        uid3 = manager.nextUID(EntityType.EVENT);
 
         System.out.println("UID1: " + uid1);
         System.out.println("UID2: " + uid2);
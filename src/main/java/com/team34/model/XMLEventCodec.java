@@ -0,0 +1,695 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+
+import javax.xml.stream.*;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Reads and writes wsp-files using the StAX event API ({@link XMLEventReader} and {@link XMLEventWriter}).
+ * <p>
+ * This was the original implementation of the project file format. It has been kept as an
+ * alternative to {@link XMLStreamCodec}, which reads and writes the exact same files.
+ * <p>
+ * Reading differs from the original implementation in two ways, so that both codecs load the same data:
+ * <ul>
+ *  <li>text is coalesced, since descriptions used to be cut at the first entity, such as &amp;amp;
+ *  <li>the descriptions of characters are loaded, rather than dropped
+ * </ul>
+ *
+ * @author Kasper S. Skott
+ * @updated Alexander Olsson
+ * @updated Hazem Elkhalil
+ */
+public class XMLEventCodec implements ProjectCodec {
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#read(InputStream, Project)}
+     *
+     * @param project
+     * @param event
+     * @param reader
+     * @throws XMLStreamException
+     */
+    private void loadUIDManager(Project project, XMLEvent event, XMLEventReader reader)
+            throws XMLStreamException {
+        while (reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if (startElement.getName().getLocalPart() == "uid") {
+                    event = reader.nextEvent();
+                    if (event.isCharacters()) {
+                        project.uidManager.addUID(Long.parseLong(event.asCharacters().getData()));
+                    }
+                    event = reader.nextEvent();
+                }
+
+            } else if (event.isEndElement()) {
+                if (event.asEndElement().getName().getLocalPart() == "uid_manager")
+                    return;
+            }
+        }
+    }
+
+
+    private void loadChapters(Project project, XMLEvent event, XMLEventReader reader)
+            throws XMLStreamException {
+        long uid = -1L;
+        String name = null;
+        String color = null;
+
+        while (reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if (startElement.getName().getLocalPart() == "chapter") {
+                    Iterator<Attribute> attrIt = startElement.getAttributes();
+                    while (attrIt.hasNext()) {
+                        Attribute attr = attrIt.next();
+                        switch (attr.getName().getLocalPart()) {
+                            case "uid":
+                                uid = Long.parseLong(attr.getValue());
+                                break;
+                            case "name":
+                                name = attr.getValue();
+                                break;
+                            case "color":
+                                color = attr.getValue();
+                                break;
+
+                        }
+                    }
+                    event = reader.nextEvent();
+                    if (uid != -1L && name != null) {
+                        if (event.isCharacters())
+
+                            project.chapterManager.addChapter(uid, name, event.asCharacters().getData(), color);
+                        else
+                            project.chapterManager.addChapter(uid, name, "", color);
+
+                    }
+                }
+            } else if (event.isEndElement()) {
+                if (event.asEndElement().getName().getLocalPart() == "chapters")
+                    return;
+            }
+        }
+    }
+
+    private void loadChapterOrderLists(Project project, XMLEvent event, XMLEventReader reader)
+            throws XMLStreamException {
+        LinkedList<Long> orderList = new LinkedList<>();
+
+        while (reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if (startElement.getName().getLocalPart() == "chapter_list") {
+                    orderList = new LinkedList<Long>();
+
+                    while (reader.hasNext()) {
+                        event = reader.nextEvent();
+
+                        if (event.isStartElement()) {
+                            startElement = event.asStartElement();
+                            if (startElement.getName().getLocalPart() == "li") {
+                                event = reader.nextEvent();
+                                if (event.isCharacters())
+                                    orderList.add(Long.parseLong(event.asCharacters().getData()));
+                            }
+                        } else if (event.isEndElement()) {
+                            if (event.asEndElement().getName().getLocalPart() == "chapter_list")
+                                project.chapterManager.addOrderList(orderList);
+                            if (event.asEndElement().getName().getLocalPart() == "chapter_order")
+                                return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#read(InputStream, Project)}
+     *
+     * @param project
+     * @param event
+     * @param reader
+     * @throws XMLStreamException
+     */
+    private void loadEvents(Project project, XMLEvent event, XMLEventReader reader)
+            throws XMLStreamException {
+        long uid = -1L;
+        String name = null;
+        String chapter = null;
+        long chapterUid = -1L;
+        String color = null;
+
+        while (reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if (startElement.getName().getLocalPart() == "event") {
+                    Iterator<Attribute> attrIt = startElement.getAttributes();
+                    while (attrIt.hasNext()) {
+                        Attribute attr = attrIt.next();
+                        switch (attr.getName().getLocalPart()) {
+                            case "uid":
+                                uid = Long.parseLong(attr.getValue());
+                                break;
+                            case "name":
+                                name = attr.getValue();
+                                break;
+                            case "color":
+                                color = attr.getValue();
+                                break;
+                            case "chapter":
+                                chapter = attr.getValue();
+                                break;
+                            case "chapterUid":
+                                chapterUid = Long.parseLong(attr.getValue());
+                                break;
+                        }
+                    }
+                    event = reader.nextEvent();
+                    if (uid != -1L && name != null) {
+                        if (event.isCharacters())
+                            project.eventManager.addEvent(uid, name, event.asCharacters().getData(), new ChapterListObject(chapter, chapterUid, color));
+                        else
+                            project.eventManager.addEvent(uid, name, "", new ChapterListObject(chapter, chapterUid, color));
+
+                    }
+                }
+            } else if (event.isEndElement()) {
+                if (event.asEndElement().getName().getLocalPart() == "events")
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#read(InputStream, Project)}
+     *
+     * @param project
+     * @param event
+     * @param reader
+     * @throws XMLStreamException
+     */
+    private void loadEventOrderLists(Project project, XMLEvent event, XMLEventReader reader)
+            throws XMLStreamException {
+        LinkedList<Long> orderList = new LinkedList<>();
+
+        while (reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if (startElement.getName().getLocalPart() == "order_list") {
+                    orderList = new LinkedList<Long>();
+
+                    while (reader.hasNext()) {
+                        event = reader.nextEvent();
+
+                        if (event.isStartElement()) {
+                            startElement = event.asStartElement();
+                            if (startElement.getName().getLocalPart() == "li") {
+                                event = reader.nextEvent();
+                                if (event.isCharacters())
+                                    orderList.add(Long.parseLong(event.asCharacters().getData()));
+                            }
+                        } else if (event.isEndElement()) {
+                            if (event.asEndElement().getName().getLocalPart() == "order_list")
+                                project.eventManager.addOrderList(orderList);
+                            if (event.asEndElement().getName().getLocalPart() == "event_order")
+                                return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#read(InputStream, Project)}
+     *
+     * @param project
+     * @param event
+     * @param reader
+     * @throws XMLStreamException
+     */
+    private void loadCharacters(Project project, XMLEvent event, XMLEventReader reader)
+            throws XMLStreamException {
+        long uid = -1L;
+        String name = null;
+        double chartX = 0.0;
+        double chartY = 0.0;
+        long eventUID = -1L;
+        String eventName = null;
+        int age = 0;
+
+        while (reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if (startElement.getName().getLocalPart() == "character") {
+                    Iterator<Attribute> attrIt = startElement.getAttributes();
+                    while (attrIt.hasNext()) {
+                        Attribute attr = attrIt.next();
+                        switch (attr.getName().getLocalPart()) {
+                            case "uid":
+                                uid = Long.parseLong(attr.getValue());
+                                break;
+                            case "name":
+                                name = attr.getValue();
+                                break;
+                            case "chartX":
+                                chartX = Double.parseDouble(attr.getValue());
+                                break;
+                            case "chartY":
+                                chartY = Double.parseDouble(attr.getValue());
+                                break;
+                            case "eventName":
+                                eventName = attr.getValue();
+                                break;
+                            case "eventUID":
+                                eventUID = Long.parseLong(attr.getValue());
+                                break;
+                            case "age":
+                                age = Integer.parseInt(attr.getValue());
+
+                        }
+                    }
+                    event = reader.nextEvent();
+                    if (uid != -1L && name != null) {
+                        if (event.isCharacters())
+                            project.characterManager.addCharacter(uid, name, event.asCharacters().getData(), age, new EventListObject(eventName, eventUID), chartX, chartY);
+                        else
+                            project.characterManager.addCharacter(uid, name, "", age, new EventListObject(eventName, eventUID), chartX, chartY);
+                    }
+                }
+            } else if (event.isEndElement()) {
+                if (event.asEndElement().getName().getLocalPart() == "characters")
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#read(InputStream, Project)}
+     *
+     * @param project
+     * @param event
+     * @param reader
+     * @throws XMLStreamException
+     */
+    private void loadAssociations(Project project, XMLEvent event, XMLEventReader reader)
+            throws XMLStreamException {
+        long uid = -1L;
+        long startUID = -1L;
+        long endUID = -1L;
+        double sX = 0.0;
+        double sY = 0.0;
+        double eX = 0.0;
+        double eY = 0.0;
+        String label = "";
+        double lblX = 0.0;
+        double lblY = 0.0;
+
+        while (reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if (startElement.getName().getLocalPart() == "association") {
+                    Iterator<Attribute> attrIt = startElement.getAttributes();
+                    while (attrIt.hasNext()) {
+                        Attribute attr = attrIt.next();
+                        switch (attr.getName().getLocalPart()) {
+                            case "uid":
+                                uid = Long.parseLong(attr.getValue());
+                                break;
+                            case "startUID":
+                                startUID = Long.parseLong(attr.getValue());
+                                break;
+                            case "endUID":
+                                endUID = Long.parseLong(attr.getValue());
+                                break;
+                            case "sX":
+                                sX = Double.parseDouble(attr.getValue());
+                                break;
+                            case "sY":
+                                sY = Double.parseDouble(attr.getValue());
+                                break;
+                            case "eX":
+                                eX = Double.parseDouble(attr.getValue());
+                                break;
+                            case "eY":
+                                eY = Double.parseDouble(attr.getValue());
+                                break;
+                            case "lblX":
+                                lblX = Double.parseDouble(attr.getValue());
+                                break;
+                            case "lblY":
+                                lblY = Double.parseDouble(attr.getValue());
+                                break;
+                        }
+                    }
+                    event = reader.nextEvent();
+                    if (uid != -1L && label != null) {
+                        if (event.isCharacters())
+                            project.characterManager.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, event.asCharacters().getData(), lblX, lblY);
+                        else
+                            project.characterManager.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, "", lblX, lblY);
+                    }
+                }
+            } else if (event.isEndElement()) {
+                if (event.asEndElement().getName().getLocalPart() == "associations")
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeUIDManager(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException {
+        long[] uids = snapshot.uids;
+
+        for (int i = 0; i < uids.length; i++) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "uid"));
+            writer.add(factory.createCharacters(Long.toString(uids[i])));
+            writer.add(factory.createEndElement("", "", "uid"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+        }
+    }
+
+    private void writeChapters(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException {
+        for (ProjectSnapshot.ChapterData chapter : snapshot.chapters) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "chapter"));
+            writer.add(factory.createAttribute("uid", Long.toString(chapter.uid)));
+            writer.add(factory.createAttribute("name", chapter.name));
+            writer.add(factory.createAttribute("color", chapter.color));
+            writer.add(factory.createCharacters(chapter.description));
+            writer.add(factory.createEndElement("", "", "chapter"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+            snapshot.advance();
+        }
+    }
+
+    private void writeChapterOrderLists(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException {
+        for (long[] orderList : snapshot.chapterOrderLists) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "chapter_list"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+
+            for (int j = 0; j < orderList.length; j++) {
+                writer.add(factory.createCharacters("\t\t\t"));
+                writer.add(factory.createStartElement("", "", "li"));
+                writer.add(factory.createCharacters(Long.toString(orderList[j])));
+                writer.add(factory.createEndElement("", "", "li"));
+                writer.add(factory.createCharacters(System.lineSeparator()));
+            }
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createEndElement("", "", "chapter_list"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeEvents(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException {
+        for (ProjectSnapshot.EventData event : snapshot.events) {
+            if (event.chapter != null) {
+                writer.add(factory.createCharacters("\t\t"));
+                writer.add(factory.createStartElement("", "", "event"));
+                writer.add(factory.createAttribute("uid", Long.toString(event.uid)));
+                writer.add(factory.createAttribute("name", event.name));
+                writer.add(factory.createAttribute("color", event.chapter.getColor()));
+                writer.add(factory.createAttribute("chapter", event.chapter.getTitle()));
+                writer.add(factory.createAttribute("chapterUid", Long.toString(event.chapter.getUid())));
+                writer.add(factory.createCharacters(LazyText.decode(event.description)));
+            } else {
+                writer.add(factory.createCharacters("\t\t"));
+                writer.add(factory.createStartElement("", "", "event"));
+                writer.add(factory.createAttribute("uid", Long.toString(event.uid)));
+                writer.add(factory.createAttribute("name", event.name));
+                writer.add(factory.createAttribute("color", ""));
+                writer.add(factory.createCharacters(LazyText.decode(event.description)));
+            }
+            writer.add(factory.createEndElement("", "", "event"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+            snapshot.advance();
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeEventOrderLists(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException {
+        for (long[] orderList : snapshot.eventOrderLists) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "order_list"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+
+            for (int j = 0; j < orderList.length; j++) {
+                writer.add(factory.createCharacters("\t\t\t"));
+                writer.add(factory.createStartElement("", "", "li"));
+                writer.add(factory.createCharacters(Long.toString(orderList[j])));
+                writer.add(factory.createEndElement("", "", "li"));
+                writer.add(factory.createCharacters(System.lineSeparator()));
+            }
+
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createEndElement("", "", "order_list"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeCharacters(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException {
+        for (ProjectSnapshot.CharacterData character : snapshot.characters) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "character"));
+            writer.add(factory.createAttribute("name", character.name));
+            writer.add(factory.createAttribute("uid", Long.toString(character.uid)));
+            writer.add(factory.createAttribute("chartX", Double.toString(character.chartX)));
+            writer.add(factory.createAttribute("chartY", Double.toString(character.chartY)));
+            writer.add(factory.createAttribute("eventName", character.event != null ? character.event.getTitle() : ""));
+            writer.add(factory.createAttribute("eventUID", Long.toString(character.event != null ? character.event.getUid() : -1L)));
+            writer.add(factory.createAttribute("age", String.valueOf(character.age)));
+            writer.add(factory.createCharacters(LazyText.decode(character.description)));
+            writer.add(factory.createEndElement("", "", "character"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+            snapshot.advance();
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLEventCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeAssociations(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException {
+        for (ProjectSnapshot.AssociationData assoc : snapshot.associations) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "association"));
+            writer.add(factory.createAttribute("uid", Long.toString(assoc.uid)));
+            writer.add(factory.createAttribute("startUID", Long.toString(assoc.startUID)));
+            writer.add(factory.createAttribute("endUID", Long.toString(assoc.endUID)));
+            writer.add(factory.createAttribute("sX", Double.toString(assoc.startX)));
+            writer.add(factory.createAttribute("sY", Double.toString(assoc.startY)));
+            writer.add(factory.createAttribute("eX", Double.toString(assoc.endX)));
+            writer.add(factory.createAttribute("eY", Double.toString(assoc.endY)));
+            writer.add(factory.createAttribute("lblX", Double.toString(assoc.labelX)));
+            writer.add(factory.createAttribute("lblY", Double.toString(assoc.labelY)));
+
+            writer.add(factory.createCharacters(assoc.label));
+
+            writer.add(factory.createEndElement("", "", "association"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+            snapshot.advance();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void read(InputStream fileStream, Project project) throws XMLStreamException {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true); // Descriptions may contain entities
+        XMLEventReader eventReader = inputFactory.createXMLEventReader(fileStream);
+
+        XMLEvent event;
+        while (eventReader.hasNext()) {
+            event = eventReader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+                switch (startElement.getName().getLocalPart()) {
+                    case "project":
+                        Attribute projName = startElement.getAttributes().next();
+                        if (projName.getName().getLocalPart() == "name")
+                            project.setProjectName(projName.getValue());
+                        break;
+                    case "uid_manager":
+                        loadUIDManager(project, event, eventReader);
+                        break;
+                    case "chapters":
+                        loadChapters(project, event, eventReader);
+                        break;
+                    case "chapter_order":
+                        loadChapterOrderLists(project, event, eventReader);
+                        break;
+                    case "events":
+                        loadEvents(project, event, eventReader);
+                        break;
+                    case "event_order":
+                        loadEventOrderLists(project, event, eventReader);
+                        break;
+                    case "characters":
+                        loadCharacters(project, event, eventReader);
+                        break;
+                    case "associations":
+                        loadAssociations(project, event, eventReader);
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(OutputStream fileStream, ProjectSnapshot snapshot) throws XMLStreamException {
+        XMLEventFactory eventFactory = XMLEventFactory.newFactory();
+        XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+        XMLEventWriter eventWriter = outputFactory.createXMLEventWriter(fileStream);
+
+        eventWriter.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createStartElement("", "", "project"));
+        eventWriter.add(eventFactory.createAttribute("name", snapshot.projectName));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createStartElement("", "", "uid_manager"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        writeUIDManager(snapshot, eventFactory, eventWriter);
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createEndElement("", "", "uid_manager"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createStartElement("", "", "chapters"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        writeChapters(snapshot, eventFactory, eventWriter);
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createEndElement("", "", "chapters"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createStartElement("", "", "chapter_order"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        writeChapterOrderLists(snapshot, eventFactory, eventWriter);
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createEndElement("", "", "chapter_order"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createStartElement("", "", "events"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        writeEvents(snapshot, eventFactory, eventWriter);
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createEndElement("", "", "events"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createStartElement("", "", "event_order"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        writeEventOrderLists(snapshot, eventFactory, eventWriter);
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createEndElement("", "", "event_order"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createStartElement("", "", "characters"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        writeCharacters(snapshot, eventFactory, eventWriter);
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createEndElement("", "", "characters"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createStartElement("", "", "associations"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        writeAssociations(snapshot, eventFactory, eventWriter);
+        eventWriter.add(eventFactory.createCharacters("\t"));
+        eventWriter.add(eventFactory.createEndElement("", "", "associations"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createEndElement("", "", "project"));
+        eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+        eventWriter.add(eventFactory.createEndDocument());
+
+        eventWriter.flush();
+    }
+}
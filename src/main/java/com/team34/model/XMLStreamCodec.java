@@ -0,0 +1,937 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reads and writes wsp-files using the StAX cursor API ({@link XMLStreamReader} and {@link XMLStreamWriter}).
+ * <p>
+ * Unlike {@link XMLEventCodec}, no event objects are allocated for each tag, attribute or run of
+ * whitespace, and the factories are created once and reused.
+ * The files read and written are identical to those of {@link XMLEventCodec}.
+ * <p>
+ * On machines with more than one core, files of at least {@link XMLStreamCodec#setParallelThreshold(long)} bytes
+ * are split at the boundaries of their sections, such as "events" and "characters", which are then parsed in
+ * parallel on the {@link ForkJoinPool#commonPool()}. Since the sections do not depend on each other until they are
+ * added to the managers, the results are added on the calling thread once every section has been parsed.
+ * Likewise, projects of at least {@link XMLStreamCodec#PARALLEL_WRITE_THRESHOLD} entities are rendered one
+ * section per task when written to a {@link FileChannel}.
+ *
+ * @author Hazem Elkhalil
+ */
+public class XMLStreamCodec implements SectionedCodec {
+
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 256 * 1024;
+    public static final int PARALLEL_WRITE_THRESHOLD = 2000;
+
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = ThreadLocal.withInitial(XMLInputFactory::newInstance);
+    private static final ThreadLocal<XMLOutputFactory> OUTPUT_FACTORY = ThreadLocal.withInitial(XMLOutputFactory::newInstance);
+    private static final String NEWLINE = System.lineSeparator();
+
+    private static final String[] SECTIONS = {
+            "uid_manager", "chapters", "chapter_order", "events", "event_order", "characters", "associations"
+    };
+
+    private long parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * Sets the size of a file, in bytes, from which its sections are parsed in parallel.
+     *
+     * A negative value also disables writing the sections in parallel.
+     *
+     * @param threshold the size in bytes, or a negative value to always read and write the file sequentially
+     */
+    public void setParallelThreshold(long threshold) {
+        parallelThreshold = threshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Since the size of the stream is not known, up to {@link XMLStreamCodec#setParallelThreshold(long)} bytes
+     * are buffered to find out whether it is large enough to be parsed in parallel.
+     * Prefer {@link XMLStreamCodec#read(InputStream, long, Project)} when the size is known.
+     */
+    @Override
+    public void read(InputStream in, Project project) throws IOException, XMLStreamException {
+        read(in, -1L, project);
+    }
+
+    /**
+     * Reads a project like {@link XMLStreamCodec#read(InputStream, Project)}. The stream is only read into memory
+     * if it will be parsed in parallel. Smaller streams are parsed as they are read.
+     *
+     * @param in      the stream to read from
+     * @param size    the number of bytes in the stream, such as the length of the file, or -1 if it is not known
+     * @param project the project to load the data into
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public void read(InputStream in, long size, Project project) throws IOException, XMLStreamException {
+        if (parallelThreshold < 0 || parallelThreshold > Integer.MAX_VALUE - 8
+                || ForkJoinPool.getCommonPoolParallelism() <= 1 || (size >= 0 && size < parallelThreshold)) {
+            parse(in).addTo(project);
+            return;
+        }
+
+        if (size < 0) {
+            if (!in.markSupported())
+                in = new BufferedInputStream(in);
+            int limit = (int) parallelThreshold;
+            in.mark(limit);
+            long skipped = 0;
+            for (long n; skipped < limit && (n = in.skip(limit - skipped)) > 0; )
+                skipped += n;
+            in.reset();
+            if (skipped < limit) {
+                parse(in).addTo(project);
+                return;
+            }
+        }
+
+        byte[] data = in.readAllBytes();
+        if (!readParallel(data, project))
+            parse(new ByteArrayInputStream(data)).addTo(project);
+    }
+
+    /**
+     * Parses the sections of the given file in parallel, then adds them to the project.
+     *
+     * @param data    the contents of the file
+     * @param project the project to load the data into
+     * @return false if the file could not be split into sections, in which case nothing was added to the project
+     * @throws XMLStreamException
+     */
+    boolean readParallel(byte[] data, Project project) throws XMLStreamException {
+        int[][] bounds = findSections(data);
+        if (bounds == null)
+            return false;
+
+        // The project element, with all its sections left out
+        int headEnd = bounds[SECTIONS.length][0];
+        byte[] endTag = "</project>".getBytes(StandardCharsets.US_ASCII);
+        byte[] head = new byte[headEnd + endTag.length];
+        System.arraycopy(data, 0, head, 0, headEnd);
+        System.arraycopy(endTag, 0, head, headEnd, endTag.length);
+
+        List<CompletableFuture<Sections>> tasks = new ArrayList<>();
+        tasks.add(parseAsync(head, 0, head.length));
+        for (int i = 0; i < SECTIONS.length; i++) {
+            if (bounds[i] != null)
+                tasks.add(parseAsync(data, bounds[i][0], bounds[i][1] - bounds[i][0]));
+        }
+
+        List<Sections> parsed = new ArrayList<>(tasks.size());
+        try {
+            for (CompletableFuture<Sections> task : tasks)
+                parsed.add(task.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof XMLStreamException)
+                throw (XMLStreamException) e.getCause();
+            throw e;
+        }
+
+        for (Sections sections : parsed)
+            sections.addTo(project);
+        return true;
+    }
+
+    private CompletableFuture<Sections> parseAsync(byte[] data, int offset, int length) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parse(new ByteArrayInputStream(data, offset, length));
+            } catch (XMLStreamException e) {
+                throw new CompletionException(e);
+            }
+        }, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Locates the start and end of each section in the file, by looking for their tags.
+     * Since '&lt;' is always escaped in text and attributes, every '&lt;' starts a tag, unless the file
+     * contains comments, CDATA or processing instructions, in which case the file is not split.
+     *
+     * @param data the contents of the file
+     * @return for each of {@link XMLStreamCodec#SECTIONS}, the start offset of its start tag and the end offset of
+     * its end tag, or null if the section is missing, followed by the offset of the first section.
+     * Null if the file could not be split into sections.
+     */
+    private static int[][] findSections(byte[] data) {
+        int i = 0;
+        if (data.length >= 3 && (data[0] & 0xFF) == 0xEF && (data[1] & 0xFF) == 0xBB && (data[2] & 0xFF) == 0xBF)
+            i = 3; // UTF-8 byte order mark
+        if (i >= data.length || data[i] != '<')
+            return null;
+
+        if (startsWith(data, i, "<?xml")) {
+            int end = indexOf(data, i, "?>");
+            if (end < 0)
+                return null;
+            String declaration = new String(data, i, end - i, StandardCharsets.US_ASCII).toLowerCase(Locale.ROOT);
+            if (declaration.contains("encoding") && !declaration.contains("utf-8") && !declaration.contains("ascii"))
+                return null;
+            i = end + 2;
+        }
+
+        int[][] bounds = new int[SECTIONS.length + 1][];
+        int first = -1;
+        boolean inProject = false;
+
+        for (; i < data.length; i++) {
+            if (data[i] != '<')
+                continue;
+            if (i + 1 >= data.length || data[i + 1] == '!' || data[i + 1] == '?')
+                return null;
+
+            boolean end = data[i + 1] == '/';
+            int nameStart = end ? i + 2 : i + 1;
+
+            if (!end && !inProject && startsWith(data, nameStart, "project")) {
+                inProject = true;
+                continue;
+            }
+
+            for (int s = 0; s < SECTIONS.length; s++) {
+                String name = SECTIONS[s];
+                int close = nameStart + name.length();
+                if (close >= data.length || data[close] != '>' || !startsWith(data, nameStart, name))
+                    continue;
+
+                if (!end) {
+                    if (bounds[s] != null || !inProject)
+                        return null;
+                    bounds[s] = new int[]{i, -1};
+                    if (first < 0)
+                        first = i;
+                } else {
+                    if (bounds[s] == null || bounds[s][1] != -1)
+                        return null;
+                    bounds[s][1] = close + 1;
+                }
+                break;
+            }
+        }
+
+        if (first < 0)
+            return null;
+        for (int s = 0; s < SECTIONS.length; s++) {
+            if (bounds[s] != null && bounds[s][1] == -1)
+                return null;
+        }
+
+        bounds[SECTIONS.length] = new int[]{first};
+        return bounds;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, String prefix) {
+        if (offset + prefix.length() > data.length)
+            return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (data[offset + i] != prefix.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int from, String str) {
+        for (int i = from; i <= data.length - str.length(); i++) {
+            if (startsWith(data, i, str))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the given stream, which may hold either a whole file or a single section.
+     *
+     * @param in the stream to parse
+     * @return the parsed data
+     * @throws XMLStreamException
+     */
+    private Sections parse(InputStream in) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.get().createXMLStreamReader(in);
+        Sections sections = new Sections();
+
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT)
+                    continue;
+
+                switch (reader.getLocalName()) {
+                    case "project":
+                        sections.projectName = reader.getAttributeValue(null, "name");
+                        break;
+                    case "uid_manager":
+                        readUIDManager(reader, sections);
+                        break;
+                    case "chapters":
+                        readChapters(reader, sections);
+                        break;
+                    case "chapter_order":
+                        readOrderLists(reader, "chapter_order", "chapter_list", sections.chapterOrderLists);
+                        break;
+                    case "events":
+                        readEvents(reader, sections);
+                        break;
+                    case "event_order":
+                        readOrderLists(reader, "event_order", "order_list", sections.eventOrderLists);
+                        break;
+                    case "characters":
+                        readCharacters(reader, sections);
+                        break;
+                    case "associations":
+                        readAssociations(reader, sections);
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return sections;
+    }
+
+    /**
+     * Advances the reader to the next start element inside the section with the given name.
+     *
+     * @param reader  the reader
+     * @param section the local name of the section being read
+     * @return true if positioned at a start element; false if the end of the section was reached
+     * @throws XMLStreamException
+     */
+    private boolean nextInSection(XMLStreamReader reader, String section) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int type = reader.next();
+            if (type == XMLStreamConstants.START_ELEMENT)
+                return true;
+            if (type == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals(section))
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#parse(InputStream)}
+     *
+     * @param reader
+     * @param sections
+     * @throws XMLStreamException
+     */
+    private void readUIDManager(XMLStreamReader reader, Sections sections) throws XMLStreamException {
+        while (nextInSection(reader, "uid_manager")) {
+            if (reader.getLocalName().equals("uid"))
+                sections.uids.add(Long.parseLong(reader.getElementText().trim()));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#parse(InputStream)}
+     *
+     * @param reader
+     * @param sections
+     * @throws XMLStreamException
+     */
+    private void readChapters(XMLStreamReader reader, Sections sections) throws XMLStreamException {
+        while (nextInSection(reader, "chapters")) {
+            if (!reader.getLocalName().equals("chapter"))
+                continue;
+
+            long uid = -1L;
+            String name = null;
+            String color = null;
+
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                switch (reader.getAttributeLocalName(i)) {
+                    case "uid":
+                        uid = Long.parseLong(reader.getAttributeValue(i));
+                        break;
+                    case "name":
+                        name = reader.getAttributeValue(i);
+                        break;
+                    case "color":
+                        color = reader.getAttributeValue(i);
+                        break;
+                }
+            }
+
+            String description = reader.getElementText();
+            if (uid != -1L && name != null)
+                sections.chapters.add(new ProjectSnapshot.ChapterData(uid, name, description, color));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#parse(InputStream)}.
+     * Reads both chapter order lists and event order lists, since they share the same layout.
+     *
+     * @param reader
+     * @param section    the local name of the section, either "chapter_order" or "event_order"
+     * @param listName   the local name of each list, either "chapter_list" or "order_list"
+     * @param orderLists the list to add the order lists to
+     * @throws XMLStreamException
+     */
+    private void readOrderLists(XMLStreamReader reader, String section, String listName,
+                                List<LinkedList<Long>> orderLists) throws XMLStreamException {
+        while (nextInSection(reader, section)) {
+            if (!reader.getLocalName().equals(listName))
+                continue;
+
+            LinkedList<Long> orderList = new LinkedList<>();
+            while (nextInSection(reader, listName)) {
+                if (reader.getLocalName().equals("li"))
+                    orderList.add(Long.parseLong(reader.getElementText().trim()));
+            }
+            orderLists.add(orderList);
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#parse(InputStream)}
+     *
+     * @param reader
+     * @param sections
+     * @throws XMLStreamException
+     */
+    private void readEvents(XMLStreamReader reader, Sections sections) throws XMLStreamException {
+        while (nextInSection(reader, "events")) {
+            if (!reader.getLocalName().equals("event"))
+                continue;
+
+            long uid = -1L;
+            String name = null;
+            String chapter = null;
+            long chapterUid = -1L;
+            String color = null;
+
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                switch (reader.getAttributeLocalName(i)) {
+                    case "uid":
+                        uid = Long.parseLong(reader.getAttributeValue(i));
+                        break;
+                    case "name":
+                        name = reader.getAttributeValue(i);
+                        break;
+                    case "color":
+                        color = reader.getAttributeValue(i);
+                        break;
+                    case "chapter":
+                        chapter = reader.getAttributeValue(i);
+                        break;
+                    case "chapterUid":
+                        chapterUid = Long.parseLong(reader.getAttributeValue(i));
+                        break;
+                }
+            }
+
+            String description = reader.getElementText();
+            if (uid != -1L && name != null)
+                sections.events.add(new ProjectSnapshot.EventData(uid, name, description, null,
+                        new ChapterListObject(chapter, chapterUid, color)));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#parse(InputStream)}
+     *
+     * @param reader
+     * @param sections
+     * @throws XMLStreamException
+     */
+    private void readCharacters(XMLStreamReader reader, Sections sections) throws XMLStreamException {
+        while (nextInSection(reader, "characters")) {
+            if (!reader.getLocalName().equals("character"))
+                continue;
+
+            long uid = -1L;
+            String name = null;
+            double chartX = 0.0;
+            double chartY = 0.0;
+            long eventUID = -1L;
+            String eventName = null;
+            int age = 0;
+
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                switch (reader.getAttributeLocalName(i)) {
+                    case "uid":
+                        uid = Long.parseLong(reader.getAttributeValue(i));
+                        break;
+                    case "name":
+                        name = reader.getAttributeValue(i);
+                        break;
+                    case "chartX":
+                        chartX = Double.parseDouble(reader.getAttributeValue(i));
+                        break;
+                    case "chartY":
+                        chartY = Double.parseDouble(reader.getAttributeValue(i));
+                        break;
+                    case "eventName":
+                        eventName = reader.getAttributeValue(i);
+                        break;
+                    case "eventUID":
+                        eventUID = Long.parseLong(reader.getAttributeValue(i));
+                        break;
+                    case "age":
+                        age = Integer.parseInt(reader.getAttributeValue(i));
+                        break;
+                }
+            }
+
+            String description = reader.getElementText();
+            if (uid != -1L && name != null)
+                sections.characters.add(new ProjectSnapshot.CharacterData(uid, name, description, age,
+                        chartX, chartY, new EventListObject(eventName, eventUID)));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#parse(InputStream)}
+     *
+     * @param reader
+     * @param sections
+     * @throws XMLStreamException
+     */
+    private void readAssociations(XMLStreamReader reader, Sections sections) throws XMLStreamException {
+        while (nextInSection(reader, "associations")) {
+            if (!reader.getLocalName().equals("association"))
+                continue;
+
+            long uid = -1L;
+            long startUID = -1L;
+            long endUID = -1L;
+            double sX = 0.0;
+            double sY = 0.0;
+            double eX = 0.0;
+            double eY = 0.0;
+            double lblX = 0.0;
+            double lblY = 0.0;
+
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                String value = reader.getAttributeValue(i);
+                switch (reader.getAttributeLocalName(i)) {
+                    case "uid":
+                        uid = Long.parseLong(value);
+                        break;
+                    case "startUID":
+                        startUID = Long.parseLong(value);
+                        break;
+                    case "endUID":
+                        endUID = Long.parseLong(value);
+                        break;
+                    case "sX":
+                        sX = Double.parseDouble(value);
+                        break;
+                    case "sY":
+                        sY = Double.parseDouble(value);
+                        break;
+                    case "eX":
+                        eX = Double.parseDouble(value);
+                        break;
+                    case "eY":
+                        eY = Double.parseDouble(value);
+                        break;
+                    case "lblX":
+                        lblX = Double.parseDouble(value);
+                        break;
+                    case "lblY":
+                        lblY = Double.parseDouble(value);
+                        break;
+                }
+            }
+
+            String label = reader.getElementText();
+            if (uid != -1L)
+                sections.associations.add(new ProjectSnapshot.AssociationData(uid, startUID, endUID,
+                        sX, sY, eX, eY, label, lblX, lblY));
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The data parsed from a file, or from some of its sections, before it is added to the managers.
+     * Parsing does not touch the managers, which allows the sections to be parsed on different threads.
+     */
+    private static final class Sections {
+        private String projectName;
+        private final LongHashSet uids = new LongHashSet();
+        private final ArrayList<ProjectSnapshot.ChapterData> chapters = new ArrayList<>();
+        private final ArrayList<LinkedList<Long>> chapterOrderLists = new ArrayList<>();
+        private final ArrayList<ProjectSnapshot.EventData> events = new ArrayList<>();
+        private final ArrayList<LinkedList<Long>> eventOrderLists = new ArrayList<>();
+        private final ArrayList<ProjectSnapshot.CharacterData> characters = new ArrayList<>();
+        private final ArrayList<ProjectSnapshot.AssociationData> associations = new ArrayList<>();
+
+        /**
+         * Adds the parsed data to the managers of the given project.
+         *
+         * @param project the project to load the data into
+         */
+        private void addTo(Project project) {
+            if (projectName != null)
+                project.setProjectName(projectName);
+
+            for (long uid : uids.toArray())
+                project.uidManager.addUID(uid);
+
+            for (ProjectSnapshot.ChapterData chapter : chapters)
+                project.chapterManager.addChapter(chapter.uid, chapter.name, chapter.description, chapter.color);
+            for (LinkedList<Long> orderList : chapterOrderLists)
+                project.chapterManager.addOrderList(orderList);
+
+            for (ProjectSnapshot.EventData event : events)
+                project.eventManager.addEvent(event.uid, event.name, event.description, event.chapter);
+            for (LinkedList<Long> orderList : eventOrderLists)
+                project.eventManager.addOrderList(orderList);
+
+            for (ProjectSnapshot.CharacterData character : characters)
+                project.characterManager.addCharacter(character.uid, character.name, character.description,
+                        character.age, character.event, character.chartX, character.chartY);
+
+            for (ProjectSnapshot.AssociationData assoc : associations)
+                project.characterManager.addAssociation(assoc.uid, assoc.startUID, assoc.endUID,
+                        assoc.startX, assoc.startY, assoc.endX, assoc.endY, assoc.label, assoc.labelX, assoc.labelY);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(OutputStream out, ProjectSnapshot snapshot) throws XMLStreamException {
+        XMLStreamWriter writer = OUTPUT_FACTORY.get().createXMLStreamWriter(out);
+
+        try {
+            writeHead(writer, snapshot);
+            for (int section = 0; section < SECTIONS.length; section++)
+                writeSection(writer, section, snapshot);
+
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+
+            writer.writeEndDocument();
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * On machines with more than one core, the sections of large projects are rendered into separate buffers
+     * in parallel, which are then written with a single gathering write.
+     */
+    @Override
+    public void write(FileChannel channel, ProjectSnapshot snapshot) throws IOException, XMLStreamException {
+        if (isParallel(snapshot))
+            ProjectCodec.writeFully(channel, renderParallel(snapshot));
+        else
+            SectionedCodec.super.write(channel, snapshot);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The head of the file, up to the first section, and the closing tag of the project are rendered
+     * as sections of their own. The sections are rendered in parallel when writing to a channel would be.
+     */
+    @Override
+    public ByteBuffer[] render(ProjectSnapshot snapshot) throws XMLStreamException {
+        if (isParallel(snapshot))
+            return renderParallel(snapshot);
+
+        ByteBuffer[] buffers = new ByteBuffer[SECTIONS.length + 2];
+        buffers[0] = render(writer -> writeHead(writer, snapshot));
+        for (int i = 0; i < SECTIONS.length; i++) {
+            int section = i;
+            buffers[i + 1] = render(writer -> writeSection(writer, section, snapshot));
+        }
+        buffers[buffers.length - 1] = renderTail();
+        return buffers;
+    }
+
+    private boolean isParallel(ProjectSnapshot snapshot) {
+        return parallelThreshold >= 0 && snapshot.size() >= PARALLEL_WRITE_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Renders the head, each section and the tail of the file into separate buffers, in parallel.
+     * Written one after another, the buffers are identical to the output of
+     * {@link XMLStreamCodec#write(OutputStream, ProjectSnapshot)}.
+     *
+     * @param snapshot the snapshot to write
+     * @return the buffers, in order
+     * @throws XMLStreamException
+     */
+    ByteBuffer[] renderParallel(ProjectSnapshot snapshot) throws XMLStreamException {
+        List<CompletableFuture<ByteBuffer>> tasks = new ArrayList<>();
+        for (int i = 0; i < SECTIONS.length; i++) {
+            int section = i;
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return render(writer -> writeSection(writer, section, snapshot));
+                } catch (XMLStreamException e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[SECTIONS.length + 2];
+        buffers[0] = render(writer -> writeHead(writer, snapshot));
+        try {
+            for (int i = 0; i < SECTIONS.length; i++)
+                buffers[i + 1] = tasks.get(i).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof XMLStreamException)
+                throw (XMLStreamException) e.getCause();
+            throw e;
+        }
+        buffers[buffers.length - 1] = renderTail();
+        return buffers;
+    }
+
+    private ByteBuffer renderTail() {
+        return ByteBuffer.wrap(("</project>" + NEWLINE).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private ByteBuffer render(Fragment fragment) throws XMLStreamException {
+        RenderBuffer out = new RenderBuffer();
+        XMLStreamWriter writer = OUTPUT_FACTORY.get().createXMLStreamWriter(out);
+        try {
+            fragment.writeTo(writer);
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+        return out.toByteBuffer();
+    }
+
+    private void writeHead(XMLStreamWriter writer, ProjectSnapshot snapshot) throws XMLStreamException {
+        writer.writeStartDocument("1.0");
+        writer.writeCharacters(NEWLINE);
+
+        writer.writeStartElement("project");
+        writer.writeAttribute("name", snapshot.projectName);
+        writer.writeCharacters(NEWLINE);
+    }
+
+    private void writeSection(XMLStreamWriter writer, int section, ProjectSnapshot snapshot) throws XMLStreamException {
+        writeSectionStart(writer, SECTIONS[section]);
+        switch (SECTIONS[section]) {
+            case "uid_manager":
+                writeUIDManager(snapshot, writer);
+                break;
+            case "chapters":
+                writeChapters(snapshot, writer);
+                break;
+            case "chapter_order":
+                for (long[] orderList : snapshot.chapterOrderLists)
+                    writeOrderList(writer, "chapter_list", orderList);
+                break;
+            case "events":
+                writeEvents(snapshot, writer);
+                break;
+            case "event_order":
+                for (long[] orderList : snapshot.eventOrderLists)
+                    writeOrderList(writer, "order_list", orderList);
+                break;
+            case "characters":
+                writeCharacters(snapshot, writer);
+                break;
+            case "associations":
+                writeAssociations(snapshot, writer);
+                break;
+        }
+        writeSectionEnd(writer);
+    }
+
+    private void writeSectionStart(XMLStreamWriter writer, String section) throws XMLStreamException {
+        writer.writeCharacters("\t");
+        writer.writeStartElement(section);
+        writer.writeCharacters(NEWLINE);
+    }
+
+    private void writeSectionEnd(XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeCharacters("\t");
+        writer.writeEndElement();
+        writer.writeCharacters(NEWLINE);
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeUIDManager(ProjectSnapshot snapshot, XMLStreamWriter writer) throws XMLStreamException {
+        for (long uid : snapshot.uids) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("uid");
+            writer.writeCharacters(Long.toString(uid));
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeChapters(ProjectSnapshot snapshot, XMLStreamWriter writer) throws XMLStreamException {
+        for (ProjectSnapshot.ChapterData chapter : snapshot.chapters) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("chapter");
+            writer.writeAttribute("uid", Long.toString(chapter.uid));
+            writer.writeAttribute("name", chapter.name);
+            writer.writeAttribute("color", chapter.color);
+            writer.writeCharacters(chapter.description);
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+            snapshot.advance();
+        }
+    }
+
+    private void writeOrderList(XMLStreamWriter writer, String listName, long[] orderList)
+            throws XMLStreamException {
+        writer.writeCharacters("\t\t");
+        writer.writeStartElement(listName);
+        writer.writeCharacters(NEWLINE);
+
+        for (int j = 0; j < orderList.length; j++) {
+            writer.writeCharacters("\t\t\t");
+            writer.writeStartElement("li");
+            writer.writeCharacters(Long.toString(orderList[j]));
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+        }
+
+        writer.writeCharacters("\t\t");
+        writer.writeEndElement();
+        writer.writeCharacters(NEWLINE);
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeEvents(ProjectSnapshot snapshot, XMLStreamWriter writer) throws XMLStreamException {
+        for (ProjectSnapshot.EventData event : snapshot.events) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("event");
+            writer.writeAttribute("uid", Long.toString(event.uid));
+            writer.writeAttribute("name", event.name);
+            writer.writeAttribute("color", event.chapter != null ? event.chapter.getColor() : "");
+            if (event.chapter != null) {
+                writer.writeAttribute("chapter", event.chapter.getTitle());
+                writer.writeAttribute("chapterUid", Long.toString(event.chapter.getUid()));
+            }
+            writer.writeCharacters(LazyText.decode(event.description));
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+            snapshot.advance();
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeCharacters(ProjectSnapshot snapshot, XMLStreamWriter writer) throws XMLStreamException {
+        for (ProjectSnapshot.CharacterData character : snapshot.characters) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("character");
+            writer.writeAttribute("name", character.name);
+            writer.writeAttribute("uid", Long.toString(character.uid));
+            writer.writeAttribute("chartX", Double.toString(character.chartX));
+            writer.writeAttribute("chartY", Double.toString(character.chartY));
+            writer.writeAttribute("eventName", character.event != null ? character.event.getTitle() : "");
+            writer.writeAttribute("eventUID", Long.toString(character.event != null ? character.event.getUid() : -1L));
+            writer.writeAttribute("age", String.valueOf(character.age));
+            writer.writeCharacters(LazyText.decode(character.description));
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+            snapshot.advance();
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XMLStreamCodec#write(OutputStream, ProjectSnapshot)}
+     *
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private void writeAssociations(ProjectSnapshot snapshot, XMLStreamWriter writer) throws XMLStreamException {
+        for (ProjectSnapshot.AssociationData assoc : snapshot.associations) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("association");
+            writer.writeAttribute("uid", Long.toString(assoc.uid));
+            writer.writeAttribute("startUID", Long.toString(assoc.startUID));
+            writer.writeAttribute("endUID", Long.toString(assoc.endUID));
+            writer.writeAttribute("sX", Double.toString(assoc.startX));
+            writer.writeAttribute("sY", Double.toString(assoc.startY));
+            writer.writeAttribute("eX", Double.toString(assoc.endX));
+            writer.writeAttribute("eY", Double.toString(assoc.endY));
+            writer.writeAttribute("lblX", Double.toString(assoc.labelX));
+            writer.writeAttribute("lblY", Double.toString(assoc.labelY));
+            writer.writeCharacters(assoc.label);
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+            snapshot.advance();
+        }
+    }
+
+    /**
+     * Writes part of a file to a stream writer.
+     */
+    @FunctionalInterface
+    private interface Fragment {
+        void writeTo(XMLStreamWriter writer) throws XMLStreamException;
+    }
+
+    /**
+     * A byte array stream whose contents can be wrapped without being copied.
+     */
+    private static final class RenderBuffer extends ByteArrayOutputStream {
+        RenderBuffer() {
+            super(8192);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -21,6 +21,14 @@ public class Chapter {
     }
 
 
+    /**
+     * Returns the events added to this chapter. The set holds the event objects themselves, so it does not follow
+     * events that are replaced, such as when a project is loaded or a journal is replayed.
+     *
+     * Use {@link com.team34.model.event.EventManager#getEventsInChapter(long)} instead, which is kept up to date.
+     *
+     * @return the events
+     */
     public Set<Event> getEvents() {
         return events;
     }
@@ -1,39 +1,124 @@
 package com.team34.model.chapter;
 
+import com.team34.model.ChangeNotifier;
+import com.team34.model.ModelChange;
+import com.team34.model.ProjectJournal;
+import com.team34.model.EntityType;
+import com.team34.model.LongHashMap;
+import com.team34.model.NameIndex;
+import com.team34.model.TextIndex;
+import com.team34.model.OrderList;
 import com.team34.model.UIDManager;
 import com.team34.model.event.EventManager;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
-
+import java.util.List;
+
+/**
+ * This class manages all chapters and chapter order lists.
+ * <p>
+ * Events refer to their chapter by UID only. The title and color of a chapter are shared by its events through
+ * a single {@link ChapterListObject} per chapter, see {@link ChapterManager#getChapterListObject(long)}, which is
+ * replaced whenever the chapter is edited, so that editing a chapter does not touch its events.
+ */
 public class ChapterManager {
 
-    private HashMap<Long, Chapter> chapters;
-    private ArrayList<LinkedList<Long>> chapterOrderLists;
+    /**
+     * Receives the data of each chapter, see {@link ChapterManager#forEachChapter(ChapterVisitor)}.
+     */
+    @FunctionalInterface
+    public interface ChapterVisitor {
+        void visit(long uid, String name, String description, String color);
+    }
+
+    private LongHashMap<Chapter> chapters;
+    private final LongHashMap<ChapterListObject> listObjects;
+    private final NameIndex chapterNames;
+    private TextIndex textIndex;
+    private EventManager eventManager;
+    private ChangeNotifier changes;
+    private ArrayList<OrderList> chapterOrderLists;
     private boolean hasChanged;
+    private ProjectJournal journal;
+    private final UIDManager uidManager;
 
+    /**
+     * Constructs a chapter manager with a {@link UIDManager} of its own.
+     */
     public ChapterManager() {
+        this(new UIDManager());
+    }
+
+    /**
+     * Constructs a chapter manager, which creates the UIDs of new chapters with the given {@link UIDManager}.
+     *
+     * @param uidManager the UID manager of the project
+     */
+    public ChapterManager(UIDManager uidManager) {
+        this.uidManager = uidManager;
         hasChanged = false;
-        chapters = new HashMap<>();
+        chapters = new LongHashMap<>();
+        listObjects = new LongHashMap<>();
+        chapterNames = new NameIndex();
         chapterOrderLists = new ArrayList<>();
-        //chapterOrderLists.add(new LinkedList<>());
+        //chapterOrderLists.add(new OrderList());
+        changes = new ChangeNotifier();
 
     }
 
     public long newChapter(String name, String description, String color) {
-        long uid = UIDManager.nextUID();
-        addChapter(uid, name, description, color);
+        long uid = uidManager.nextUID(EntityType.CHAPTER);
+        putChapter(uid, name, description, color);
 
         if (chapterOrderLists.size() < 1)
-            chapterOrderLists.add(new LinkedList<>());
+            chapterOrderLists.add(new OrderList());
 
-        for (LinkedList<Long> e : chapterOrderLists)
+        for (OrderList e : chapterOrderLists)
             e.add(uid);
 
+        if (journal != null)
+            journal.recordChapter(uid, chapters.get(uid));
+
+        changes.publish(ModelChange.Kind.ADDED, EntityType.CHAPTER, uid);
         return uid;
     }
 
+    /**
+     * Creates or overwrites the chapter with the given UID. A new chapter is added to the {@link UIDManager}
+     * and the back of each chapter order list, the same way as {@link ChapterManager#newChapter}.
+     * Note: This should only be used when replaying a {@link ProjectJournal}.
+     *
+     * @param uid         the UID of the chapter
+     * @param name        the name of the chapter
+     * @param description the description of the chapter
+     * @param color       the color of the chapter
+     */
+    public void restoreChapter(long uid, String name, String description, String color) {
+        Chapter existing = chapters.get(uid);
+        if (existing != null) {
+            chapterNames.rename(existing.getName(), name, uid);
+            existing.setName(name);
+            existing.setDescription(description);
+            existing.setColor(color);
+            listObjects.remove(uid);
+            if (textIndex != null)
+                textIndex.index(uid, name, description);
+            hasChanged = true;
+            changes.publish(ModelChange.Kind.UPDATED, EntityType.CHAPTER, uid);
+            return;
+        }
+
+        uidManager.addUID(uid);
+        putChapter(uid, name, description, color);
+
+        if (chapterOrderLists.size() < 1)
+            chapterOrderLists.add(new OrderList());
+
+        for (OrderList e : chapterOrderLists)
+            e.add(uid);
+        changes.publish(ModelChange.Kind.ADDED, EntityType.CHAPTER, uid);
+    }
+
     /**
      *
      *
@@ -50,29 +135,108 @@ public class ChapterManager {
     public boolean editChapter(long uid, String name, String description) {
         if (chapters.containsKey(uid)) {
             Chapter chapter = getChapter(uid);
+            chapterNames.rename(chapter.getName(), name, uid);
             chapter.setName(name);
             chapter.setColor("#F28220");
             chapter.setDescription(description);
             chapters.replace(uid, chapter);
+            listObjects.remove(uid);
+            if (textIndex != null)
+                textIndex.index(uid, name, description);
             hasChanged = true;
+            if (journal != null)
+                journal.recordChapter(uid, chapter);
+            changes.publish(ModelChange.Kind.UPDATED, EntityType.CHAPTER, uid);
             return true;
         }
         return false;
     }
 
+    /**
+     * Removes the chapter associated with the given UID, and detaches its events from it, see
+     * {@link EventManager#editEventChapterListObject(long)}. Does nothing if there is no such chapter.
+     * To delete the events along with the chapter, use {@link com.team34.model.CascadeDelete#deleteChapter}.
+     *
+     * @param uid the UID of the chapter to remove
+     */
     public void removeChapter(long uid) {
-        chapters.remove(uid);
-        UIDManager.removeUID(uid);
+        if (!chapters.containsKey(uid))
+            return;
+
+        if (eventManager != null) {
+            for (long eventUID : eventManager.getEventsInChapter(uid))
+                eventManager.editEventChapterListObject(eventUID);
+        }
+
+        Chapter removed = chapters.remove(uid);
+        listObjects.remove(uid);
+        chapterNames.remove(removed.getName(), uid);
+        if (textIndex != null)
+            textIndex.remove(uid);
+        uidManager.removeUID(uid);
 
-        for (LinkedList<Long> e : chapterOrderLists)
+        for (OrderList e : chapterOrderLists)
             e.remove(uid);
 
         hasChanged = true;
+        if (journal != null)
+            journal.recordChapterRemoved(uid);
+        changes.publish(ModelChange.Kind.REMOVED, EntityType.CHAPTER, uid);
     }
 
     public void addChapter(long uid, String name, String description, String color) {
-        chapters.put(uid, new Chapter(name, description, color));
+        Chapter previous = putChapter(uid, name, description, color);
+        changes.publish(previous == null ? ModelChange.Kind.ADDED : ModelChange.Kind.UPDATED, EntityType.CHAPTER, uid);
+    }
+
+    /**
+     * Maps the UID to a new chapter, and keeps the name and text indexes up to date.
+     *
+     * @return the chapter that was replaced, or null
+     */
+    private Chapter putChapter(long uid, String name, String description, String color) {
+        Chapter previous = chapters.put(uid, new Chapter(name, description, color));
+        listObjects.remove(uid);
+        if (previous != null)
+            chapterNames.remove(previous.getName(), uid);
+        chapterNames.add(name, uid);
+        if (textIndex != null)
+            textIndex.index(uid, name, description);
         hasChanged = true;
+        return previous;
+    }
+
+    /**
+     * Adds a block of new chapters, whose UIDs have been reserved with {@link UIDManager#reserveUIDs}.
+     * Unlike {@link ChapterManager#addChapter}, the chapters are placed at the back of each chapter order list
+     * and recorded in the journal, the same way as {@link ChapterManager#newChapter}.
+     * The arrays hold the data of each chapter at the same index.
+     *
+     * @param uids         the reserved UIDs
+     * @param names        the names of the chapters
+     * @param descriptions the descriptions of the chapters
+     * @param colors       the colors of the chapters
+     */
+    public void addChapters(long[] uids, String[] names, String[] descriptions, String[] colors) {
+        if (names.length != uids.length || descriptions.length != uids.length || colors.length != uids.length)
+            throw new IllegalArgumentException("The arrays must be of equal length");
+
+        for (int i = 0; i < uids.length; i++)
+            putChapter(uids[i], names[i], descriptions[i], colors[i]);
+
+        if (chapterOrderLists.size() < 1)
+            chapterOrderLists.add(new OrderList());
+
+        for (OrderList e : chapterOrderLists) {
+            for (long uid : uids)
+                e.add(uid);
+        }
+
+        if (journal != null) {
+            for (long uid : uids)
+                journal.recordChapter(uid, chapters.get(uid));
+        }
+        changes.publish(ModelChange.Kind.ADDED, EntityType.CHAPTER, uids.clone());
     }
 
     public Object[] getChapterData(long uid) {
@@ -88,18 +252,40 @@ public class ChapterManager {
         if (chapters.size() < 1)
             return null;
 
-        Long[] uidOrder = chapters.keySet().toArray(new Long[chapters.size()]);
-        Object[][] eventArray = new Object[uidOrder.length][4];
+        Object[][] chapterArray = new Object[chapters.size()][];
+        int[] i = {0};
+        forEachChapter((uid, name, description, color) ->
+                chapterArray[i[0]++] = new Object[]{uid, name, description, color});
+        return chapterArray;
+    }
 
-        for (int i = 0; i < uidOrder.length; i++) {
-            long uid = uidOrder[i];
-            Chapter chapterRef = chapters.get(uid);
-            eventArray[i][0] = uid;
-            eventArray[i][1] = chapterRef.getName();
-            eventArray[i][2] = chapterRef.getDescription();
-            eventArray[i][3] = chapterRef.getColor();
-        }
-        return eventArray;
+    /**
+     * Passes the data of each chapter to the visitor, in no particular order.
+     * Unlike {@link ChapterManager#getChapters()}, no array is allocated for each chapter, and no value is boxed.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachChapter(ChapterVisitor visitor) {
+        chapters.forEach((uid, chapter) ->
+                visitor.visit(uid, chapter.getName(), chapter.getDescription(), chapter.getColor()));
+    }
+
+    /**
+     * Passes the data of each chapter in a chapter order list to the visitor, in the order of the list.
+     * Nothing is allocated for the chapters.
+     *
+     * @param chapterOrderList the index to the chapter order list to use
+     * @param visitor          the visitor
+     */
+    public void forEachChapter(int chapterOrderList, ChapterVisitor visitor) {
+        if (chapterOrderList >= chapterOrderLists.size() || chapterOrderList < 0)
+            return;
+
+        chapterOrderLists.get(chapterOrderList).forEach(uid -> {
+            Chapter chapter = chapters.get(uid);
+            if (chapter != null)
+                visitor.visit(uid, chapter.getName(), chapter.getDescription(), chapter.getColor());
+        });
     }
 
     public Long[] getChapterOrder(int chapterOrderList) {
@@ -110,34 +296,60 @@ public class ChapterManager {
             return null;
 
 
-        System.out.println(chapterOrderLists+ " ChapterorderLists");
-        //System.out.println(Arrays.toString(chapterOrderLists.get(chapterOrderList).toArray()) + "hej2");
+        long[] order = getChapterOrderArray(chapterOrderList);
+        Long[] boxed = new Long[order.length];
+        for (int i = 0; i < order.length; i++)
+            boxed[i] = order[i];
+        return boxed;
+    }
 
-        return chapterOrderLists.get(chapterOrderList).toArray(
-                new Long[chapterOrderLists.get(chapterOrderList).size()]
+    /**
+     * Returns the UIDs of a chapter order list as an array of primitives, see {@link ChapterManager#getChapterOrder}.
+     *
+     * @param chapterOrderList the index to the chapter order list to use
+     * @return the order of chapter UIDs, or null if there is no such order list
+     */
+    public long[] getChapterOrderArray(int chapterOrderList) {
+        if (chapterOrderList >= chapterOrderLists.size() || chapterOrderList < 0)
+            return null;
 
-        );
+        return chapterOrderLists.get(chapterOrderList).toArray();
     }
 
+    /**
+     * Returns the index of a given chapter in a given chapter order list, else returns -1.
+     * Takes O(log n) time, see {@link OrderList#indexOf}.
+     *
+     * @param chapterOrderList the index to the chapter order list to use
+     * @param uid              the UID of the chapter
+     * @return the index of the chapter
+     */
     public int getChapterIndex(int chapterOrderList, long uid) {
-        Long[] chapters = getChapterOrder(chapterOrderList);
+        if (chapterOrderList >= chapterOrderLists.size() || chapterOrderList < 0)
+            return -1;
 
-        for (int i = 0; i < chapters.length; i++) {
-            if (chapters[i].equals(uid))
-                return i;
-        }
-        return -1;
+        return chapterOrderLists.get(chapterOrderList).indexOf(uid);
     }
 
-    public void addOrderList(LinkedList<Long> orderList) {
-        chapterOrderLists.add(orderList);
+    /**
+     * Adds a chapter order list.
+     * This should only be used when loading a project.
+     *
+     * @param orderList the chapter UIDs of the order list, in order
+     */
+    public void addOrderList(List<Long> orderList) {
+        chapterOrderLists.add(new OrderList(orderList));
+        changes.publishReordered(EntityType.CHAPTER, chapterOrderLists.size() - 1);
     }
 
     /**
      * Removes all events and event order lists, and sets {@link #} to false.
      */
     public void clear() {
+        changes.publish(ModelChange.Kind.REMOVED, EntityType.CHAPTER, chapters.keys());
         chapters.clear();
+        listObjects.clear();
+        chapterNames.clear();
         chapterOrderLists.clear();
         hasChanged = false;
     }
@@ -158,16 +370,114 @@ public class ChapterManager {
         hasChanged = false;
     }
 
+    /**
+     * Sets the journal that changes are recorded to. Set to null to stop recording.
+     *
+     * @param journal the journal, or null
+     */
+    public void setJournal(ProjectJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Registers a listener, which is told of each change made to the chapters and chapter order lists.
+     *
+     * @param listener the listener
+     */
+    public void addChangeListener(ModelChange.Listener listener) {
+        changes.addListener(listener);
+    }
+
+    /**
+     * Unregisters a listener registered with {@link ChapterManager#addChangeListener}.
+     *
+     * @param listener the listener
+     */
+    public void removeChangeListener(ModelChange.Listener listener) {
+        changes.removeListener(listener);
+    }
+
+    /**
+     * Sets the notifier that changes are published through, such as one shared by all managers of a project.
+     * Listeners registered with the previous notifier are not moved to the new one.
+     *
+     * @param changes the notifier
+     */
+    public void setChangeNotifier(ChangeNotifier changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Returns the notifier that changes are published through, which can be used to batch changes.
+     *
+     * @return the notifier
+     */
+    public ChangeNotifier getChangeNotifier() {
+        return changes;
+    }
+
+    /**
+     * Sets the text index that the chapters are indexed in, see {@link TextIndex}. Set to null to stop indexing.
+     *
+     * @param textIndex the text index, or null
+     */
+    public void setTextIndex(TextIndex textIndex) {
+        this.textIndex = textIndex;
+    }
+
+    /**
+     * Sets the event manager whose events are detached from a chapter when it is removed.
+     * Called by the {@link EventManager} of this chapter manager when it is constructed.
+     *
+     * @param eventManager the event manager, or null
+     */
+    public void setEventManager(EventManager eventManager) {
+        this.eventManager = eventManager;
+    }
+
     public Chapter getChapter(long uid) {
         return this.chapters.get(uid);
     }
 
-    public Chapter getChapter(String chapterName) {
-        for (Chapter value : chapters.values()) {
-            if (value.getName().equalsIgnoreCase(chapterName))
-                return value;
+    /**
+     * Returns the title and color of a chapter, as referred to by its events. The same object is returned
+     * until the chapter is edited, so that every event of the chapter shares it.
+     *
+     * @param uid the UID of the chapter
+     * @return the chapter list object, or null if there is no chapter with the UID
+     */
+    public ChapterListObject getChapterListObject(long uid) {
+        ChapterListObject listObject = listObjects.get(uid);
+        if (listObject == null) {
+            Chapter chapter = chapters.get(uid);
+            if (chapter == null)
+                return null;
+
+            listObject = new ChapterListObject(chapter.getName(), uid, chapter.getColor());
+            listObjects.put(uid, listObject);
         }
-        return null;
+        return listObject;
+    }
+
+    /**
+     * Returns the chapter with the given name, ignoring case. Takes constant time, see {@link NameIndex}.
+     *
+     * @param chapterName the name of the chapter
+     * @return the chapter, or null if no chapter has the name
+     */
+    public Chapter getChapter(String chapterName) {
+        long uid = chapterNames.getUID(chapterName);
+        return uid == -1L ? null : chapters.get(uid);
+    }
+
+    /**
+     * Returns the UID of the chapter with the given name, ignoring case.
+     *
+     * @param chapterName the name of the chapter
+     * @return the UID, or -1 if no chapter has the name
+     */
+    public long getChapterUID(String chapterName) {
+        return chapterNames.getUID(chapterName);
     }
 
 
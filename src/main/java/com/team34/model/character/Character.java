@@ -10,13 +10,13 @@ import com.team34.model.event.EventListObject;
 public class Character {
 
     private String name = "";
-    private String description = "";
+    private CharSequence description = "";
     private int age = 0;
     private double chartPositionX = 0.0;
     private double chartPositionY = 0.0;
     private EventListObject event;
 
-    public Character(String name, String description, int age, EventListObject event, double posX, double posY) {
+    public Character(String name, CharSequence description, int age, EventListObject event, double posX, double posY) {
         this.name = name;
         this.description = description;
         this.event = event;
@@ -25,7 +25,7 @@ public class Character {
         chartPositionY = posY;
     }
 
-    public Character(String name, String description, int age, double posX, double posY) {
+    public Character(String name, CharSequence description, int age, double posX, double posY) {
         this.name = name;
         this.description = description;
         this.age = age;
@@ -49,11 +49,27 @@ public class Character {
         this.name = name;
     }
 
+    /**
+     * Returns the description. If it has not been loaded yet, it is loaded and kept from now on.
+     *
+     * @return the description
+     */
     public String getDescription() {
+        if (description != null && !(description instanceof String))
+            description = description.toString();
+        return (String) description;
+    }
+
+    /**
+     * Returns the description, without loading it if it has not been loaded yet.
+     *
+     * @return the description
+     */
+    public CharSequence getLazyDescription() {
         return description;
     }
 
-    public void setDescription(String description) {
+    public void setDescription(CharSequence description) {
         this.description = description;
     }
 
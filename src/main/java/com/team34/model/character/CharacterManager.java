@@ -1,38 +1,104 @@
 package com.team34.model.character;
 
+import com.team34.model.ChangeNotifier;
+import com.team34.model.ModelChange;
+import com.team34.model.ProjectJournal;
+import com.team34.model.ReverseIndex;
+import com.team34.model.EntityType;
+import com.team34.model.LongHashMap;
+import com.team34.model.LongHashSet;
+import com.team34.model.NameIndex;
+import com.team34.model.TextIndex;
 import com.team34.model.UIDManager;
 import com.team34.model.event.EventListObject;
 import com.team34.view.character.CharacterListObject;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
- * Manages the characters in the application. All character objects are stored as values in a HashMap and can be
+ * Manages the characters in the application. All character objects are stored as values in a {@link LongHashMap} and can be
  * accessed through their respective UIDs, used as keys.
  * <p>
  * The character manager class contains methods to create, edit and delete characters, and can return data from
  * individual character objects. It also contains the {@link #getCharacterList()} method, which returns an array of
  * {@link CharacterListObject} objects.
+ * <p>
+ * Each change is published as a {@link ModelChange} to the listeners of the {@link ChangeNotifier},
+ * see {@link CharacterManager#addChangeListener}.
+ * <p>
+ * The event of each character, and the characters of each association, are kept in {@link ReverseIndex}es,
+ * so that the characters of an event and the associations of a character are found without looking at
+ * every character or association.
  *
  * @author Jim Andersson
  */
 public class CharacterManager {
 
-    private HashMap<Long, Character> characterMap;
-    private HashMap<Long, Association> associationMap;
+    /**
+     * Receives the data of each character, see {@link CharacterManager#forEachCharacter(CharacterVisitor)}.
+     */
+    @FunctionalInterface
+    public interface CharacterVisitor {
+        /**
+         * @param uid         the UID of the character
+         * @param name        the name of the character
+         * @param description the description, as a CharSequence which is only loaded when converted to a String
+         * @param age         the age of the character
+         * @param chartX      the x position in the character chart
+         * @param chartY      the y position in the character chart
+         * @param event       the event of the character, or null if it has none
+         */
+        void visit(long uid, String name, CharSequence description, int age, double chartX, double chartY,
+                   EventListObject event);
+    }
+
+    /**
+     * Receives the data of each association, see {@link CharacterManager#forEachAssociation(AssociationVisitor)}.
+     */
+    @FunctionalInterface
+    public interface AssociationVisitor {
+        void visit(long uid, long startUID, long endUID, double startX, double startY, double endX, double endY,
+                   String label, double labelX, double labelY);
+    }
+
+    private LongHashMap<Character> characterMap;
+    private final NameIndex characterNames;
+    private TextIndex textIndex;
+    private ChangeNotifier changes;
+    private final ReverseIndex charactersByEvent;
+    private final ReverseIndex associationsByCharacter;
+    private LongHashMap<Association> associationMap;
     private boolean hasChanged;
+    private ProjectJournal journal;
+    private final UIDManager uidManager;
 
+    /**
+     * Constructs a character manager with a {@link UIDManager} of its own.
+     */
     public CharacterManager() {
-        characterMap = new HashMap<>();
-        associationMap = new HashMap<>();
+        this(new UIDManager());
+    }
+
+    /**
+     * Constructs a character manager, which creates the UIDs of new characters and associations
+     * with the given {@link UIDManager}.
+     *
+     * @param uidManager the UID manager of the project
+     */
+    public CharacterManager(UIDManager uidManager) {
+        this.uidManager = uidManager;
+        characterMap = new LongHashMap<>();
+        characterNames = new NameIndex();
+        associationMap = new LongHashMap<>();
         hasChanged = false;
+        changes = new ChangeNotifier();
+        charactersByEvent = new ReverseIndex();
+        associationsByCharacter = new ReverseIndex();
     }
 
     /**
-     * Creates a new character and stores it in a HashMap.
+     * Creates a new character and stores it in the character map.
      *
      * @param name        Character name.
      * @param description Character description.
@@ -43,21 +109,78 @@ public class CharacterManager {
     }
 
     public long newCharacter(String name, String description, int age, EventListObject event, double posX, double posY) {
-        long uid = UIDManager.nextUID();
+        long uid = uidManager.nextUID(EntityType.CHARACTER);
         addCharacter(uid, name, description, age, event, posX, posY);
+        if (journal != null)
+            journal.recordCharacter(uid, characterMap.get(uid));
         return uid;
     }
 
-    public void addCharacter(long uid, String name, String description, int age, EventListObject event, double posX, double posY) {
+    public void addCharacter(long uid, String name, CharSequence description, int age, EventListObject event, double posX, double posY) {
         if (event!=null) {
-            characterMap.put(uid, new Character(name, description, age, event, posX, posY));
+            putCharacter(uid, new Character(name, description, age, event, posX, posY));
             hasChanged = true;
         }else {
-            characterMap.put(uid, new Character(name, description, age, posX, posY));
+            putCharacter(uid, new Character(name, description, age, posX, posY));
         }
 
     }
 
+    /**
+     * Maps the UID to the character, keeps the name index up to date, and publishes the change.
+     */
+    private void putCharacter(long uid, Character character) {
+        Character previous = characterMap.put(uid, character);
+        if (previous != null)
+            characterNames.rename(previous.getName(), character.getName(), uid);
+        else
+            characterNames.add(character.getName(), uid);
+        if (character.getEvent() != null)
+            charactersByEvent.link(uid, character.getEvent().getUid());
+        else
+            charactersByEvent.unlink(uid);
+        if (textIndex != null)
+            textIndex.index(uid, character.getName(), character.getLazyDescription());
+        changes.publish(previous == null ? ModelChange.Kind.ADDED : ModelChange.Kind.UPDATED, EntityType.CHARACTER, uid);
+    }
+
+    /**
+     * Adds a block of new characters, whose UIDs have been reserved with {@link UIDManager#reserveUIDs}.
+     * Unlike {@link CharacterManager#addCharacter}, the characters are recorded in the journal,
+     * the same way as {@link CharacterManager#newCharacter}.
+     * The arrays hold the data of each character at the same index.
+     *
+     * @param uids         the reserved UIDs
+     * @param names        the names of the characters
+     * @param descriptions the descriptions of the characters
+     * @param ages         the ages of the characters
+     * @param events       the events of the characters, which may be null
+     * @param posX         the x positions in the character chart
+     * @param posY         the y positions in the character chart
+     */
+    public void addCharacters(long[] uids, String[] names, CharSequence[] descriptions, int[] ages,
+                              EventListObject[] events, double[] posX, double[] posY) {
+        int count = uids.length;
+        if (names.length != count || descriptions.length != count || ages.length != count
+                || events.length != count || posX.length != count || posY.length != count)
+            throw new IllegalArgumentException("The arrays must be of equal length");
+
+        changes.beginBatch();
+        try {
+            for (int i = 0; i < count; i++) {
+                addCharacter(uids[i], names[i], descriptions[i], ages[i], events[i], posX[i], posY[i]);
+                hasChanged = true;
+            }
+        } finally {
+            changes.endBatch();
+        }
+
+        if (journal != null) {
+            for (long uid : uids)
+                journal.recordCharacter(uid, characterMap.get(uid));
+        }
+    }
+
     /**
      * Edits an existing character.
      *
@@ -70,25 +193,53 @@ public class CharacterManager {
         if (characterMap.containsKey(uid)) {
             Character existing = characterMap.get(uid);
             if (event!=null) {
-                characterMap.replace(uid,
+                putCharacter(uid,
                         new Character(name, description, age, event, existing.getChartPositionX(), existing.getChartPositionY()));
                 hasChanged = true;
+                if (journal != null)
+                    journal.recordCharacter(uid, characterMap.get(uid));
                 return true;
             } else {
-                characterMap.replace(uid,
+                putCharacter(uid,
                         new Character(name, description, age, existing.getChartPositionX(), existing.getChartPositionY()));
+                hasChanged = true;
+                if (journal != null)
+                    journal.recordCharacter(uid, characterMap.get(uid));
             }
         }
         return false;
     }
 
+    /**
+     * Sets the event of an existing character, keeping the rest of its data.
+     *
+     * @param uid   the UID of the character
+     * @param event the new event, or null to detach the character from its event
+     * @return true if the character exists
+     */
+    public boolean setCharacterEvent(long uid, EventListObject event) {
+        Character existing = characterMap.get(uid);
+        if (existing == null)
+            return false;
+
+        putCharacter(uid, new Character(existing.getName(), existing.getLazyDescription(), existing.getAge(), event,
+                existing.getChartPositionX(), existing.getChartPositionY()));
+        hasChanged = true;
+        if (journal != null)
+            journal.recordCharacter(uid, characterMap.get(uid));
+        return true;
+    }
+
     public boolean editCharacter(long uid, double chartPosX, double chartPosY) {
         if (characterMap.containsKey(uid)) {
             Character existing = characterMap.get(uid);
             characterMap.replace(uid,
-                    new Character(existing.getName(), existing.getDescription(), existing.getAge(), existing.getEvent(), chartPosX, chartPosY)
+                    new Character(existing.getName(), existing.getLazyDescription(), existing.getAge(), existing.getEvent(), chartPosX, chartPosY)
             );
             hasChanged = true;
+            if (journal != null)
+                journal.recordCharacter(uid, characterMap.get(uid));
+            changes.publish(ModelChange.Kind.UPDATED, EntityType.CHARACTER, uid);
             return true;
         }
         return false;
@@ -100,14 +251,25 @@ public class CharacterManager {
      * @param uid Character UID.
      */
     public void deleteCharacter(long uid) {
-        characterMap.remove(uid);
-        UIDManager.removeUID(uid);
+        Character removed = characterMap.remove(uid);
+        if (removed != null)
+            characterNames.remove(removed.getName(), uid);
+        charactersByEvent.unlink(uid);
+        if (textIndex != null)
+            textIndex.remove(uid);
+        uidManager.removeUID(uid);
         hasChanged = true;
+        if (journal != null)
+            journal.recordCharacterRemoved(uid);
+        if (removed != null)
+            changes.publish(ModelChange.Kind.REMOVED, EntityType.CHARACTER, uid);
     }
 
     public long newAssociation(long sCharUID, long eCharUID, double sX, double sY, double eX, double eY, String label, double lblX, double lblY) {
-        long uid = UIDManager.nextUID();
+        long uid = uidManager.nextUID(EntityType.ASSOCIATION);
         addAssociation(uid, sCharUID, eCharUID, sX, sY, eX, eY, label, lblX, lblY);
+        if (journal != null)
+            journal.recordAssociation(uid, sCharUID, eCharUID, sX, sY, eX, eY, label, lblX, lblY);
         return uid;
     }
 
@@ -123,8 +285,10 @@ public class CharacterManager {
         assoc.labelX = lblX;
         assoc.labelY = lblY;
 
-        associationMap.put(uid, assoc);
+        Association previous = associationMap.put(uid, assoc);
+        associationsByCharacter.link(uid, sCharUID, eCharUID);
         hasChanged = true;
+        changes.publish(previous == null ? ModelChange.Kind.ADDED : ModelChange.Kind.UPDATED, EntityType.ASSOCIATION, uid);
     }
 
     public boolean editAssociation(long uid, long sCharUID, long eCharUID, double sX, double sY, double eX, double eY, String label, double lblX, double lblY) {
@@ -141,55 +305,138 @@ public class CharacterManager {
             assoc.labelY = lblY;
 
             associationMap.replace(uid, assoc);
+            associationsByCharacter.link(uid, sCharUID, eCharUID);
             hasChanged = true;
+            if (journal != null)
+                journal.recordAssociation(uid, sCharUID, eCharUID, sX, sY, eX, eY, label, lblX, lblY);
+            changes.publish(ModelChange.Kind.UPDATED, EntityType.ASSOCIATION, uid);
             return true;
         }
         return false;
     }
 
     public void deleteAssociation(long uid) {
-        associationMap.remove(uid);
-        UIDManager.removeUID(uid);
+        Association removed = associationMap.remove(uid);
+        associationsByCharacter.unlink(uid);
+        uidManager.removeUID(uid);
         hasChanged = true;
+        if (journal != null)
+            journal.recordAssociationRemoved(uid);
+        if (removed != null)
+            changes.publish(ModelChange.Kind.REMOVED, EntityType.ASSOCIATION, uid);
+    }
+
+    /**
+     * Creates or overwrites the character with the given UID, and adds a new UID to the {@link UIDManager}.
+     * Note: This should only be used when replaying a {@link ProjectJournal}.
+     */
+    public void restoreCharacter(long uid, String name, String description, int age, EventListObject event, double posX, double posY) {
+        if (!characterMap.containsKey(uid))
+            uidManager.addUID(uid);
+        addCharacter(uid, name, description, age, event, posX, posY);
+        hasChanged = true;
+    }
+
+    /**
+     * Creates or overwrites the association with the given UID, and adds a new UID to the {@link UIDManager}.
+     * Note: This should only be used when replaying a {@link ProjectJournal}.
+     */
+    public void restoreAssociation(long uid, long sCharUID, long eCharUID, double sX, double sY, double eX, double eY, String label, double lblX, double lblY) {
+        if (!associationMap.containsKey(uid))
+            uidManager.addUID(uid);
+        addAssociation(uid, sCharUID, eCharUID, sX, sY, eX, eY, label, lblX, lblY);
     }
 
     /**
      * Returns an array list of Object arrays containing character names and UIDs.
+     * The description, at index 4, is a CharSequence which is only loaded when converted to a String.
      *
      * @return ArrayList of Object[]
      *///TODO update javadoc
     public ArrayList<Object[]> getCharacterList() {
-        ArrayList<Object[]> characterArrayList = new ArrayList<>();
-
-        for (Map.Entry character : characterMap.entrySet()) {
-            Character ch = (Character) character.getValue();
-            Object[] chListObj = new Object[9];
-            if (ch.getEvent() != null) {
-                chListObj[0] = ch.getName();
-                chListObj[1] = character.getKey();
-                chListObj[2] = ch.getChartPositionX();
-                chListObj[3] = ch.getChartPositionY();
-                chListObj[4] = ch.getDescription();
-                chListObj[5] = ch.getEvent();
-                chListObj[6] = ch.getEvent().getTitle();
-                chListObj[7] = ch.getEvent().getUid();
-                chListObj[8] = ch.getAge();
-            } else {
-                chListObj[0] = ch.getName();
-                chListObj[1] = character.getKey();
-                chListObj[2] = ch.getChartPositionX();
-                chListObj[3] = ch.getChartPositionY();
-                chListObj[4] = ch.getDescription();
-                chListObj[5] = "";
-                chListObj[6] = "";
-                chListObj[7] = "";
-                chListObj[8] = ch.getAge();
-            }
-            characterArrayList.add(chListObj);
-        }
+        ArrayList<Object[]> characterArrayList = new ArrayList<>(characterMap.size());
+        forEachCharacter((uid, name, description, age, chartX, chartY, event) ->
+                characterArrayList.add(characterRow(uid, name, description, age, chartX, chartY, event)));
         return characterArrayList;
     }
 
+    /**
+     * Returns the same data as {@link CharacterManager#getCharacterList()}, for the characters with the given UIDs only,
+     * in the given order. UIDs of characters that do not exist are skipped.
+     *
+     * @param uids the UIDs of the characters
+     * @return ArrayList of Object[]
+     */
+    public ArrayList<Object[]> getCharacterList(long[] uids) {
+        ArrayList<Object[]> characterArrayList = new ArrayList<>(uids.length);
+        forEachCharacter(uids, (uid, name, description, age, chartX, chartY, event) ->
+                characterArrayList.add(characterRow(uid, name, description, age, chartX, chartY, event)));
+        return characterArrayList;
+    }
+
+    private static Object[] characterRow(long uid, String name, CharSequence description, int age,
+                                         double chartX, double chartY, EventListObject event) {
+        if (event != null)
+            return new Object[]{name, uid, chartX, chartY, description, event, event.getTitle(), event.getUid(), age};
+        return new Object[]{name, uid, chartX, chartY, description, "", "", "", age};
+    }
+
+    /**
+     * Passes the data of each character to the visitor, in no particular order.
+     * Unlike {@link CharacterManager#getCharacterList()}, no array is allocated for each character,
+     * and no value is boxed.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachCharacter(CharacterVisitor visitor) {
+        characterMap.forEach((uid, ch) -> visitor.visit(uid, ch.getName(), ch.getLazyDescription(), ch.getAge(),
+                ch.getChartPositionX(), ch.getChartPositionY(), ch.getEvent()));
+    }
+
+    /**
+     * Passes the data of the characters with the given UIDs to the visitor, in the given order.
+     * UIDs of characters that do not exist are skipped.
+     *
+     * @param uids    the UIDs of the characters
+     * @param visitor the visitor
+     */
+    public void forEachCharacter(long[] uids, CharacterVisitor visitor) {
+        for (long uid : uids) {
+            Character ch = characterMap.get(uid);
+            if (ch != null)
+                visitor.visit(uid, ch.getName(), ch.getLazyDescription(), ch.getAge(),
+                        ch.getChartPositionX(), ch.getChartPositionY(), ch.getEvent());
+        }
+    }
+
+    /**
+     * Passes the data of each association to the visitor, in no particular order.
+     * Unlike {@link CharacterManager#getAssociationData()}, no array is allocated for each association,
+     * and no value is boxed.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachAssociation(AssociationVisitor visitor) {
+        associationMap.forEach((uid, assoc) -> visitor.visit(uid, assoc.startCharacterUID, assoc.endCharacterUID,
+                assoc.startX, assoc.startY, assoc.endX, assoc.endY, assoc.label, assoc.labelX, assoc.labelY));
+    }
+
+    /**
+     * Passes the data of the associations with the given UIDs to the visitor, in the given order.
+     * UIDs of associations that do not exist are skipped.
+     *
+     * @param uids    the UIDs of the associations
+     * @param visitor the visitor
+     */
+    public void forEachAssociation(long[] uids, AssociationVisitor visitor) {
+        for (long uid : uids) {
+            Association assoc = associationMap.get(uid);
+            if (assoc != null)
+                visitor.visit(uid, assoc.startCharacterUID, assoc.endCharacterUID, assoc.startX, assoc.startY,
+                        assoc.endX, assoc.endY, assoc.label, assoc.labelX, assoc.labelY);
+        }
+    }
+
     /**
      * Returns a String array of individual character name and description.
      *
@@ -241,32 +488,82 @@ public class CharacterManager {
         if (associationMap.size() < 1)
             return null;
 
-        Object[][] array = new Object[associationMap.size()][10];
-        Iterator<Map.Entry<Long, Association>> it = associationMap.entrySet().iterator();
-
-        int i = 0;
-        while (it.hasNext()) {
-            Map.Entry<Long, Association> entry = it.next();
-            Association assoc = entry.getValue();
-            array[i][0] = entry.getKey();
-            array[i][1] = assoc.startCharacterUID;
-            array[i][2] = assoc.endCharacterUID;
-            array[i][3] = assoc.startX;
-            array[i][4] = assoc.startY;
-            array[i][5] = assoc.endX;
-            array[i][6] = assoc.endY;
-            array[i][7] = assoc.label;
-            array[i][8] = assoc.labelX;
-            array[i][9] = assoc.labelY;
-            i++;
+        Object[][] array = new Object[associationMap.size()][];
+        int[] i = {0};
+        forEachAssociation((uid, startUID, endUID, startX, startY, endX, endY, label, labelX, labelY) ->
+                array[i[0]++] = new Object[]{uid, startUID, endUID, startX, startY, endX, endY, label, labelX, labelY});
+        return array;
+    }
+
+    /**
+     * Returns the same data as {@link CharacterManager#getAssociationData()}, for the associations starting or ending
+     * at any of the given characters only, in ascending order of UID. Each association is included once.
+     *
+     * @param characterUIDs the UIDs of the characters
+     * @return an array of the association data, which is empty if there are no such associations
+     */
+    public Object[][] getAssociationDataOfCharacters(long[] characterUIDs) {
+        LongHashSet found = new LongHashSet();
+        for (long characterUID : characterUIDs) {
+            for (long uid : associationsByCharacter.getSources(characterUID))
+                found.add(uid);
         }
 
-        return array;
+        long[] uids = found.toArray();
+        Arrays.sort(uids);
+        ArrayList<Object[]> array = new ArrayList<>(uids.length);
+        forEachAssociation(uids, (uid, startUID, endUID, startX, startY, endX, endY, label, labelX, labelY) ->
+                array.add(new Object[]{uid, startUID, endUID, startX, startY, endX, endY, label, labelX, labelY}));
+        return array.toArray(new Object[0][]);
+    }
+
+    /**
+     * Returns the UIDs of the characters in the given event, in ascending order.
+     * Takes time proportional to the number of characters in the event, see {@link ReverseIndex}.
+     *
+     * @param eventUID the UID of the event
+     * @return a new array of the UIDs of the characters
+     */
+    public long[] getCharactersInEvent(long eventUID) {
+        return charactersByEvent.getSources(eventUID);
+    }
+
+    /**
+     * Returns the UIDs of the characters in any of the given events, in ascending order.
+     *
+     * @param eventUIDs the UIDs of the events
+     * @return a new array of the UIDs of the characters
+     */
+    public long[] getCharactersInEvents(long[] eventUIDs) {
+        LongHashSet found = new LongHashSet();
+        for (long eventUID : eventUIDs) {
+            for (long uid : charactersByEvent.getSources(eventUID))
+                found.add(uid);
+        }
+
+        long[] uids = found.toArray();
+        Arrays.sort(uids);
+        return uids;
+    }
+
+    /**
+     * Returns the UIDs of the associations starting or ending at the given character, in ascending order.
+     *
+     * @param characterUID the UID of the character
+     * @return a new array of the UIDs of the associations
+     */
+    public long[] getAssociationsOf(long characterUID) {
+        return associationsByCharacter.getSources(characterUID);
     }
 
     public void clear() {
+        changes.publish(ModelChange.Kind.REMOVED, EntityType.ASSOCIATION, associationMap.keys());
+        changes.publish(ModelChange.Kind.REMOVED, EntityType.CHARACTER, characterMap.keys());
         characterMap.clear();
+        characterNames.clear();
+        charactersByEvent.clear();
         associationMap.clear();
+        associationsByCharacter.clear();
         hasChanged = false;
     }
 
@@ -286,12 +583,99 @@ public class CharacterManager {
         hasChanged = false;
     }
 
+    /**
+     * Sets the journal that changes are recorded to. Set to null to stop recording.
+     *
+     * @param journal the journal, or null
+     */
+    public void setJournal(ProjectJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Registers a listener, which is told of each change made to the characters and associations.
+     *
+     * @param listener the listener
+     */
+    public void addChangeListener(ModelChange.Listener listener) {
+        changes.addListener(listener);
+    }
+
+    /**
+     * Unregisters a listener registered with {@link CharacterManager#addChangeListener}.
+     *
+     * @param listener the listener
+     */
+    public void removeChangeListener(ModelChange.Listener listener) {
+        changes.removeListener(listener);
+    }
+
+    /**
+     * Sets the notifier that changes are published through, such as one shared by all managers of a project.
+     * Listeners registered with the previous notifier are not moved to the new one.
+     *
+     * @param changes the notifier
+     */
+    public void setChangeNotifier(ChangeNotifier changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Returns the notifier that changes are published through, which can be used to batch changes.
+     *
+     * @return the notifier
+     */
+    public ChangeNotifier getChangeNotifier() {
+        return changes;
+    }
+
+    /**
+     * Sets the text index that the characters are indexed in, see {@link TextIndex}. Set to null to stop indexing.
+     *
+     * @param textIndex the text index, or null
+     */
+    public void setTextIndex(TextIndex textIndex) {
+        this.textIndex = textIndex;
+    }
+
+    /**
+     * Returns whether there is a character with the given UID.
+     *
+     * @param uid the UID to look for
+     * @return true if the character exists
+     */
+    public boolean hasCharacter(long uid) {
+        return characterMap.containsKey(uid);
+    }
+
+    /**
+     * Returns whether there is an association with the given UID.
+     *
+     * @param uid the UID to look for
+     * @return true if the association exists
+     */
+    public boolean hasAssociation(long uid) {
+        return associationMap.containsKey(uid);
+    }
+
+    /**
+     * Returns the character with the given name, ignoring case. Takes constant time, see {@link NameIndex}.
+     *
+     * @param characterName the name of the character
+     * @return the character, or null if no character has the name
+     */
     public Character getCharacter(String characterName) {
-        for (Character value : characterMap.values()) {
-            if (value.getName().equalsIgnoreCase(characterName))
-                return value;
+        long uid = characterNames.getUID(characterName);
+        return uid == -1L ? null : characterMap.get(uid);
+    }
 
-        }
-        return null;
+    /**
+     * Returns the UID of the character with the given name, ignoring case.
+     *
+     * @param characterName the name of the character
+     * @return the UID, or -1 if no character has the name
+     */
+    public long getCharacterUID(String characterName) {
+        return characterNames.getUID(characterName);
     }
 }
@@ -1,7 +1,6 @@
 package com.team34.model.event;
 
 import com.team34.controller.ColorGenerator;
-import com.team34.model.chapter.ChapterListObject;
 
 /**
  * Class for event objects that contains the event information.
@@ -12,24 +11,29 @@ import com.team34.model.chapter.ChapterListObject;
 public class Event {
 
     private String name = "";
-    private String description = "";
-    private ChapterListObject chapterListObject;
-    private String color = "";
+    private CharSequence description = "";
+    private long chapterUID = NO_CHAPTER;
 
     /**
-     * Instantiates event object with name and description.
+     * The chapter UID of an event that does not belong to a chapter.
+     */
+    public static final long NO_CHAPTER = -1L;
+
+    /**
+     * Instantiates event object with name, description and chapter. Only the UID of the chapter is kept;
+     * its title and color are looked up through {@link com.team34.model.chapter.ChapterManager#getChapterListObject(long)}.
      *
      * @param name        Event name
-     * @param description Event description
+     * @param description Event description, which may be a {@link com.team34.model.LazyText}
+     * @param chapterUID  the UID of the chapter, or {@link Event#NO_CHAPTER}
      */
-    public Event(String name, String description, ChapterListObject chapterListObject, String color) {
+    public Event(String name, CharSequence description, long chapterUID) {
         this.name = name;
         this.description = description;
-        this.chapterListObject = chapterListObject;
-        this.color = color;
+        this.chapterUID = chapterUID;
     }
 
-    public Event(String name, String description) {
+    public Event(String name, CharSequence description) {
         this.name = name;
         this.description = description;
     }
@@ -42,27 +46,40 @@ public class Event {
         this.name = name;
     }
 
+    /**
+     * Returns the description. If it has not been loaded yet, it is loaded and kept from now on.
+     *
+     * @return the description
+     */
     public String getDescription() {
-        return description;
-    }
-
-    public void setDescription(String description) {
-        this.description = description;
+        if (description != null && !(description instanceof String))
+            description = description.toString();
+        return (String) description;
     }
 
-    public ChapterListObject getChapterListObject() {
-        return chapterListObject;
+    /**
+     * Returns the description, without loading it if it has not been loaded yet.
+     *
+     * @return the description
+     */
+    public CharSequence getLazyDescription() {
+        return description;
     }
 
-    public void setChapterListObject(ChapterListObject chapterListObject) {
-        this.chapterListObject = chapterListObject;
+    public void setDescription(CharSequence description) {
+        this.description = description;
     }
 
-    public String getColor() {
-        return color;
+    /**
+     * Returns the UID of the chapter of the event.
+     *
+     * @return the UID, or {@link Event#NO_CHAPTER} if the event does not belong to a chapter
+     */
+    public long getChapterUID() {
+        return chapterUID;
     }
 
-    public void setColor(String color) {
-        this.color = color;
+    public void setChapterUID(long chapterUID) {
+        this.chapterUID = chapterUID;
     }
 }
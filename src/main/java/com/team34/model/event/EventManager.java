@@ -3,7 +3,17 @@ package com.team34.model.event;
 import java.util.*;
 
 import com.team34.controller.ColorGenerator;
+import com.team34.model.ChangeNotifier;
+import com.team34.model.ModelChange;
+import com.team34.model.ProjectJournal;
+import com.team34.model.EntityType;
+import com.team34.model.LongHashMap;
+import com.team34.model.NameIndex;
+import com.team34.model.TextIndex;
+import com.team34.model.OrderList;
+import com.team34.model.ReverseIndex;
 import com.team34.model.UIDManager;
+import com.team34.model.chapter.Chapter;
 import com.team34.model.chapter.ChapterListObject;
 import com.team34.model.chapter.ChapterManager;
 import javafx.collections.FXCollections;
@@ -11,35 +21,82 @@ import javafx.collections.ObservableList;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
 
 /**
  * This class manages all events and event order lists.
  * <p>
- * The events are stored in a HashMap, with UIDs (Long) as keys.
+ * The events are stored in a {@link LongHashMap}, with UIDs as keys.
  * <p>
  * Event order lists are lists of event UID in a specific order. This allows switching
  * between different event orders and editing the order on a specific order list.
+ * Each is an {@link OrderList}, so that an event can be found, moved or removed in O(log n) time.
+ * <p>
+ * Each change is published as a {@link ModelChange} to the listeners of the {@link ChangeNotifier},
+ * see {@link EventManager#addChangeListener}, so that a view can update only the events that changed.
+ * <p>
+ * The chapter of each event is kept in a {@link ReverseIndex}, so that the events of a chapter are found
+ * without looking at every event, see {@link EventManager#getEventsInChapter(long)}.
+ * <p>
+ * Each event holds only the UID of its chapter. The title and color of the chapter are looked up through
+ * {@link ChapterManager#getChapterListObject(long)}, so that the events of a chapter share them, and follow
+ * the chapter when it is edited. The color of an event is the color of its chapter.
  *
  * @author Kasper S. Skott
  */
 public class EventManager {
 
-    private HashMap<Long, Event> events;
-    private ArrayList<LinkedList<Long>> eventOrderLists;
+    /**
+     * Receives the data of each event, see {@link EventManager#forEachEvent(EventVisitor)}.
+     */
+    @FunctionalInterface
+    public interface EventVisitor {
+        /**
+         * @param uid         the UID of the event
+         * @param name        the name of the event
+         * @param description the description, as a CharSequence which is only loaded when converted to a String
+         * @param color       the color of the event
+         * @param chapter     the chapter of the event, or null if it has none
+         */
+        void visit(long uid, String name, CharSequence description, String color, ChapterListObject chapter);
+    }
+
+    private LongHashMap<Event> events;
+    private final NameIndex eventNames;
+    private TextIndex textIndex;
+    private ChangeNotifier changes;
+    private final ReverseIndex eventsByChapter;
+    private ArrayList<OrderList> eventOrderLists;
     private boolean hasChanged;
     private ChapterManager chapterManager;
+    private ProjectJournal journal;
+    private final UIDManager uidManager;
 
     /**
-     * Constructs and initializes the EventManager. Creates a default event order list at index 0.
+     * Constructs and initializes the EventManager, with a {@link UIDManager} of its own.
+     * Creates a default event order list at index 0.
      */
     public EventManager(ChapterManager chapterManager) {
+        this(chapterManager, new UIDManager());
+    }
+
+    /**
+     * Constructs and initializes the EventManager. Creates a default event order list at index 0.
+     *
+     * @param chapterManager the chapter manager of the project
+     * @param uidManager     the UID manager of the project, which creates the UIDs of new events
+     */
+    public EventManager(ChapterManager chapterManager, UIDManager uidManager) {
+        this.uidManager = uidManager;
         hasChanged = false;
-        events = new HashMap<Long, Event>();
+        events = new LongHashMap<>();
+        eventNames = new NameIndex();
         eventOrderLists = new ArrayList<>();
-        eventOrderLists.add(new LinkedList<Long>());
+        eventOrderLists.add(new OrderList());
         this.chapterManager = chapterManager;
+        changes = new ChangeNotifier();
+        eventsByChapter = new ReverseIndex();
+        chapterManager.setEventManager(this);
     }
 
     /**
@@ -47,26 +104,32 @@ public class EventManager {
      * and is thereafter placed at the back of each event order list.
      * This will set {@link EventManager#hasChanged} to true, as data has been changed.
      *
-     * @param name        the name of the event
-     * @param description the description of the event
+     * @param name              the name of the event
+     * @param description       the description of the event
+     * @param color             not used, since the color of an event is the color of its chapter
+     * @param chapterListObject the chapter of the event, of which only the UID is kept
      * @return the UID of the new event
      * @author Hazem Elkhalil
      */
     public long newEvent(String name, String description, String color, ChapterListObject chapterListObject) {
-        long uid = UIDManager.nextUID();
-        Event event = new Event(name, description, chapterListObject, color);
-        addEvent(uid, event);
+        long uid = uidManager.nextUID(EntityType.EVENT);
+        Event event = new Event(name, description, chapterListObject.getUid());
+        putEvent(uid, event);
+        hasChanged = true;
 
 
         chapterManager.getChapter(chapterListObject.getUid()).getEvents().add(event);
 
 
         if (eventOrderLists.size() < 1)
-            eventOrderLists.add(new LinkedList<>());
+            eventOrderLists.add(new OrderList());
 
-        for (LinkedList<Long> e : eventOrderLists)
+        for (OrderList e : eventOrderLists)
             e.add(uid);
 
+        record(uid, event);
+
+        changes.publish(ModelChange.Kind.ADDED, EntityType.EVENT, uid);
         return uid;
     }
 
@@ -81,26 +144,74 @@ public class EventManager {
      */
     public boolean editEvent(long uid, String name, String description, ChapterListObject chapterListObject) {
         if (events.containsKey(uid)) {
+            eventNames.rename(events.get(uid).getName(), name, uid);
             events.get(uid).setName(name);
-            events.get(uid).setChapterListObject(chapterListObject);
+            events.get(uid).setChapterUID(chapterListObject.getUid());
             events.get(uid).setDescription(description);
-            events.get(uid).setColor(chapterListObject.getColor());
+            linkChapter(uid, chapterListObject.getUid());
+            if (textIndex != null)
+                textIndex.index(uid, name, description);
             hasChanged = true;
+            record(uid, events.get(uid));
+            changes.publish(ModelChange.Kind.UPDATED, EntityType.EVENT, uid);
             return true;
         }
         return false;
     }
 
+    /**
+     * Moves every event of one chapter to another, looking up the events by the UID of their chapter,
+     * see {@link EventManager#getEventsInChapter(long)}. The moved events take the title and color of their
+     * new chapter, since they only refer to it by UID. Takes time proportional to the number of moved events,
+     * which are published in a single batch of changes.
+     *
+     * @param fromChapterUID the UID of the chapter to move the events from
+     * @param toChapterUID   the UID of the chapter to move the events to
+     * @return the number of moved events, or -1 if the chapter to move them to does not exist
+     */
+    public int rehomeEvents(long fromChapterUID, long toChapterUID) {
+        Chapter to = chapterManager.getChapter(toChapterUID);
+        if (to == null)
+            return -1;
+        if (fromChapterUID == toChapterUID)
+            return 0;
+
+        Chapter from = chapterManager.getChapter(fromChapterUID);
+        long[] uids = eventsByChapter.getSources(fromChapterUID);
+        changes.beginBatch();
+        try {
+            for (long uid : uids) {
+                Event event = events.get(uid);
+                if (from != null)
+                    from.getEvents().remove(event);
+                to.getEvents().add(event);
+
+                event.setChapterUID(toChapterUID);
+                linkChapter(uid, toChapterUID);
+                hasChanged = true;
+                record(uid, event);
+                changes.publish(ModelChange.Kind.UPDATED, EntityType.EVENT, uid);
+            }
+        } finally {
+            changes.endBatch();
+        }
+        return uids.length;
+    }
+
     public void editEventChapterListObject(long uid){
         if(events.containsKey(uid)){
-            events.get(uid).setChapterListObject(null);
+            events.get(uid).setChapterUID(Event.NO_CHAPTER);
+            eventsByChapter.unlink(uid);
+            hasChanged = true;
+            record(uid, events.get(uid));
+            changes.publish(ModelChange.Kind.UPDATED, EntityType.EVENT, uid);
         }
     }
 
 
 
     /**
-     * Removes the event associated with the given UID.
+     * Removes the event associated with the given UID. Does nothing if there is no such event.
      * Also removes the UID from each order list, and the UIDManager.
      * This will set {@link EventManager#hasChanged} to true, as data has been changed.
      *
@@ -111,18 +222,28 @@ public class EventManager {
      */
     public void removeEvent(long uid) {
         Event event = events.get(uid);
-        if(chapterManager.getChapters() != null){
-            if(chapterManager.getChapters().equals(events.get(uid).getChapterListObject())){
-                chapterManager.getChapter(event.getChapterListObject().getUid()).getEvents().remove(event);
-            }
+        if (event == null)
+            return;
+
+        if (event.getChapterUID() != Event.NO_CHAPTER) {
+            Chapter chapter = chapterManager.getChapter(event.getChapterUID());
+            if (chapter != null)
+                chapter.getEvents().remove(event);
         }
 
+        eventNames.remove(event.getName(), uid);
+        if (textIndex != null)
+            textIndex.remove(uid);
+        eventsByChapter.unlink(uid);
         events.remove(uid);
-        UIDManager.removeUID(uid);
-        for (LinkedList<Long> e : eventOrderLists)
+        uidManager.removeUID(uid);
+        for (OrderList e : eventOrderLists)
             e.remove(uid);
 
         hasChanged = true;
+        if (journal != null)
+            journal.recordEventRemoved(uid);
+        changes.publish(ModelChange.Kind.REMOVED, EntityType.EVENT, uid);
     }
 
     /**
@@ -135,19 +256,160 @@ public class EventManager {
      * @param e the event to add.
      */
     public void addEvent(long uid, Event e) {
-        events.put(uid, e);
+        publishPut(uid, putEvent(uid, e));
         hasChanged = true;
     }
 
-    public void addEvent(long uid, String name, String description, ChapterListObject chapterListObject) {
+    public void addEvent(long uid, String name, CharSequence description, ChapterListObject chapterListObject) {
         if(chapterListObject!=null) {
-            System.out.println("true");
-            events.put(uid, new Event(name, description, chapterListObject, chapterListObject.getColor()));
+            publishPut(uid, putEvent(uid, new Event(name, description, resolveChapterUID(chapterListObject))));
             hasChanged = true;
         }else{
-            System.out.println("false");
-            events.put(uid, new Event(name, description));
+            publishPut(uid, putEvent(uid, new Event(name, description)));
+        }
+    }
+
+    /**
+     * Returns the UID of the chapter referred to by a chapter list object read from a file. Files that were written
+     * before chapters had UIDs only hold the title of the chapter, in which case the chapter is found by its title.
+     */
+    private long resolveChapterUID(ChapterListObject chapterListObject) {
+        long chapterUID = chapterListObject.getUid();
+        if (chapterManager.getChapter(chapterUID) == null && chapterListObject.getTitle() != null) {
+            long byTitle = chapterManager.getChapterUID(chapterListObject.getTitle());
+            if (byTitle != -1L)
+                return byTitle;
+        }
+        return chapterUID;
+    }
+
+    /**
+     * Maps the UID to the event, and keeps the name and text indexes up to date.
+     *
+     * @return the event that was replaced, or null
+     */
+    private Event putEvent(long uid, Event e) {
+        Event previous = events.put(uid, e);
+        if (previous != null)
+            eventNames.remove(previous.getName(), uid);
+        eventNames.add(e.getName(), uid);
+        linkChapter(uid, e.getChapterUID());
+        if (textIndex != null)
+            textIndex.index(uid, e.getName(), e.getLazyDescription());
+        return previous;
+    }
+
+    private void linkChapter(long uid, long chapterUID) {
+        if (chapterUID != Event.NO_CHAPTER)
+            eventsByChapter.link(uid, chapterUID);
+        else
+            eventsByChapter.unlink(uid);
+    }
+
+    private void record(long uid, Event event) {
+        if (journal != null)
+            journal.recordEvent(uid, event, getChapterListObject(event));
+    }
+
+    /**
+     * Returns the chapter of an event, as shared by every event of the chapter,
+     * see {@link ChapterManager#getChapterListObject(long)}.
+     *
+     * @param uid the UID of the event
+     * @return the chapter, or null if there is no such event, or it does not belong to an existing chapter
+     */
+    public ChapterListObject getChapterListObject(long uid) {
+        Event event = events.get(uid);
+        return event == null ? null : getChapterListObject(event);
+    }
+
+    private ChapterListObject getChapterListObject(Event event) {
+        long chapterUID = event.getChapterUID();
+        return chapterUID == Event.NO_CHAPTER ? null : chapterManager.getChapterListObject(chapterUID);
+    }
+
+    private void publishPut(long uid, Event previous) {
+        changes.publish(previous == null ? ModelChange.Kind.ADDED : ModelChange.Kind.UPDATED, EntityType.EVENT, uid);
+    }
+
+    /**
+     * Adds a block of new events, whose UIDs have been reserved with {@link UIDManager#reserveUIDs}.
+     * Unlike {@link EventManager#addEvent}, each event is added to its chapter, placed at the back of each
+     * event order list and recorded in the journal, the same way as {@link EventManager#newEvent}.
+     * The arrays hold the data of each event at the same index. Only the UID of each chapter is kept.
+     *
+     * @param uids         the reserved UIDs
+     * @param names        the names of the events
+     * @param descriptions the descriptions of the events
+     * @param chapters     the chapters of the events
+     */
+    public void addEvents(long[] uids, String[] names, CharSequence[] descriptions, ChapterListObject[] chapters) {
+        if (names.length != uids.length || descriptions.length != uids.length || chapters.length != uids.length)
+            throw new IllegalArgumentException("The arrays must be of equal length");
+
+        for (int i = 0; i < uids.length; i++) {
+            Event event = new Event(names[i], descriptions[i], chapters[i].getUid());
+            putEvent(uids[i], event);
+            hasChanged = true;
+            chapterManager.getChapter(chapters[i].getUid()).getEvents().add(event);
+        }
+
+        if (eventOrderLists.size() < 1)
+            eventOrderLists.add(new OrderList());
+
+        for (OrderList e : eventOrderLists) {
+            for (long uid : uids)
+                e.add(uid);
+        }
+
+        if (journal != null) {
+            for (long uid : uids)
+                record(uid, events.get(uid));
+        }
+        changes.publish(ModelChange.Kind.ADDED, EntityType.EVENT, uids.clone());
+    }
+
+    /**
+     * Creates or overwrites the event with the given UID. A new event is added to the {@link UIDManager},
+     * its chapter and the back of each event order list, the same way as {@link EventManager#newEvent}.
+     * Note: This should only be used when replaying a {@link ProjectJournal}.
+     *
+     * @param uid               the UID of the event
+     * @param name              the name of the event
+     * @param description       the description of the event
+     * @param color             not used, since the color of an event is the color of its chapter
+     * @param chapterListObject the chapter of the event, or null
+     */
+    public void restoreEvent(long uid, String name, String description, String color, ChapterListObject chapterListObject) {
+        long chapterUID = chapterListObject != null ? chapterListObject.getUid() : Event.NO_CHAPTER;
+        Event existing = events.get(uid);
+        if (existing != null) {
+            eventNames.rename(existing.getName(), name, uid);
+            existing.setName(name);
+            existing.setDescription(description);
+            existing.setChapterUID(chapterUID);
+            linkChapter(uid, chapterUID);
+            if (textIndex != null)
+                textIndex.index(uid, name, description);
+            hasChanged = true;
+            changes.publish(ModelChange.Kind.UPDATED, EntityType.EVENT, uid);
+            return;
         }
+
+        Event event = new Event(name, description, chapterUID);
+        uidManager.addUID(uid);
+        putEvent(uid, event);
+        hasChanged = true;
+
+        if (chapterManager.getChapter(chapterUID) != null)
+            chapterManager.getChapter(chapterUID).getEvents().add(event);
+
+        if (eventOrderLists.size() < 1)
+            eventOrderLists.add(new OrderList());
+
+        for (OrderList e : eventOrderLists)
+            e.add(uid);
+        changes.publish(ModelChange.Kind.ADDED, EntityType.EVENT, uid);
     }
 
     /**
@@ -164,18 +426,19 @@ public class EventManager {
     public Object[] getEventData(long uid) {
         Object[] data = new Object[4];
         Event event = events.get(uid);
+        ChapterListObject chapter = getChapterListObject(event);
 
-        if(event.getChapterListObject() != null){
+        if(chapter != null){
             data[0] = event.getName();
             data[1] = event.getDescription();
-            data[2] = event.getChapterListObject().getTitle();
-            data[3] = event.getColor();
+            data[2] = chapter.getTitle();
+            data[3] = chapter.getColor();
 
         }else{
             data[0] = event.getName();
             data[1] = event.getDescription();
             data[2] = "";
-            data[3] = event.getColor();
+            data[3] = "";
         }
 
         return data;
@@ -190,7 +453,7 @@ public class EventManager {
      *  <ul>
      *      <li>data[i][0] -- UID
      *      <li>data[i][1] -- name
-     *      <li>data[i][2] -- description
+     *      <li>data[i][2] -- description, as a CharSequence which is only loaded when converted to a String
      *  </ul>
      * </ul>
      * <p>
@@ -214,38 +477,55 @@ public class EventManager {
         if (events.size() < 1)
             return null;
 
-        Long[] uidOrder = events.keySet().toArray(new Long[events.size()]);
-        Object[][] eventArray = new Object[uidOrder.length][6];
+        Object[][] eventArray = new Object[events.size()][];
+        int[] i = {0};
+        forEachEvent((uid, name, description, color, chapter) -> {
+            if (chapter != null)
+                eventArray[i[0]++] = new Object[]{uid, name, description, chapter.getColor(), chapter.getTitle(), chapter.getUid()};
+            else
+                eventArray[i[0]++] = new Object[]{uid, name, description, "", "", ""};
+        });
+        return eventArray;
+    }
 
-        for (int i = 0; i < uidOrder.length; i++) {
-            long uid = uidOrder[i];
-            Event eventRef = events.get(uid);
+    /**
+     * Passes the data of each event to the visitor, in no particular order.
+     * Unlike {@link EventManager#getEvents()}, no array is allocated for each event, and no value is boxed.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachEvent(EventVisitor visitor) {
+        events.forEach((uid, event) -> visit(uid, event, visitor));
+    }
 
-            if(eventRef.getChapterListObject() != null){
-                eventArray[i][0] = uid;
-                eventArray[i][1] = eventRef.getName();
-                eventArray[i][2] = eventRef.getDescription();
-                eventArray[i][3] = eventRef.getChapterListObject().getColor();
-                eventArray[i][4] = eventRef.getChapterListObject().getTitle();
-                eventArray[i][5] = eventRef.getChapterListObject().getUid();
-
-            }else{
-                eventArray[i][0] = uid;
-                eventArray[i][1] = eventRef.getName();
-                eventArray[i][2] = eventRef.getDescription();
-                eventArray[i][3] = "";
-                eventArray[i][4] = "";
-                eventArray[i][5] = "";
-            }
-        }
-        return eventArray;
+    /**
+     * Passes the data of each event in an event order list to the visitor, in the order of the list.
+     * Nothing is allocated for the events.
+     *
+     * @param eventOrderList the index to the event order list to use
+     * @param visitor        the visitor
+     */
+    public void forEachEvent(int eventOrderList, EventVisitor visitor) {
+        if (eventOrderList >= eventOrderLists.size() || eventOrderList < 0)
+            return;
+
+        eventOrderLists.get(eventOrderList).forEach(uid -> {
+            Event event = events.get(uid);
+            if (event != null)
+                visit(uid, event, visitor);
+        });
+    }
+
+    private void visit(long uid, Event event, EventVisitor visitor) {
+        ChapterListObject chapter = getChapterListObject(event);
+        visitor.visit(uid, event.getName(), event.getLazyDescription(), chapter != null ? chapter.getColor() : "", chapter);
     }
 
     public ObservableList<String> getEvents2() {
         if (events.size() < 1)
             return null;
 
-        Long[] uidOrder = events.keySet().toArray(new Long[events.size()]);
+        long[] uidOrder = events.keys();
 
         for (int i = 0; i < uidOrder.length; i++) {
             long uid = uidOrder[i];
@@ -275,14 +555,27 @@ public class EventManager {
         if (eventOrderList >= eventOrderLists.size() || eventOrderList < 0)
             return null;
 
-        System.out.println(eventOrderLists + " Eventorderlist");
-        //System.out.println(Arrays.toString(eventOrderLists.get(eventOrderList).toArray()) + "hej1");
-        return eventOrderLists.get(eventOrderList).toArray(
-                new Long[eventOrderLists.get(eventOrderList).size()]
-        );
+        long[] order = getEventOrderArray(eventOrderList);
+        Long[] boxed = new Long[order.length];
+        for (int i = 0; i < order.length; i++)
+            boxed[i] = order[i];
+        return boxed;
     }
 
 
+    /**
+     * Returns the UIDs of an event order list as an array of primitives, see {@link EventManager#getEventOrder}.
+     *
+     * @param eventOrderList the index to the event order list to use
+     * @return the order of event UIDs, or null if there is no such order list
+     */
+    public long[] getEventOrderArray(int eventOrderList) {
+        if (eventOrderList >= eventOrderLists.size() || eventOrderList < 0)
+            return null;
+
+        return eventOrderLists.get(eventOrderList).toArray();
+    }
+
     /**
      * Return the @Event object by the UID
      *
@@ -291,24 +584,22 @@ public class EventManager {
      * @author Hazem Elkhalil
      */
     public Event getEvent(Long uid) {
-        return this.events.get(uid);
+        return uid == null ? null : this.events.get(uid);
     }
 
     /**
      * Returns the index of a given event in a given event order list, else returns -1.
+     * Takes O(log n) time, see {@link OrderList#indexOf}.
      *
      * @param uid event
      * @return event index
      * @author Jim Andersson
      */
     public int getEventIndex(int eventOrderList, long uid) {
-        Long[] events = getEventOrder(eventOrderList);
+        if (eventOrderList >= eventOrderLists.size() || eventOrderList < 0)
+            return -1;
 
-        for (int i = 0; i < events.length; i++) {
-            if (events[i].equals(uid))
-                return i;
-        }
-        return -1;
+        return eventOrderLists.get(eventOrderList).indexOf(uid);
     }
 
     /**
@@ -320,17 +611,12 @@ public class EventManager {
      * @author Jim Andersson
      */
     public void swapEvent(int orderList, int index1, int index2) {
-        //TODO swap places between two events in the specified order list.
-        Long[] order = getEventOrder(orderList);
-
-        Long temp = order[index2];
-        order[index2] = order[index1];
-        order[index1] = temp;
-
-        for (int i = 0; i < eventOrderLists.get(orderList).size(); i++) {
-            eventOrderLists.get(orderList).set(i, order[i]);
-        }
+        OrderList order = eventOrderLists.get(orderList);
+        order.swap(index1, index2);
         hasChanged = true;
+        if (journal != null)
+            journal.recordEventSwapped(orderList, index1, index2);
+        changes.publishReordered(EntityType.EVENT, orderList, order.get(index1), order.get(index2));
     }
 
     /**
@@ -343,51 +629,51 @@ public class EventManager {
      * @author Jim Andersson
      */
     public void moveEvent(int orderList, int fromIndex, int toIndex) {
-        // TODO move to (insert at) specified location.
-
-        Long[] order = getEventOrder(orderList);
-
-        // When the event is moved in the right direction on the timeline,
-        // the events inside the scope of the loop are shifted to the left.
-        if (fromIndex < toIndex) {
-            for (int i = fromIndex; i < toIndex; i++) {
-                Long temp = order[i];
-                order[i] = order[i + 1];
-                order[i + 1] = temp;
-            }
-        }
-
-        // When the event is moved in the left direction on the timeline,
-        // the events inside the scope of the loop are shifted to the right.
-        if (toIndex < fromIndex) {
-            for (int i = fromIndex; i > toIndex; i--) {
-                Long temp = order[i];
-                order[i] = order[i - 1];
-                order[i - 1] = temp;
-            }
-        }
+        // The events between the two indices are shifted one step towards fromIndex
+        OrderList order = eventOrderLists.get(orderList);
+        order.move(fromIndex, toIndex);
+        hasChanged = true;
+        if (journal != null)
+            journal.recordEventMoved(orderList, fromIndex, toIndex);
+        changes.publishReordered(EntityType.EVENT, orderList, order.get(toIndex));
+    }
 
-        for (int i = 0; i < eventOrderLists.get(orderList).size(); i++) {
-            eventOrderLists.get(orderList).set(i, order[i]);
-        }
+    /**
+     * Adds a copy of an event order list, such as a draft ordering, which can then be changed on its own.
+     * The copy shares its nodes with the original, so this takes O(1) time, see {@link OrderList#fork()}.
+     * This will set {@link EventManager#hasChanged} to true, as data has been changed.
+     *
+     * @param orderList the index of the event order list to copy
+     * @return the index of the new event order list
+     */
+    public int forkOrderList(int orderList) {
+        eventOrderLists.add(eventOrderLists.get(orderList).fork());
         hasChanged = true;
+        if (journal != null)
+            journal.recordEventOrderForked(orderList);
+        changes.publishReordered(EntityType.EVENT, eventOrderLists.size() - 1);
+        return eventOrderLists.size() - 1;
     }
 
     /**
      * Adds an event order list.
      * This should only be used when loading a project.
      *
-     * @param orderList the event order list to add
+     * @param orderList the event UIDs of the order list, in order
      */
-    public void addOrderList(LinkedList<Long> orderList) {
-        eventOrderLists.add(orderList);
+    public void addOrderList(List<Long> orderList) {
+        eventOrderLists.add(new OrderList(orderList));
+        changes.publishReordered(EntityType.EVENT, eventOrderLists.size() - 1);
     }
 
     /**
      * Removes all events and event order lists, and sets {@link EventManager#hasChanged} to false.
      */
     public void clear() {
+        changes.publish(ModelChange.Kind.REMOVED, EntityType.EVENT, events.keys());
         events.clear();
+        eventNames.clear();
+        eventsByChapter.clear();
         eventOrderLists.clear();
         hasChanged = false;
     }
@@ -408,11 +694,100 @@ public class EventManager {
         hasChanged = false;
     }
 
+    /**
+     * Sets the journal that changes are recorded to. Set to null to stop recording.
+     *
+     * @param journal the journal, or null
+     */
+    public void setJournal(ProjectJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Registers a listener, which is told of each change made to the events and event order lists.
+     *
+     * @param listener the listener
+     */
+    public void addChangeListener(ModelChange.Listener listener) {
+        changes.addListener(listener);
+    }
+
+    /**
+     * Unregisters a listener registered with {@link EventManager#addChangeListener}.
+     *
+     * @param listener the listener
+     */
+    public void removeChangeListener(ModelChange.Listener listener) {
+        changes.removeListener(listener);
+    }
+
+    /**
+     * Sets the notifier that changes are published through, such as one shared by all managers of a project.
+     * Listeners registered with the previous notifier are not moved to the new one.
+     *
+     * @param changes the notifier
+     */
+    public void setChangeNotifier(ChangeNotifier changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Returns the notifier that changes are published through, which can be used to batch changes.
+     *
+     * @return the notifier
+     */
+    public ChangeNotifier getChangeNotifier() {
+        return changes;
+    }
+
+    /**
+     * Sets the text index that the events are indexed in, see {@link TextIndex}. Set to null to stop indexing.
+     *
+     * @param textIndex the text index, or null
+     */
+    public void setTextIndex(TextIndex textIndex) {
+        this.textIndex = textIndex;
+    }
+
+    /**
+     * Returns the UIDs of the events in the given chapter, in ascending order.
+     * Takes time proportional to the number of events in the chapter, see {@link ReverseIndex}.
+     *
+     * @param chapterUID the UID of the chapter
+     * @return a new array of the UIDs of the events
+     */
+    public long[] getEventsInChapter(long chapterUID) {
+        return eventsByChapter.getSources(chapterUID);
+    }
+
+    /**
+     * Returns the number of events in the given chapter.
+     *
+     * @param chapterUID the UID of the chapter
+     * @return the number of events
+     */
+    public int countEventsInChapter(long chapterUID) {
+        return eventsByChapter.countSources(chapterUID);
+    }
+
+    /**
+     * Returns the event with the given name, ignoring case. Takes constant time, see {@link NameIndex}.
+     *
+     * @param eventName the name of the event
+     * @return the event, or null if no event has the name
+     */
     public Event getEvent(String eventName) {
-        for (Event value : events.values()) {
-            if (value.getName().equalsIgnoreCase(eventName))
-                return value;
-        }
-        return null;
+        long uid = eventNames.getUID(eventName);
+        return uid == -1L ? null : events.get(uid);
+    }
+
+    /**
+     * Returns the number of events with the given name, ignoring case, such as when checking for duplicate names.
+     *
+     * @param eventName the name
+     * @return the number of events with the name
+     */
+    public int countEventsNamed(String eventName) {
+        return eventNames.count(eventName);
     }
 }
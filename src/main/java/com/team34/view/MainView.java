@@ -1,6 +1,5 @@
 package com.team34.view;
 
-import com.team34.model.chapter.Chapter;
 import com.team34.model.event.EventListObject;
 import com.team34.model.event.EventManager;
 import com.team34.view.chapter.ChapterList;
@@ -517,27 +516,23 @@ public class MainView {
     }
 
     /**
-     * Sends an array list of object arrays containing character data to the CharacterList class.
+     * Sends an array list of object arrays containing character data to the CharacterList class,
+     * and shows the given subset of the characters, and their associations, in the character chart.
      *
-     * @param characters ArrayList of Object[]
+     * @param characters        ArrayList of Object[]
+     * @param chartCharacters   the characters to show in the chart, such as those of the selected event
+     * @param chartAssociations the associations to show in the chart
      */
-    public void updateCharacterList(ArrayList<Object[]> characters, Object[][] associations, EventListObject eventListObject) {
+    public void updateCharacterList(ArrayList<Object[]> characters, ArrayList<Object[]> chartCharacters,
+                                    Object[][] chartAssociations) {
         rightPane.updateListView(characters);
-        characterChart.updateCharacters(characters, associations, eventListObject);
+        characterChart.updateCharacters(chartCharacters, chartAssociations);
     }
 
     public EventListObject returns() {
         return EventList.list();
     }
 
-    /*
-          @author Hazem Elkhalil
-     */
-    public void updateCharacterList(ArrayList<Object[]> characters, Object[][] associations, Chapter c) {
-        rightPane.updateListView(characters);
-        characterChart.updateCharacters(characters, associations, c);
-    }
-
     /**
      * Returns the UID of the selected character in the character list
      *
@@ -1,7 +1,6 @@
 package com.team34.view.characterchart;
 
-import com.team34.model.chapter.Chapter;
-import com.team34.model.event.Event;
+import com.team34.model.LongHashMap;
 import com.team34.model.event.EventListObject;
 import com.team34.view.MainView;
 import javafx.event.ActionEvent;
@@ -40,7 +39,7 @@ public class CharacterChart {
     private final Pane pane;
     private ScrollPane scrollPane;
 
-    private HashMap<Long, CharacterRectangle> rectMap; // Stores references to CharacterRectangles by their UID.
+    private LongHashMap<CharacterRectangle> rectMap; // Stores references to CharacterRectangles by their UID.
 
     /**
      * @author Alexander Olssson
@@ -63,7 +62,7 @@ public class CharacterChart {
     private Label header;
 
     public CharacterChart(double width, double height) {
-        rectMap = new HashMap<>();
+        rectMap = new LongHashMap<>();
         assocPoints = new HashMap<>();
         associations = new HashMap<>();
         evtMap = new HashMap<>();
@@ -93,7 +92,7 @@ public class CharacterChart {
     }
 
     public CharacterChart(double width, double height, EventListObject eventListObject) {
-        rectMap = new HashMap<>();
+        rectMap = new LongHashMap<>();
         assocPoints = new HashMap<>();
         associations = new HashMap<>();
         evtMap = new HashMap<>();
@@ -184,17 +183,11 @@ public class CharacterChart {
     }
 
     private Map.Entry<Long, CharacterRectangle> getCharacterByRectangle(Rectangle rect) {
-        Iterator<Map.Entry<Long, CharacterRectangle>> it = rectMap.entrySet().iterator();
-        Map.Entry<Long, CharacterRectangle> pair;
-
         // Find CharacterRectangle that contains the input rectangle and return its associated UID
-        while (it.hasNext()) {
-            pair = it.next();
-            if (pair.getValue().getRect().equals(rect)) {
-                return pair;
-            }
-        }
-        return null;
+        long uid = rectMap.findKey(charRect -> charRect.getRect().equals(rect), -1L);
+        if (uid == -1L)
+            return null;
+        return new AbstractMap.SimpleImmutableEntry<>(uid, rectMap.get(uid));
     }
 
     private Map.Entry<Long, AssociationPoint> getAssocPointByControl(Circle circle) {
@@ -437,97 +430,50 @@ public class CharacterChart {
         return pos;
     }
 
-    public void updateCharacters(ArrayList<Object[]> characters, Object[][] _associations, EventListObject eventListObject) {
+    /**
+     * Clears the chart, then shows the given characters and associations. The characters to show,
+     * such as those of the selected event, are found by the model, see
+     * {@link com.team34.model.character.CharacterManager#getCharactersInEvent(long)}.
+     *
+     * @param characters   the character data, formatted as by
+     *                     {@link com.team34.model.character.CharacterManager#getCharacterList()}
+     * @param associations the association data, formatted as by
+     *                     {@link com.team34.model.character.CharacterManager#getAssociationData()}, or null
+     */
+    public void updateCharacters(ArrayList<Object[]> characters, Object[][] associations) {
         clear();
 
-
-        if (eventListObject != null) {
-            if (characters != null) {
-                for (int i = 0; i < characters.size(); i++) { // Update characters
-                    Object[] characterData = characters.get(i);
-
-                    if (Objects.equals(characterData[5].toString(), eventListObject.getTitle())) {
-                        addCharacter((Long) characterData[1], (String) characterData[0]);
-                        setCharacterPosition(
-                                (Long) characterData[1],
-                                (Double) characterData[2],
-                                (Double) characterData[3]
-                        );
-                    }
-                }
-            }
-
-            if (_associations != null) {
-                for (int i = 0; i < _associations.length; i++) { // Update associations
-                    Object[] assocData = _associations[i];
-                    addAssociation(
-                            (Long) assocData[0],
-                            (Long) assocData[1],
-                            (Long) assocData[2],
-                            (String) assocData[7]
-                    );
-                    setAssociationPositions(
-                            (Long) assocData[0],
-                            (Double) assocData[3],
-                            (Double) assocData[4],
-                            (Double) assocData[5],
-                            (Double) assocData[6]
-                    );
-                    setAssociationLabelPosition(
-                            (Long) assocData[0],
-                            (Double) assocData[8],
-                            (Double) assocData[9]
-                    );
-                }
+        if (characters != null) {
+            for (Object[] characterData : characters) { // Update characters
+                addCharacter((Long) characterData[1], (String) characterData[0]);
+                setCharacterPosition(
+                        (Long) characterData[1],
+                        (Double) characterData[2],
+                        (Double) characterData[3]
+                );
             }
         }
-    }
-
-
-    public void updateCharacters(ArrayList<Object[]> characters, Object[][] _associations, Chapter c) {
-        clear();
-
 
-        for (Event e : c.getEvents()) {
-            System.out.println(e.getName());
-            if (e != null) {
-                if (characters != null) {
-                    for (int i = 0; i < characters.size(); i++) { // Update characters
-                        Object[] characterData = characters.get(i);
-                        if (Objects.equals(characterData[5].toString(), e.getName())) {
-                            addCharacter((Long) characterData[1], (String) characterData[0]);
-                            setCharacterPosition(
-                                    (Long) characterData[1],
-                                    (Double) characterData[2],
-                                    (Double) characterData[3]
-                            );
-                        }
-                    }
-                }
-
-                if (_associations != null) {
-                    for (int i = 0; i < _associations.length; i++) { // Update associations
-                        Object[] assocData = _associations[i];
-                        addAssociation(
-                                (Long) assocData[0],
-                                (Long) assocData[1],
-                                (Long) assocData[2],
-                                (String) assocData[7]
-                        );
-                        setAssociationPositions(
-                                (Long) assocData[0],
-                                (Double) assocData[3],
-                                (Double) assocData[4],
-                                (Double) assocData[5],
-                                (Double) assocData[6]
-                        );
-                        setAssociationLabelPosition(
-                                (Long) assocData[0],
-                                (Double) assocData[8],
-                                (Double) assocData[9]
-                        );
-                    }
-                }
+        if (associations != null) {
+            for (Object[] assocData : associations) { // Update associations
+                addAssociation(
+                        (Long) assocData[0],
+                        (Long) assocData[1],
+                        (Long) assocData[2],
+                        (String) assocData[7]
+                );
+                setAssociationPositions(
+                        (Long) assocData[0],
+                        (Double) assocData[3],
+                        (Double) assocData[4],
+                        (Double) assocData[5],
+                        (Double) assocData[6]
+                );
+                setAssociationLabelPosition(
+                        (Long) assocData[0],
+                        (Double) assocData[8],
+                        (Double) assocData[9]
+                );
             }
         }
     }
@@ -1,5 +1,6 @@
 package com.team34.view.timeline;
 
+import com.team34.model.LongHashMap;
 import com.team34.view.LabeledRectangle;
 import com.team34.view.MainView;
 import javafx.event.ActionEvent;
@@ -15,8 +16,6 @@ import javafx.scene.layout.Pane;
 import javafx.scene.shape.Rectangle;
 
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 
 /**
  * Timeline is the main com.team34.view class of the timeline feature.
@@ -77,7 +76,7 @@ public class Timeline {
     private EventHandler<DragEvent> evtDragDropped;
     private EventHandler<DragEvent> evtDragComplete;
 
-    private HashMap<Long, LabeledRectangle> eventRectMap; // Stores references to LabeledRectangles by their eventUID.
+    private LongHashMap<LabeledRectangle> eventRectMap; // Stores references to LabeledRectangles by their eventUID.
     private Long[] eventUIDOrder; // This is a reference to the order of the events.
     private HashMap<Long, Double> eventPosition;
 
@@ -112,7 +111,7 @@ public class Timeline {
         line = new TimelineLine();
         line.addToPane(pane);
 
-        eventRectMap = new HashMap<>(INITIAL_EVENT_CAPACITY);
+        eventRectMap = new LongHashMap<>(INITIAL_EVENT_CAPACITY);
         eventPosition = new HashMap<>(INITIAL_EVENT_CAPACITY);
     }
 
@@ -208,17 +207,8 @@ public class Timeline {
      * @return the UID or, if not found, -1L
      */
     public Long getEventUIDByRectangle(Rectangle rectangle) {
-        Iterator<Map.Entry<Long, LabeledRectangle>> it = eventRectMap.entrySet().iterator();
-        Map.Entry<Long, LabeledRectangle> pair;
-
         // Find LabeledRectangle that contains the input rectangle and return its associated UID
-        while (it.hasNext()) {
-            pair = it.next();
-            if (pair.getValue().getRect().equals(rectangle)) {
-                return pair.getKey();
-            }
-        }
-        return -1L;
+        return eventRectMap.findKey(rect -> rect.getRect().equals(rectangle), -1L);
     }
 
     public long getEventUIDByRectangle(LabeledRectangle rect) {
@@ -0,0 +1,120 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link CascadeDelete} leaves no entity referring to a deleted one, and publishes a single batch.
+ */
+class CascadeDeleteTest {
+
+    private Project project;
+    private long chapterUID;
+    private long[] eventUIDs;
+    private long anna;
+    private long bo;
+    private long assoc;
+
+    private void createProject() {
+        project = new Project();
+        project.clearProject();
+
+        chapterUID = project.chapterManager.newChapter("Chapter", "", "#F28220");
+        ChapterListObject chapter = new ChapterListObject("Chapter", chapterUID, "#F28220");
+        int count = 5000;
+        eventUIDs = project.uidManager.reserveUIDs(EntityType.EVENT, count);
+        String[] names = new String[count];
+        CharSequence[] descriptions = new CharSequence[count];
+        ChapterListObject[] chapters = new ChapterListObject[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "Event " + i;
+            descriptions[i] = "";
+            chapters[i] = chapter;
+        }
+        project.eventManager.addEvents(eventUIDs, names, descriptions, chapters);
+
+        anna = project.characterManager.newCharacter("Anna", "", 20, new EventListObject("Event 0", eventUIDs[0]));
+        bo = project.characterManager.newCharacter("Bo", "", 30, new EventListObject("Event 1", eventUIDs[1]));
+        assoc = project.characterManager.newAssociation(anna, bo, 0, 0, 0, 0, "friends", 0, 0);
+    }
+
+    @Test
+    void deletingChapterDetachesEvents() {
+        createProject();
+        ArrayList<List<ModelChange>> calls = new ArrayList<>();
+        project.changeNotifier.addListener(calls::add);
+
+        project.cascade.deleteChapter(chapterUID, CascadeDelete.Policy.DETACH);
+
+        assertEquals(1, calls.size());
+        assertEquals(ModelChange.Kind.UPDATED, calls.get(0).get(0).getKind());
+        assertEquals(5000, calls.get(0).get(0).getUIDCount());
+        assertNull(project.chapterManager.getChapter(chapterUID));
+        assertNull(project.eventManager.getChapterListObject(eventUIDs[42]));
+        assertEquals(0, project.eventManager.countEventsInChapter(chapterUID));
+    }
+
+    @Test
+    void deletingChapterDeletesEvents() {
+        createProject();
+        ArrayList<List<ModelChange>> calls = new ArrayList<>();
+        project.changeNotifier.addListener(calls::add);
+
+        project.cascade.deleteChapter(chapterUID, CascadeDelete.Policy.DELETE);
+
+        assertEquals(1, calls.size());
+        assertNull(project.eventManager.getEvents());
+        assertEquals(0, project.eventManager.getEventOrderArray(0).length);
+        assertEquals("", project.characterManager.getCharacterList(new long[]{anna}).get(0)[5]);
+        assertTrue(project.characterManager.hasAssociation(assoc));
+    }
+
+    @Test
+    void removingChapterDirectlyDetachesEvents() {
+        createProject();
+        project.chapterManager.removeChapter(chapterUID);
+
+        assertNull(project.chapterManager.getChapter(chapterUID));
+        assertNull(project.eventManager.getChapterListObject(eventUIDs[42]));
+        assertEquals(0, project.eventManager.countEventsInChapter(chapterUID));
+        assertEquals(5000, project.eventManager.getEventOrderArray(0).length);
+    }
+
+    @Test
+    void removingMissingEntitiesDoesNothing() {
+        createProject();
+        project.eventManager.removeEvent(eventUIDs[0]);
+        project.chapterManager.removeChapter(chapterUID);
+        project.eventManager.resetChanges();
+        project.chapterManager.resetChanges();
+        ArrayList<List<ModelChange>> calls = new ArrayList<>();
+        project.changeNotifier.addListener(calls::add);
+
+        project.eventManager.removeEvent(eventUIDs[0]);
+        project.chapterManager.removeChapter(chapterUID);
+
+        assertTrue(calls.isEmpty());
+        assertFalse(project.eventManager.hasChanged());
+        assertFalse(project.chapterManager.hasChanged());
+    }
+
+    @Test
+    void deletingEventDeletesCharactersAndAssociations() {
+        createProject();
+        project.cascade.deleteEvent(eventUIDs[0], CascadeDelete.Policy.DELETE);
+
+        assertFalse(project.characterManager.hasCharacter(anna));
+        assertFalse(project.characterManager.hasAssociation(assoc));
+        assertTrue(project.characterManager.hasCharacter(bo));
+        assertEquals(4999, project.eventManager.getEventsInChapter(chapterUID).length);
+
+        project.cascade.deleteCharacter(bo);
+        assertNull(project.characterManager.getAssociationData());
+    }
+}
@@ -0,0 +1,71 @@
+package com.team34.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link LongHashMap} against a {@link HashMap}, with random puts and removals,
+ * so that the removal of mappings in the middle of a probe sequence is covered.
+ */
+class LongHashMapTest {
+
+    @Test
+    void behavesLikeHashMap() {
+        Random random = new Random(34);
+        LongHashMap<String> map = new LongHashMap<>();
+        HashMap<Long, String> expected = new HashMap<>();
+
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000) - 1000L; // Small range, so that keys are often repeated
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 1:
+                    assertEquals(expected.replace(key, "r" + i), map.replace(key, "r" + i));
+                    break;
+                default:
+                    assertEquals(expected.put(key, "p" + i), map.put(key, "p" + i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -1000; key < 1000; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        HashMap<Long, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+
+        ArrayList<String> values = new ArrayList<>();
+        map.values().forEach(values::add);
+        assertEquals(expected.size(), values.size());
+        assertTrue(values.containsAll(expected.values()));
+        assertEquals(expected.size(), map.keys().length);
+    }
+
+    @Test
+    void findKeyAndClear() {
+        LongHashMap<String> map = new LongHashMap<>();
+        for (long key = 0; key < 100; key++)
+            map.put(key, "value " + key);
+
+        assertEquals(0L, map.findKey("value 0"::equals, -1L));
+        assertEquals(42L, map.findKey("value 42"::equals, -1L));
+        assertEquals(-1L, map.findKey("missing"::equals, -1L));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+        assertNull(map.get(50));
+        assertFalse(map.values().iterator().hasNext());
+        assertEquals(0, map.keys().length);
+    }
+}
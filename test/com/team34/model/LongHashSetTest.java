@@ -0,0 +1,52 @@
+package com.team34.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link LongHashSet} against a {@link HashSet}, with random additions and removals,
+ * so that the removal of elements in the middle of a probe sequence is covered.
+ */
+class LongHashSetTest {
+
+    @Test
+    void behavesLikeHashSet() {
+        Random random = new Random(34);
+        LongHashSet set = new LongHashSet();
+        HashSet<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextInt(2000) - 1000L; // Small range, so that values are often repeated
+            if (random.nextInt(3) == 0)
+                assertEquals(expected.remove(value), set.remove(value));
+            else
+                assertEquals(expected.add(value), set.add(value));
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long value = -1000; value < 1000; value++)
+            assertEquals(expected.contains(value), set.contains(value));
+
+        long[] values = set.toArray();
+        Arrays.sort(values);
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), values);
+    }
+
+    @Test
+    void clearRemovesEverything() {
+        LongHashSet set = new LongHashSet();
+        for (long value = 0; value < 100; value++)
+            set.add(value);
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(50));
+        assertEquals(0, set.toArray().length);
+    }
+}
@@ -0,0 +1,47 @@
+package com.team34.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link LongIntHashMap} against a {@link HashMap}, with random puts and removals,
+ * so that the removal of mappings in the middle of a probe sequence is covered.
+ */
+class LongIntHashMapTest {
+
+    @Test
+    void behavesLikeHashMap() {
+        Random random = new Random(34);
+        LongIntHashMap map = new LongIntHashMap();
+        HashMap<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(2000) - 1000L; // Small range, so that keys are often repeated
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -1000; key < 1000; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.getOrDefault(key, -1), map.get(key, -1));
+        }
+
+        HashMap<Long, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(-1, map.get(0L, -1));
+        assertFalse(map.containsKey(50L));
+    }
+}
@@ -0,0 +1,79 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the changes published by the managers of a project, and that batches are published in a single call.
+ */
+class ModelChangeTest {
+
+    @Test
+    void managersPublishChanges() {
+        Project project = new Project();
+        project.clearProject();
+        ArrayList<List<ModelChange>> calls = new ArrayList<>();
+        project.changeNotifier.addListener(calls::add);
+
+        long chapterUID = project.chapterManager.newChapter("Start", "", "#F28220");
+        ChapterListObject chapter = new ChapterListObject("Start", chapterUID, "#F28220");
+        long first = project.eventManager.newEvent("First", "", "#F28220", chapter);
+        long second = project.eventManager.newEvent("Second", "", "#F28220", chapter);
+        project.eventManager.editEvent(first, "Renamed", "", chapter);
+        project.eventManager.moveEvent(0, 0, 1);
+        project.eventManager.removeEvent(second);
+
+        assertEquals(6, calls.size());
+        assertChange(calls.get(0).get(0), ModelChange.Kind.ADDED, EntityType.CHAPTER, chapterUID);
+        assertChange(calls.get(2).get(0), ModelChange.Kind.ADDED, EntityType.EVENT, second);
+        assertChange(calls.get(3).get(0), ModelChange.Kind.UPDATED, EntityType.EVENT, first);
+        assertChange(calls.get(4).get(0), ModelChange.Kind.REORDERED, EntityType.EVENT, first);
+        assertEquals(0, calls.get(4).get(0).getOrderList());
+        assertChange(calls.get(5).get(0), ModelChange.Kind.REMOVED, EntityType.EVENT, second);
+
+        calls.clear();
+        long[] uids = project.uidManager.reserveUIDs(EntityType.CHARACTER, 3);
+        project.characterManager.addCharacters(uids, new String[]{"A", "B", "C"}, new CharSequence[]{"", "", ""},
+                new int[]{1, 2, 3}, new EventListObject[3],
+                new double[3], new double[3]);
+        assertEquals(1, calls.size());
+        assertEquals(1, calls.get(0).size());
+        assertArrayEquals(uids, calls.get(0).get(0).getUIDs());
+    }
+
+    @Test
+    void batchesArePublishedOnce() {
+        ChangeNotifier notifier = new ChangeNotifier();
+        ArrayList<List<ModelChange>> calls = new ArrayList<>();
+        notifier.publish(ModelChange.Kind.ADDED, EntityType.EVENT, 1L); // No listeners, so nothing to publish
+        notifier.addListener(calls::add);
+
+        notifier.beginBatch();
+        notifier.publish(ModelChange.Kind.ADDED, EntityType.EVENT, 1L);
+        notifier.beginBatch();
+        notifier.publish(ModelChange.Kind.ADDED, EntityType.EVENT, 2L);
+        notifier.endBatch();
+        notifier.publish(ModelChange.Kind.REMOVED, EntityType.CHAPTER, 3L);
+        assertTrue(calls.isEmpty());
+        notifier.endBatch();
+
+        assertEquals(1, calls.size());
+        assertEquals(2, calls.get(0).size());
+        assertArrayEquals(new long[]{1L, 2L}, calls.get(0).get(0).getUIDs());
+        assertChange(calls.get(0).get(1), ModelChange.Kind.REMOVED, EntityType.CHAPTER, 3L);
+        assertThrows(IllegalStateException.class, notifier::endBatch);
+    }
+
+    private static void assertChange(ModelChange change, ModelChange.Kind kind, EntityType type, long uid) {
+        assertEquals(kind, change.getKind());
+        assertEquals(type, change.getType());
+        assertEquals(1, change.getUIDCount());
+        assertEquals(uid, change.getUID(0));
+    }
+}
@@ -0,0 +1,83 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link NameIndex} compares names ignoring case, and that the managers keep their name indexes
+ * up to date when entities are renamed and removed.
+ */
+class NameIndexTest {
+
+    @Test
+    void namesIgnoreCase() {
+        NameIndex index = new NameIndex();
+        index.add("Fate", 1L);
+        index.add("fate", 2L);
+        index.add(null, 3L);
+
+        assertEquals(1L, index.getUID("FATE"));
+        assertEquals(2, index.count("Fate"));
+        assertFalse(index.contains("Fat"));
+
+        index.remove("Fate", 1L);
+        assertEquals(2L, index.getUID("fate"));
+        index.rename("fate", "Ending", 2L);
+        assertEquals(-1L, index.getUID("Fate"));
+        assertEquals(2L, index.getUID("ENDING"));
+        assertEquals(-1L, index.getUID(null));
+    }
+
+    @Test
+    void manyEntitiesShareAName() {
+        NameIndex index = new NameIndex();
+        for (long uid = 1; uid <= 10000; uid++)
+            index.add("Guard", uid);
+        assertEquals(10000, index.count("guard"));
+
+        for (long uid = 10000; uid > 1; uid -= 2)
+            index.remove("Guard", uid); // Removes every even UID
+        assertEquals(5000, index.count("GUARD"));
+        assertEquals(1L, index.getUID("guard")); // The first entity keeps the name
+
+        index.remove("Guard", 1L);
+        long next = index.getUID("Guard");
+        assertTrue(next % 2 == 1 && next > 1, "Expected a remaining odd UID, got " + next);
+        for (long uid = 3; uid < 10000; uid += 2)
+            index.remove("guard", uid);
+        assertFalse(index.contains("Guard"));
+        assertEquals(0, index.count("Guard"));
+    }
+
+    @Test
+    void managersFollowRenames() {
+        Project project = new Project();
+        project.clearProject();
+
+        long chapterUID = project.chapterManager.newChapter("Start", "", "#F28220");
+        ChapterListObject chapter = new ChapterListObject("Start", chapterUID, "#F28220");
+        long event = project.eventManager.newEvent("Meeting", "", "#F28220", chapter);
+        long character = project.characterManager.newCharacter("Anna", "", 20, null, 0.0, 0.0);
+
+        assertSame(project.chapterManager.getChapter(chapterUID), project.chapterManager.getChapter("START"));
+        assertSame(project.eventManager.getEvent(event), project.eventManager.getEvent("meeting"));
+        assertEquals(character, project.characterManager.getCharacterUID("anna"));
+
+        project.chapterManager.editChapter(chapterUID, "Beginning", "");
+        project.eventManager.editEvent(event, "Party", "", chapter);
+        project.characterManager.editCharacter(character, "Bo", 20, "", null);
+        assertNull(project.chapterManager.getChapter("Start"));
+        assertEquals(chapterUID, project.chapterManager.getChapterUID("beginning"));
+        assertNull(project.eventManager.getEvent("Meeting"));
+        assertSame(project.eventManager.getEvent(event), project.eventManager.getEvent("PARTY"));
+        assertNull(project.characterManager.getCharacter("Anna"));
+        assertEquals("Bo", project.characterManager.getCharacter("bo").getName());
+
+        project.eventManager.removeEvent(event);
+        project.characterManager.deleteCharacter(character);
+        assertNull(project.eventManager.getEvent("Party"));
+        assertNull(project.characterManager.getCharacter("Bo"));
+    }
+}
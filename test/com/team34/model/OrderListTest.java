@@ -0,0 +1,206 @@
+package com.team34.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link OrderList} against an {@link ArrayList}, with random inserts, removals, moves and swaps,
+ * and checks that forked lists do not affect each other, and that they share most of their memory.
+ */
+class OrderListTest {
+
+    @Test
+    void behavesLikeArrayList() {
+        Random random = new Random(34);
+        OrderList list = new OrderList();
+        ArrayList<Long> expected = new ArrayList<>();
+        long nextUID = 1;
+
+        for (int i = 0; i < 20000; i++) {
+            int size = expected.size();
+            int operation = size < 2 ? 0 : random.nextInt(5);
+            switch (operation) {
+                case 0: {
+                    int index = random.nextInt(size + 1);
+                    long uid = nextUID++;
+                    assertTrue(list.add(index, uid));
+                    expected.add(index, uid);
+                    break;
+                }
+                case 1: {
+                    long uid = expected.get(random.nextInt(size));
+                    assertTrue(list.remove(uid));
+                    expected.remove(uid);
+                    break;
+                }
+                case 2: {
+                    int from = random.nextInt(size);
+                    int to = random.nextInt(size);
+                    list.move(from, to);
+                    expected.add(to, expected.remove(from));
+                    break;
+                }
+                case 3: {
+                    int first = random.nextInt(size);
+                    int second = random.nextInt(size);
+                    list.swap(first, second);
+                    expected.set(first, expected.set(second, expected.get(first)));
+                    break;
+                }
+                default: {
+                    int index = random.nextInt(size);
+                    long uid = expected.get(index);
+                    assertEquals(uid, list.get(index));
+                    assertEquals(index, list.indexOf(uid));
+                }
+            }
+            assertEquals(expected.size(), list.size());
+        }
+
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), list.toArray());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(i, list.indexOf(expected.get(i)));
+        assertEquals(-1, list.indexOf(nextUID));
+        assertFalse(list.remove(nextUID));
+    }
+
+    @Test
+    void uidsAppearOnce() {
+        OrderList list = new OrderList(Arrays.asList(3L, 1L, 3L, 2L));
+        assertArrayEquals(new long[]{3L, 1L, 2L}, list.toArray());
+        assertFalse(list.add(1L));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.move(0, 3));
+
+        list.clear();
+        assertEquals(0, list.size());
+        assertTrue(list.add(1L));
+    }
+
+    @Test
+    void forksAreIndependent() {
+        OrderList original = new OrderList();
+        for (long uid = 1; uid <= 1000; uid++)
+            original.add(uid);
+        long[] before = original.toArray();
+
+        OrderList fork = original.fork();
+        fork.move(0, 999);
+        fork.remove(500L);
+        fork.add(0, 2000L);
+        assertArrayEquals(before, original.toArray());
+        assertEquals(-1, original.indexOf(2000L));
+        assertEquals(1000, fork.size());
+        assertEquals(999, fork.indexOf(1L));
+
+        OrderList second = fork.fork();
+        original.swap(0, 1);
+        second.clear();
+        assertEquals(2L, original.get(0));
+        assertEquals(2000L, fork.get(0));
+        assertEquals(0, second.size());
+    }
+
+    @Test
+    void repeatedInsertsAtOnePositionAreRelabelled() {
+        OrderList list = new OrderList();
+        list.add(1L);
+        list.add(2L);
+        for (long uid = 3; uid < 1000; uid++)
+            list.add(1, uid); // Halves the room between the first two UIDs each time
+        OrderList fork = list.fork();
+        list.add(1, 1000L);
+
+        assertEquals(1000, list.size());
+        assertEquals(1L, list.get(0));
+        assertEquals(1000L, list.get(1));
+        assertEquals(999L, list.get(2));
+        assertEquals(2L, list.get(999));
+        for (int i = 0; i < list.size(); i++)
+            assertEquals(i, list.indexOf(list.get(i)));
+        assertFalse(fork.contains(1000L));
+        assertEquals(998, fork.indexOf(2L));
+    }
+
+    @Test
+    void editedForksRetainLittleMemory() throws IllegalAccessException {
+        Random random = new Random(34);
+        OrderList original = new OrderList();
+        for (long uid = 1; uid <= 10000; uid++)
+            original.add(uid);
+        long base = retainedBytes(original);
+
+        OrderList[] forks = new OrderList[200];
+        for (int i = 0; i < forks.length; i++) {
+            forks[i] = original.fork();
+            forks[i].move(random.nextInt(10000), random.nextInt(10000));
+            forks[i].remove(1L + random.nextInt(10000));
+            forks[i].add(random.nextInt(9999), 20000L + i);
+            original.swap(random.nextInt(10000), random.nextInt(10000)); // Must not copy what the forks share
+        }
+
+        Object[] all = Arrays.copyOf(forks, forks.length + 1, Object[].class);
+        all[forks.length] = original;
+        long perFork = (retainedBytes(all) - base) / (forks.length * 2);
+        // Copying the index, as a hash table of 10000 UIDs, would take more than 100 KB per list
+        assertTrue(perFork < 10000, "Each edited list retains " + perFork + " bytes");
+    }
+
+    /**
+     * Returns a rough size of the objects reachable from the roots, counting 16 bytes per object
+     * and 8 bytes per field or array element.
+     */
+    private static long retainedBytes(Object... roots) throws IllegalAccessException {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> pending = new ArrayDeque<>(Arrays.asList(roots));
+        long bytes = 0;
+
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            if (!seen.add(object))
+                continue;
+
+            bytes += 16;
+            Class<?> type = object.getClass();
+            if (type.isArray()) {
+                int length = Array.getLength(object);
+                bytes += 8L * length;
+                if (!type.getComponentType().isPrimitive()) {
+                    for (int i = 0; i < length; i++) {
+                        Object element = Array.get(object, i);
+                        if (element != null)
+                            pending.push(element);
+                    }
+                }
+                continue;
+            }
+
+            for (; type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()))
+                        continue;
+                    bytes += 8;
+                    if (field.getType().isPrimitive())
+                        continue;
+                    field.setAccessible(true);
+                    Object value = field.get(object);
+                    if (value != null)
+                        pending.push(value);
+                }
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,186 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.Event;
+import com.team34.model.event.EventListObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link XMLStreamCodec} and {@link XMLEventCodec} read and write the same files,
+ * and that converting to and from the {@link BinaryCodec} and {@link CompressedCodec} formats is lossless.
+ * Also checks that descriptions read from a {@link BinaryCodec} file are loaded lazily,
+ * and that parsing or writing the sections of a file in parallel gives the same result as doing it sequentially.
+ */
+class ProjectCodecTest {
+
+    @TempDir
+    Path dir;
+
+    private Project project;
+
+    @BeforeEach
+    void setup() {
+        project = new Project();
+        project.clearProject();
+
+        long chapterUID = project.chapterManager.newChapter("Chapter <1>", "A & B\nsecond line", "#F28220");
+        ChapterListObject chapter = new ChapterListObject("Chapter <1>", chapterUID, "#F28220");
+        long eventUID = project.eventManager.newEvent("Event", "Desc with &amp; entity", "#F28220", chapter);
+        project.eventManager.newEvent("Event 2", "", "#F28220", chapter);
+
+        long a = project.characterManager.newCharacter("Anna", "Desc", 20, new EventListObject("Event", eventUID), 10.0, 20.0);
+        long b = project.characterManager.newCharacter("Bo", "", 30, new EventListObject("Event", eventUID), 50.0, 60.0);
+        project.characterManager.newAssociation(a, b, 1.0, 2.0, 3.0, 4.0, "friends", 5.0, 6.0);
+    }
+
+    private byte[] save(ProjectCodec codec, String name) throws Exception {
+        File file = dir.resolve(name).toFile();
+        project.setCodec(codec);
+        project.setProjectFile(file);
+        project.setProjectName("test");
+        project.saveProject();
+        return Files.readAllBytes(file.toPath());
+    }
+
+    @Test
+    void bothCodecsWriteIdenticalFiles() throws Exception {
+        assertArrayEquals(save(new XMLEventCodec(), "event.wsp"), save(new XMLStreamCodec(), "stream.wsp"));
+    }
+
+    @Test
+    void streamCodecRoundTrip() throws Exception {
+        byte[] original = save(new XMLEventCodec(), "original.wsp");
+
+        project.setCodec(new XMLStreamCodec());
+        project.loadProject(dir.resolve("original.wsp").toFile());
+        assertEquals("test", project.getProjectName());
+        assertEquals(2, project.eventManager.getEvents().length);
+        assertFalse(project.hasUnsavedChanges());
+
+        assertArrayEquals(original, save(new XMLStreamCodec(), "resaved.wsp"));
+    }
+
+    @Test
+    void binaryFormatIsLossless() throws Exception {
+        byte[] original = save(new XMLStreamCodec(), "original.wsp");
+
+        File binary = dir.resolve("converted" + BinaryCodec.EXTENSION).toFile();
+        ProjectConverter.convert(dir.resolve("original.wsp").toFile(), binary);
+
+        project.loadProject(binary);
+        assertEquals(2, project.eventManager.getEvents().length);
+        assertEquals(2, project.characterManager.getCharacterList().size());
+
+        assertArrayEquals(original, save(new XMLStreamCodec(), "converted.wsp"));
+    }
+
+    @Test
+    void compressedFormatIsLossless() throws Exception {
+        byte[] original = save(new XMLStreamCodec(), "original.wsp");
+
+        File compressed = dir.resolve("compressed" + CompressedCodec.EXTENSION).toFile();
+        project.setCompressionLevel(Deflater.BEST_COMPRESSION);
+        project.exportProject(compressed);
+        assertTrue(compressed.length() < original.length);
+
+        project.loadProject(compressed);
+        assertEquals("test", project.getProjectName());
+        assertEquals(2, project.eventManager.getEvents().length);
+
+        assertArrayEquals(original, save(new XMLStreamCodec(), "decompressed.wsp"));
+    }
+
+    @Test
+    void binaryDescriptionsAreLoadedLazily() throws Exception {
+        File binary = dir.resolve("lazy" + BinaryCodec.EXTENSION).toFile();
+        project.exportProject(binary);
+        project.loadProject(binary);
+
+        Event event = project.eventManager.getEvent("Event");
+        assertTrue(event.getLazyDescription() instanceof LazyText);
+        assertFalse(((LazyText) event.getLazyDescription()).isLoaded());
+        assertNotNull(project.eventManager.getEvents());
+        assertFalse(((LazyText) event.getLazyDescription()).isLoaded());
+        assertEquals(1, project.textIndex.search("entity", 10).length); // Splits the descriptions into terms
+        assertFalse(((LazyText) event.getLazyDescription()).isLoaded());
+
+        project.setJournalEnabled(false);
+        project.chapterManager.newChapter("Another", "", "#F28220");
+        project.saveProject(); // Replaces the mapped file, rather than writing it in place
+        project.exportProject(dir.resolve("lazy.wsp").toFile());
+        assertFalse(((LazyText) event.getLazyDescription()).isLoaded());
+
+        assertEquals("Desc with &amp; entity", event.getDescription());
+        assertEquals("Desc with &amp; entity", event.getLazyDescription());
+        assertEquals("Desc", project.characterManager.getCharacter("Anna").getDescription());
+    }
+
+    @Test
+    void journalDoesNotLoadDescriptions() throws Exception {
+        File binary = dir.resolve("journaled" + BinaryCodec.EXTENSION).toFile();
+        project.exportProject(binary);
+        project.loadProject(binary);
+
+        Event event = project.eventManager.getEvent("Event");
+        long anna = project.characterManager.getCharacterUID("Anna");
+        project.characterManager.editCharacter(anna, 12.0, 34.0); // Dragging the character in the chart
+        for (long uid : project.eventManager.getEventOrder(0))
+            project.eventManager.editEventChapterListObject(uid); // Detaching the events of a deleted chapter
+        assertFalse(((LazyText) event.getLazyDescription()).isLoaded());
+        assertFalse(((LazyText) project.characterManager.getCharacter("Anna").getLazyDescription()).isLoaded());
+
+        project.saveProject(); // Appends the changes to the journal
+        assertTrue(ProjectJournal.journalFileOf(binary).exists());
+        assertFalse(((LazyText) event.getLazyDescription()).isLoaded());
+
+        project.loadProject(binary); // Replays the journal
+        assertEquals(12.0, project.characterManager.getCharacter("Anna").getChartPositionX());
+        assertEquals("Desc with &amp; entity", project.eventManager.getEvent("Event").getDescription());
+        assertEquals("Desc", project.characterManager.getCharacter("Anna").getDescription());
+    }
+
+    @Test
+    void parallelReadMatchesSequentialRead() throws Exception {
+        byte[] original = save(new XMLStreamCodec(), "original.wsp");
+
+        project.clearProject();
+        assertTrue(new XMLStreamCodec().readParallel(original, project));
+        assertEquals("test", project.getProjectName());
+        assertEquals(2, project.eventManager.getEvents().length);
+
+        assertArrayEquals(original, save(new XMLStreamCodec(), "parallel.wsp"));
+
+        XMLStreamCodec codec = new XMLStreamCodec();
+        codec.setParallelThreshold(original.length); // Looks ahead to find the size of the stream
+        project.clearProject();
+        codec.read(new ByteArrayInputStream(original), project);
+        assertArrayEquals(original, save(new XMLStreamCodec(), "lookahead.wsp"));
+
+        codec.setParallelThreshold(original.length + 1); // Too small to be parsed in parallel
+        project.clearProject();
+        codec.read(new ByteArrayInputStream(original), project);
+        assertArrayEquals(original, save(new XMLStreamCodec(), "streamed.wsp"));
+    }
+
+    @Test
+    void parallelWriteMatchesSequentialWrite() throws Exception {
+        byte[] original = save(new XMLStreamCodec(), "original.wsp");
+
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        for (ByteBuffer buffer : new XMLStreamCodec().renderParallel(ProjectSnapshot.of(project)))
+            parallel.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        assertArrayEquals(original, parallel.toByteArray());
+    }
+}
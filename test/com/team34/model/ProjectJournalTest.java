@@ -0,0 +1,163 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that changes saved to a {@link ProjectJournal} are replayed when the project is loaded,
+ * and that compaction folds them into the project file.
+ * Also checks that changes made during a background save end up in the journal.
+ */
+class ProjectJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private Project project;
+    private File file;
+    private ChapterListObject chapter;
+
+    @BeforeEach
+    void setup() throws Exception {
+        project = new Project();
+        project.clearProject();
+
+        long chapterUID = project.chapterManager.newChapter("Chapter", "", "#F28220");
+        chapter = new ChapterListObject("Chapter", chapterUID, "#F28220");
+        for (int i = 0; i < 5; i++)
+            project.eventManager.newEvent("Event " + i, "Description " + i, "#F28220", chapter);
+
+        file = dir.resolve("journal.wsp").toFile();
+        project.setProjectFile(file);
+        project.saveProject();
+    }
+
+    private void makeChanges() {
+        long uid = project.eventManager.newEvent("New event", "New description", "#F28220", chapter);
+        project.eventManager.editEvent(uid, "Edited event", "Edited description", chapter);
+        project.eventManager.moveEvent(0, 5, 1);
+        project.eventManager.removeEvent(project.eventManager.getEventOrder(0)[3]);
+        int draft = project.eventManager.forkOrderList(0);
+        project.eventManager.moveEvent(draft, 0, 4);
+
+        long a = project.characterManager.newCharacter("Anna", "", 20, new EventListObject("Edited event", uid), 0.0, 0.0);
+        long b = project.characterManager.newCharacter("Bo", "", 30, new EventListObject("Edited event", uid), 0.0, 0.0);
+        project.characterManager.editCharacter(a, 40.0, 50.0);
+        project.characterManager.newAssociation(a, b, 1.0, 2.0, 3.0, 4.0, "friends", 5.0, 6.0);
+    }
+
+    private byte[] export(Project p, String name) throws Exception {
+        File exported = dir.resolve(name).toFile();
+        p.exportProject(exported);
+        return Files.readAllBytes(exported.toPath());
+    }
+
+    @Test
+    void saveAppendsToJournal() throws Exception {
+        byte[] base = Files.readAllBytes(file.toPath());
+        makeChanges();
+        byte[] expected = export(project, "expected.wsp");
+
+        project.saveProject();
+        assertArrayEquals(base, Files.readAllBytes(file.toPath()));
+        assertTrue(ProjectJournal.journalFileOf(file).exists());
+
+        project.loadProject(file);
+        assertFalse(project.hasUnsavedChanges());
+        assertArrayEquals(expected, export(project, "replayed.wsp"));
+    }
+
+    @Test
+    void compactionFoldsJournalIntoFile() throws Exception {
+        makeChanges();
+        byte[] expected = export(project, "expected.wsp");
+
+        project.setCompactionThreshold(1);
+        project.saveProject();
+
+        project.loadProject(file); // Waits for the compaction to finish
+        assertFalse(ProjectJournal.journalFileOf(file).exists());
+        assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+        assertArrayEquals(expected, export(project, "replayed.wsp"));
+    }
+
+    @Test
+    void tornEntryIsCutOffBeforeAppending() throws Exception {
+        makeChanges();
+        project.saveProject();
+        byte[] expected = export(project, "expected.wsp");
+
+        File journalFile = ProjectJournal.journalFileOf(file);
+        long valid = journalFile.length();
+        Files.write(journalFile.toPath(), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND); // Torn by a crash
+        project.loadProject(file);
+        assertEquals(valid, journalFile.length());
+        assertArrayEquals(expected, export(project, "replayed.wsp"));
+
+        project.eventManager.newEvent("After crash", "", "#F28220", chapter);
+        project.saveProject();
+        expected = export(project, "later.wsp");
+        project.loadProject(file);
+        assertArrayEquals(expected, export(project, "replayed-later.wsp"));
+
+        byte[] journal = Files.readAllBytes(journalFile.toPath());
+        journal[journal.length - 2] ^= 0x55; // Damages the last entry, which must not be applied
+        Files.write(journalFile.toPath(), journal);
+        project.loadProject(file);
+        assertNull(project.eventManager.getEvent("After crash"));
+        assertTrue(journalFile.length() < journal.length);
+    }
+
+    @Test
+    void staleJournalIsIgnored() throws Exception {
+        makeChanges();
+        project.saveProject();
+
+        project.setJournalEnabled(false);
+        project.saveProject(); // Rewrites the file without the journal
+        project.setJournalEnabled(true);
+        byte[] expected = Files.readAllBytes(file.toPath());
+
+        project.eventManager.newEvent("Unsaved", "", "#F28220", chapter);
+        project.loadProject(file);
+        assertArrayEquals(expected, export(project, "replayed.wsp"));
+    }
+
+    @Test
+    void asyncSaveWritesSnapshot() throws Exception {
+        makeChanges();
+        byte[] expected = export(project, "expected.wsp");
+
+        File other = dir.resolve("other.wsp").toFile();
+        project.setProjectFile(other);
+        List<Double> progress = new ArrayList<>();
+        CompletableFuture<Void> save = project.saveProjectAsync(progress::add);
+
+        project.eventManager.newEvent("After snapshot", "", "#F28220", chapter);
+        assertTrue(project.hasUnsavedChanges());
+        save.get();
+
+        assertArrayEquals(expected, Files.readAllBytes(other.toPath()));
+        assertEquals(1.0, progress.get(progress.size() - 1));
+
+        byte[] later = export(project, "later.wsp");
+        project.saveProject(); // Appends the change made during the save
+        assertArrayEquals(expected, Files.readAllBytes(other.toPath()));
+
+        project.loadProject(other);
+        assertArrayEquals(later, export(project, "replayed.wsp"));
+    }
+}
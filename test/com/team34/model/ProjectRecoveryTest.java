@@ -0,0 +1,76 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link Project#autosave()} writes a recovery copy that can be restored,
+ * and that saving the project deletes it.
+ */
+class ProjectRecoveryTest {
+
+    @TempDir
+    Path dir;
+
+    private Project project;
+    private File file;
+    private ChapterListObject chapter;
+
+    @BeforeEach
+    void setup() throws Exception {
+        project = new Project();
+        project.clearProject();
+
+        long chapterUID = project.chapterManager.newChapter("Chapter", "", "#F28220");
+        chapter = new ChapterListObject("Chapter", chapterUID, "#F28220");
+        project.eventManager.newEvent("Event", "Description", "#F28220", chapter);
+
+        file = dir.resolve("recovery.wsp").toFile();
+        project.setProjectFile(file);
+        project.saveProject();
+        file.setLastModified(file.lastModified() - 10000);
+    }
+
+    private byte[] export(String name) throws Exception {
+        File exported = dir.resolve(name).toFile();
+        project.exportProject(exported);
+        return Files.readAllBytes(exported.toPath());
+    }
+
+    @Test
+    void autosaveOnlyWithUnsavedChanges() {
+        assertFalse(project.autosave());
+        assertFalse(Project.recoveryFileOf(file).exists());
+    }
+
+    @Test
+    void recoveryCanBeRestored() throws Exception {
+        project.eventManager.newEvent("Unsaved", "Unsaved description", "#F28220", chapter);
+        byte[] expected = export("expected.wsp");
+
+        assertTrue(project.autosave());
+        project.awaitBackgroundWrites();
+        assertTrue(project.hasRecovery(file));
+
+        project.loadProject(file); // Discards the unsaved event
+        assertEquals(1, project.eventManager.getEvents().length);
+
+        project.restoreRecovery(Project.recoveryFileOf(file));
+        assertEquals(file, project.getProjectFile());
+        assertTrue(project.hasUnsavedChanges());
+        assertArrayEquals(expected, export("restored.wsp"));
+
+        project.saveProject();
+        assertFalse(project.hasUnsavedChanges());
+        assertFalse(Project.recoveryFileOf(file).exists());
+        assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+    }
+}
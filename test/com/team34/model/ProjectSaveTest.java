@@ -0,0 +1,95 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that changes are tracked per entity, including chapters, and that saving without a journal
+ * skips writing the project file when nothing has changed, and otherwise writes the same file as a full save.
+ */
+class ProjectSaveTest {
+
+    private static final long OLD_TIME = 1000000000000L;
+
+    @TempDir
+    Path dir;
+
+    private Project project;
+    private File file;
+    private ChapterListObject chapter;
+    private long characterUID;
+
+    @BeforeEach
+    void setup() throws Exception {
+        project = new Project();
+        project.clearProject();
+        project.setJournalEnabled(false);
+
+        long chapterUID = project.chapterManager.newChapter("Chapter", "", "#F28220");
+        chapter = new ChapterListObject("Chapter", chapterUID, "#F28220");
+        long eventUID = project.eventManager.newEvent("Event", "Description", "#F28220", chapter);
+        characterUID = project.characterManager.newCharacter("Anna", "Description", 20,
+                new EventListObject("Event", eventUID), 0.0, 0.0);
+
+        file = dir.resolve("save.wsp").toFile();
+        project.setProjectFile(file);
+        project.saveProject();
+        assertTrue(file.setLastModified(OLD_TIME));
+        project.loadProject(file);
+    }
+
+    private byte[] export(String name) throws Exception {
+        File exported = dir.resolve(name).toFile();
+        project.exportProject(exported);
+        return Files.readAllBytes(exported.toPath());
+    }
+
+    @Test
+    void chapterChangesAreUnsaved() throws Exception {
+        project.chapterManager.newChapter("New chapter", "", "#F28220");
+        assertTrue(project.hasUnsavedChanges());
+
+        project.saveProject();
+        assertFalse(project.hasUnsavedChanges());
+    }
+
+    @Test
+    void unchangedProjectIsNotWritten() throws Exception {
+        project.saveProject();
+        assertEquals(OLD_TIME, file.lastModified());
+    }
+
+    @Test
+    void changedSectionsAreRewritten() throws Exception {
+        project.eventManager.newEvent("Event 2", "", "#F28220", chapter);
+        project.saveProject(); // Written in full, since the layout of a loaded file is unknown
+        assertTrue(file.setLastModified(OLD_TIME));
+
+        project.characterManager.editCharacter(characterUID, "Anna", 21, "Edited", null);
+        byte[] expected = export("expected.wsp");
+        project.saveProject();
+        assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+
+        assertTrue(file.setLastModified(OLD_TIME)); // Makes the file look changed by something else
+        project.characterManager.editCharacter(characterUID, "Anna", 21, "Edited", null);
+        project.saveProject();
+        assertNotEquals(OLD_TIME, file.lastModified());
+        assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+
+        long modified = file.lastModified();
+        project.characterManager.editCharacter(characterUID, "Anna", 21, "Edited", null);
+        assertTrue(project.hasUnsavedChanges());
+        project.saveProject(); // Same sections as the file on disk
+        assertEquals(modified, file.lastModified());
+        assertFalse(project.hasUnsavedChanges());
+    }
+}
@@ -0,0 +1,67 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link ReverseIndex}, and that the reverse indexes of the managers follow adds, edits and removals.
+ */
+class ReverseIndexTest {
+
+    @Test
+    void referencesCanBeFollowedBack() {
+        ReverseIndex index = new ReverseIndex();
+        index.link(10L, 1L);
+        index.link(11L, 1L, 2L);
+        index.link(12L, 2L, 2L);
+
+        assertArrayEquals(new long[]{10L, 11L}, index.getSources(1L));
+        assertArrayEquals(new long[]{11L, 12L}, index.getSources(2L));
+        assertArrayEquals(new long[]{1L, 2L}, index.getTargets(11L));
+
+        index.link(11L, 3L);
+        index.unlink(12L);
+        assertArrayEquals(new long[]{10L}, index.getSources(1L));
+        assertEquals(0, index.countSources(2L));
+        assertArrayEquals(new long[]{11L}, index.getSources(3L));
+        assertEquals(0, index.getTargets(12L).length);
+    }
+
+    @Test
+    void managersFollowEdits() {
+        Project project = new Project();
+        project.clearProject();
+
+        long first = project.chapterManager.newChapter("First", "", "#F28220");
+        long second = project.chapterManager.newChapter("Second", "", "#F28220");
+        ChapterListObject firstChapter = new ChapterListObject("First", first, "#F28220");
+        ChapterListObject secondChapter = new ChapterListObject("Second", second, "#F28220");
+        long meeting = project.eventManager.newEvent("Meeting", "", "#F28220", firstChapter);
+        long party = project.eventManager.newEvent("Party", "", "#F28220", firstChapter);
+
+        long anna = project.characterManager.newCharacter("Anna", "", 20, new EventListObject("Meeting", meeting));
+        long bo = project.characterManager.newCharacter("Bo", "", 30, new EventListObject("Party", party));
+        long cleo = project.characterManager.newCharacter("Cleo", "", 40, null);
+        long assoc = project.characterManager.newAssociation(anna, bo, 0, 0, 0, 0, "friends", 0, 0);
+
+        assertArrayEquals(new long[]{meeting, party}, project.eventManager.getEventsInChapter(first));
+        assertArrayEquals(new long[]{anna, bo}, project.getCharactersInChapter(first));
+        assertArrayEquals(new long[]{assoc}, project.characterManager.getAssociationsOf(bo));
+        assertEquals(1, project.characterManager.getAssociationDataOfCharacters(new long[]{anna, bo}).length);
+
+        project.eventManager.editEvent(party, "Party", "", secondChapter);
+        project.characterManager.editCharacter(cleo, "Cleo", 40, "", new EventListObject("Party", party));
+        assertArrayEquals(new long[]{meeting}, project.eventManager.getEventsInChapter(first));
+        assertArrayEquals(new long[]{bo, cleo}, project.getCharactersInChapter(second));
+
+        project.characterManager.editAssociation(assoc, anna, cleo, 0, 0, 0, 0, "rivals", 0, 0);
+        assertEquals(0, project.characterManager.getAssociationsOf(bo).length);
+        project.characterManager.deleteCharacter(bo);
+        project.eventManager.removeEvent(meeting);
+        assertArrayEquals(new long[]{cleo}, project.characterManager.getCharactersInEvent(party));
+        assertEquals(0, project.eventManager.countEventsInChapter(first));
+    }
+}
@@ -0,0 +1,86 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the ranking and prefix queries of {@link TextIndex}, and that the managers keep
+ * the index of a project up to date.
+ */
+class TextIndexTest {
+
+    @Test
+    void rankedAndPrefixQueries() {
+        TextIndex index = new TextIndex();
+        index.index(1L, "The dragon", "A red dragon sleeps under the mountain.");
+        index.index(2L, "The mountain", "Snow covers the mountain, where nothing sleeps.");
+        index.index(3L, "Village", "The villagers fear the dragon.");
+
+        assertArrayEquals(new long[]{1L, 3L}, index.search("DRAGON", 10));
+        assertArrayEquals(new long[]{2L, 1L}, index.search("mountain", 10));
+        assertArrayEquals(new long[]{1L}, index.search("red dragon", 1));
+        assertEquals(0, index.search("castle", 10).length);
+        assertEquals(0, index.search(" ,. ", 10).length);
+
+        assertArrayEquals(new long[]{3L}, index.searchPrefix("vill", 10));
+        assertEquals(3, index.searchPrefix("the sl", 10).length);
+        assertEquals(0, index.search("vill", 10).length);
+
+        index.index(3L, "Village", "Quiet and peaceful.");
+        index.remove(1L);
+        assertEquals(0, index.search("dragon", 10).length);
+        assertArrayEquals(new long[]{3L}, index.search("peaceful", 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void limitedResultsAreTheBestOfTheFullRanking() {
+        TextIndex index = new TextIndex();
+        for (long uid = 1; uid <= 500; uid++)
+            index.index(uid, "Scroll", String.join(" ", Collections.nCopies((int) (uid % 5) + 1, "rune")));
+
+        long[] all = index.search("rune", Integer.MAX_VALUE);
+        assertEquals(500, all.length);
+        for (int i = 1; i < all.length; i++) {
+            // Entities with the same text have the same score, and are therefore next to each other, ordered by UID
+            if (all[i - 1] % 5 == all[i] % 5)
+                assertTrue(all[i - 1] < all[i]);
+        }
+        for (int i = 100; i < all.length; i += 100)
+            assertNotEquals(all[i - 1] % 5, all[i] % 5);
+
+        for (int limit : new int[]{1, 2, 37, 100, 499, 500, 501}) {
+            long[] top = index.search("rune", limit);
+            assertArrayEquals(Arrays.copyOf(all, Math.min(limit, all.length)), top);
+        }
+    }
+
+    @Test
+    void managersKeepIndexUpToDate() {
+        Project project = new Project();
+        project.clearProject();
+
+        long chapterUID = project.chapterManager.newChapter("Arrival", "The heroes reach the harbour", "#F28220");
+        ChapterListObject chapter = new ChapterListObject("Arrival", chapterUID, "#F28220");
+        long event = project.eventManager.newEvent("Storm", "A storm hits the harbour", "#F28220", chapter);
+        long character = project.characterManager.newCharacter("Anna", "Captain of the ship", 40, null, 0.0, 0.0);
+
+        assertArrayEquals(new long[]{character}, project.textIndex.search("captain", 10));
+        assertEquals(2, project.textIndex.search("harbour", 10).length);
+
+        project.eventManager.editEvent(event, "Calm", "The sea is calm", chapter);
+        assertArrayEquals(new long[]{chapterUID}, project.textIndex.search("harbour", 10));
+        assertArrayEquals(new long[]{event}, project.textIndex.searchPrefix("cal", 10));
+
+        project.characterManager.deleteCharacter(character);
+        assertEquals(0, project.textIndex.search("captain", 10).length);
+
+        project.clearProject();
+        assertEquals(0, project.textIndex.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the typed read methods of the managers, such as {@link com.team34.model.event.EventManager#forEachEvent},
+ * agree with the Object arrays returned by the older methods, which are built on them.
+ */
+class TypedQueryTest {
+
+    @Test
+    void visitorsAgreeWithArrays() {
+        Project project = new Project();
+        project.clearProject();
+
+        long chapterUID = project.chapterManager.newChapter("Chapter", "About", "#F28220");
+        ChapterListObject chapter = new ChapterListObject("Chapter", chapterUID, "#F28220");
+        long first = project.eventManager.newEvent("First", "One", "#F28220", chapter);
+        long second = project.eventManager.newEvent("Second", "Two", "#F28220", chapter);
+        project.eventManager.moveEvent(0, 1, 0);
+
+        long anna = project.characterManager.newCharacter("Anna", "", 20, new EventListObject("First", first), 1.0, 2.0);
+        long bo = project.characterManager.newCharacter("Bo", "Friend", 30, null, 3.0, 4.0);
+        long assoc = project.characterManager.newAssociation(anna, bo, 1.0, 2.0, 3.0, 4.0, "friends", 5.0, 6.0);
+
+        Object[][] events = project.eventManager.getEvents();
+        ArrayList<Long> visited = new ArrayList<>();
+        project.eventManager.forEachEvent((uid, name, description, color, eventChapter) -> {
+            Object[] row = events[visited.size()];
+            assertEquals(row[0], uid);
+            assertEquals(row[1], name);
+            assertEquals(row[2].toString(), description.toString());
+            assertEquals(row[5], eventChapter.getUid());
+            visited.add(uid);
+        });
+        assertEquals(events.length, visited.size());
+
+        visited.clear();
+        project.eventManager.forEachEvent(0, (uid, name, description, color, eventChapter) -> visited.add(uid));
+        assertEquals(second, visited.get(0));
+        assertEquals(first, visited.get(1));
+        assertArrayEquals(new long[]{second, first}, project.eventManager.getEventOrderArray(0));
+
+        Object[][] chapters = project.chapterManager.getChapters();
+        project.chapterManager.forEachChapter(0, (uid, name, description, color) -> {
+            assertEquals(chapters[0][0], uid);
+            assertEquals("About", description);
+        });
+
+        ArrayList<Object[]> characters = project.characterManager.getCharacterList();
+        assertEquals(2, characters.size());
+        Object[] annaRow = characters.get(characters.get(0)[1].equals(anna) ? 0 : 1); // The rows are unordered
+        Object[] boRow = characters.get(annaRow == characters.get(0) ? 1 : 0);
+        assertEquals(anna, annaRow[1]);
+        assertEquals(first, annaRow[7]);
+        assertEquals(bo, boRow[1]);
+        assertEquals("", boRow[5]);
+        project.characterManager.forEachCharacter((uid, name, description, age, chartX, chartY, event) -> {
+            if (uid == bo) {
+                assertEquals("Friend", description.toString());
+                assertEquals(30, age);
+                assertEquals(3.0, chartX);
+                assertNull(event);
+            }
+        });
+
+        Object[][] associations = project.characterManager.getAssociationData();
+        assertEquals(assoc, associations[0][0]);
+        assertEquals("friends", associations[0][7]);
+        assertEquals(6.0, associations[0][9]);
+    }
+}
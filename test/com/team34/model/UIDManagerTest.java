@@ -0,0 +1,171 @@
+package com.team34.model;
+
+import com.team34.model.chapter.ChapterListObject;
+import com.team34.model.event.EventListObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that each {@link Project} has a {@link UIDManager} of its own,
+ * so that projects can be cleared and loaded independently, also on different threads.
+ * Also checks that created UIDs are ordered and encode their type, and that random UIDs of older files still load,
+ * and that blocks of reserved UIDs can be used to add many entities at once.
+ */
+class UIDManagerTest {
+
+    @TempDir
+    Path dir;
+
+    private static Project newProject(int events) {
+        Project project = new Project();
+        project.clearProject();
+
+        long chapterUID = project.chapterManager.newChapter("Chapter", "", "#F28220");
+        ChapterListObject chapter = new ChapterListObject("Chapter", chapterUID, "#F28220");
+        for (int i = 0; i < events; i++)
+            project.eventManager.newEvent("Event " + i, "", "#F28220", chapter);
+        return project;
+    }
+
+    @Test
+    void projectsHaveSeparateUIDs() {
+        Project first = newProject(3);
+        Project second = newProject(5);
+        assertEquals(4, first.uidManager.getUIDArray().length);
+        assertEquals(6, second.uidManager.getUIDArray().length);
+
+        for (long uid : first.uidManager.getUIDArray())
+            second.uidManager.removeUID(uid);
+        assertEquals(4, first.uidManager.getUIDArray().length);
+
+        second.clearProject();
+        assertEquals(4, first.uidManager.getUIDArray().length);
+    }
+
+    @Test
+    void projectsCanBeLoadedConcurrently() throws Exception {
+        Project original = newProject(500);
+        File file = dir.resolve("concurrent.wsp").toFile();
+        original.setProjectFile(file);
+        original.saveProject();
+        byte[] expected = Files.readAllBytes(file.toPath());
+
+        CompletableFuture<byte[]> first = CompletableFuture.supplyAsync(() -> loadAndExport(file, "first.wsp"));
+        CompletableFuture<byte[]> second = CompletableFuture.supplyAsync(() -> loadAndExport(file, "second.wsp"));
+        assertArrayEquals(expected, first.get());
+        assertArrayEquals(expected, second.get());
+    }
+
+    private byte[] loadAndExport(File file, String name) {
+        try {
+            Project project = new Project();
+            project.setJournalEnabled(false);
+            project.loadProject(file);
+
+            File exported = dir.resolve(name).toFile();
+            project.exportProject(exported);
+            return Files.readAllBytes(exported.toPath());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void createdUIDsAreOrderedAndTyped() {
+        UIDManager manager = new UIDManager();
+        EntityType[] types = EntityType.values();
+        long before = System.currentTimeMillis();
+
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < 10000; i++) { // More than fit in a millisecond
+            EntityType type = types[i % types.length];
+            long uid = manager.nextUID(type);
+            assertTrue(uid > previous);
+            assertEquals(type, UIDManager.typeOf(uid));
+            previous = uid;
+        }
+
+        long created = UIDManager.creationTimeOf(previous);
+        assertTrue(created >= before && created <= System.currentTimeMillis() + 10);
+    }
+
+    @Test
+    void randomUIDsOfOlderFilesStillLoad() throws Exception {
+        long legacyUID = 0x1234567890ABCDEFL;
+        assertNull(UIDManager.typeOf(legacyUID));
+
+        Project project = newProject(1);
+        project.uidManager.addUID(legacyUID);
+        project.chapterManager.addChapter(legacyUID, "Old chapter", "", "#F28220");
+        File file = dir.resolve("legacy.wsp").toFile();
+        project.setProjectFile(file);
+        project.saveProject();
+
+        Project loaded = new Project();
+        loaded.loadProject(file);
+        assertEquals(EntityType.CHAPTER, loaded.getEntityType(legacyUID));
+        assertEquals("Old chapter", loaded.chapterManager.getChapter(legacyUID).getName());
+
+        long uid = loaded.eventManager.newEvent("New event", "", "#F28220",
+                new ChapterListObject("Old chapter", legacyUID, "#F28220"));
+        assertEquals(EntityType.EVENT, loaded.getEntityType(uid));
+        assertNull(loaded.getEntityType(uid + 1));
+    }
+
+    @Test
+    void reservedBlocksAreAddedInBulk() throws Exception {
+        Project project = newProject(0);
+        File file = dir.resolve("bulk.wsp").toFile();
+        project.setProjectFile(file);
+        project.saveProject();
+
+        long[] chapterUIDs = project.uidManager.reserveUIDs(EntityType.CHAPTER, 2);
+        project.chapterManager.addChapters(chapterUIDs, new String[]{"First", "Second"},
+                new String[]{"", ""}, new String[]{"#F28220", "#1E90FF"});
+
+        int count = 5000;
+        long[] eventUIDs = project.uidManager.reserveUIDs(EntityType.EVENT, count);
+        String[] names = new String[count];
+        CharSequence[] descriptions = new CharSequence[count];
+        ChapterListObject[] chapters = new ChapterListObject[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "Event " + i;
+            descriptions[i] = "";
+            chapters[i] = new ChapterListObject("Chapter", chapterUIDs[i % 2], i % 2 == 0 ? "#F28220" : "#1E90FF");
+        }
+        project.eventManager.addEvents(eventUIDs, names, descriptions, chapters);
+
+        long[] characterUIDs = project.uidManager.reserveUIDs(EntityType.CHARACTER, 2);
+        project.characterManager.addCharacters(characterUIDs, new String[]{"Anna", "Bo"}, new String[]{"", ""},
+                new int[]{20, 30}, new EventListObject[]{new EventListObject("Event 0", eventUIDs[0]), null},
+                new double[]{0.0, 1.0}, new double[]{0.0, 1.0});
+
+        for (int i = 1; i < count; i++) {
+            assertTrue(eventUIDs[i] > eventUIDs[i - 1]);
+            assertEquals(EntityType.EVENT, UIDManager.typeOf(eventUIDs[i]));
+        }
+        assertEquals(count / 2, project.chapterManager.getChapter(chapterUIDs[1]).getEvents().size());
+        assertEquals(count + 5, project.uidManager.getUIDArray().length);
+
+        byte[] expected = Files.readAllBytes(exportOf(project, "expected.wsp").toPath());
+        project.saveProject(); // Appends the added entities to the journal
+
+        Project loaded = new Project();
+        loaded.loadProject(file);
+        assertEquals(count, loaded.eventManager.getEventOrder(0).length);
+        assertArrayEquals(expected, Files.readAllBytes(exportOf(loaded, "loaded.wsp").toPath()));
+    }
+
+    private File exportOf(Project project, String name) throws Exception {
+        File exported = dir.resolve(name).toFile();
+        project.exportProject(exported);
+        return exported;
+    }
+}
@@ -0,0 +1,54 @@
+package com.team34.model.event;
+
+import com.team34.model.ModelChange;
+import com.team34.model.Project;
+import com.team34.model.chapter.ChapterListObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that events are moved between chapters by the UID of their chapter, and follow chapter edits
+ * through the chapter list object shared by the events of a chapter.
+ */
+class RehomeEventsTest {
+
+    @Test
+    void eventsFollowTheirChapter() {
+        Project project = new Project();
+        project.clearProject();
+
+        long first = project.chapterManager.newChapter("First", "", "#F28220");
+        long second = project.chapterManager.newChapter("Second", "", "#5DB2BD");
+        ChapterListObject firstChapter = new ChapterListObject("First", first, "#F28220");
+        long a = project.eventManager.newEvent("A", "", "#F28220", firstChapter);
+        long b = project.eventManager.newEvent("B", "", "#F28220", firstChapter);
+        long c = project.eventManager.newEvent("C", "", "#5DB2BD", new ChapterListObject("Second", second, "#5DB2BD"));
+        assertSame(project.eventManager.getChapterListObject(a), project.eventManager.getChapterListObject(b));
+
+        ArrayList<List<ModelChange>> calls = new ArrayList<>();
+        project.changeNotifier.addListener(calls::add);
+        assertTrue(project.chapterManager.editChapter(first, "Beginning", "New description"));
+        assertEquals(1, calls.size());
+        assertEquals(1, calls.get(0).size()); // Only the chapter, since its events refer to it by UID
+        assertEquals("Beginning", project.eventManager.getChapterListObject(a).getTitle());
+        assertEquals("Beginning", project.eventManager.getEventData(b)[2]);
+        assertEquals("Second", project.eventManager.getChapterListObject(c).getTitle());
+
+        calls.clear();
+        assertEquals(2, project.eventManager.rehomeEvents(first, second));
+        assertEquals(1, calls.size());
+        assertArrayEquals(new long[]{a, b, c}, project.eventManager.getEventsInChapter(second));
+        assertEquals(0, project.eventManager.countEventsInChapter(first));
+        assertEquals(second, project.eventManager.getEvent(b).getChapterUID());
+        assertEquals("#5DB2BD", project.eventManager.getEventData(b)[3]);
+        assertTrue(project.chapterManager.getChapter(second).getEvents().contains(project.eventManager.getEvent(a)));
+        assertTrue(project.chapterManager.getChapter(first).getEvents().isEmpty());
+
+        assertEquals(-1, project.eventManager.rehomeEvents(second, 12345L));
+        assertFalse(project.chapterManager.editChapter(12345L, "None", ""));
+    }
+}